@@ -0,0 +1,81 @@
+package com.camara.processos_api.service;
+
+import com.camara.processos_api.model.Etapa;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Custo de acrescentar uma etapa a um consolidado com 1, 10, 100 e 500 páginas de histórico:
+ * reconstrução em memória (adicionarPaginaDeDespacho) x atualização incremental (anexarPaginaDeDespacho).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AdicionarPaginaBenchmark {
+
+    @Param({"1", "10", "100", "500"})
+    public int paginas;
+
+    private PdfGenerationService pdfService;
+    private Path diretorio;
+    private Path historico;
+    private Path consolidado;
+    private byte[] bytesDoHistorico;
+    private Etapa novaEtapa;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        pdfService = DadosDeBenchmark.novoServico();
+        diretorio = Files.createTempDirectory("jmh-despacho");
+        historico = diretorio.resolve("historico.pdf");
+        consolidado = diretorio.resolve("consolidado.pdf");
+        bytesDoHistorico = pdfService.gerarPdfConsolidado(DadosDeBenchmark.historico(paginas));
+        Files.write(historico, bytesDoHistorico);
+        novaEtapa = DadosDeBenchmark.novaEtapa(paginas + 1L);
+    }
+
+    // O anexo incremental altera o arquivo: cada chamada parte do mesmo histórico
+    @Setup(Level.Invocation)
+    public void restaurarConsolidado() throws IOException {
+        Files.write(consolidado, bytesDoHistorico);
+    }
+
+    @TearDown(Level.Trial)
+    public void limpar() throws IOException {
+        try (Stream<Path> arquivos = Files.walk(diretorio)) {
+            arquivos.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public byte[] reconstruirEmMemoria() throws IOException {
+        return pdfService.adicionarPaginaDeDespacho(historico, novaEtapa, null, false);
+    }
+
+    @Benchmark
+    public long anexarIncremental() throws IOException {
+        pdfService.anexarPaginaDeDespacho(consolidado, novaEtapa, null, false);
+        return Files.size(consolidado);
+    }
+}
@@ -0,0 +1,82 @@
+package com.camara.processos_api.service;
+
+import com.camara.processos_api.config.DespachoPdfConfig;
+import com.camara.processos_api.model.AssinaturaImagem;
+import com.camara.processos_api.model.Etapa;
+import com.camara.processos_api.model.Processo;
+import com.camara.processos_api.model.Usuario;
+
+import javax.imageio.ImageIO;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+// Entidades em memória usadas pelos benchmarks (sem banco nem contexto Spring)
+final class DadosDeBenchmark {
+
+    private DadosDeBenchmark() {
+    }
+
+    // Configuração padrão, sem o log de tamanho por documento (I/O fora do que se quer medir)
+    static PdfGenerationService novoServico() {
+        DespachoPdfConfig config = new DespachoPdfConfig();
+        config.setRelatorioTamanho(false);
+        return new PdfGenerationService(config);
+    }
+
+    static Etapa novaEtapa(long id) {
+        Usuario usuario = new Usuario();
+        usuario.setId(1L);
+        usuario.setNome("Usuário de Benchmark");
+        usuario.setMatricula("123");
+        usuario.setDepartamento("SECADM");
+
+        Processo processo = new Processo();
+        processo.setId(1L);
+        processo.setTitulo("Processo de benchmark");
+        processo.setProtocolo("2024/0001");
+
+        Etapa etapa = new Etapa();
+        etapa.setId(id);
+        etapa.setProcesso(processo);
+        etapa.setDeUsuario(usuario);
+        etapa.setParaUsuario(usuario);
+        etapa.setDeDepartamento("SECADM");
+        etapa.setParaDepartamento("SECLEG");
+        etapa.setStatus("Encaminhado");
+        etapa.setObservacao("Encaminho para análise e parecer. Etapa " + id + ".");
+        etapa.setDataEnvio(LocalDateTime.of(2024, 1, 1, 10, 0));
+        return etapa;
+    }
+
+    static List<Etapa> historico(int paginas) {
+        List<Etapa> etapas = new ArrayList<>(paginas);
+        for (long i = 1; i <= paginas; i++) {
+            etapas.add(novaEtapa(i));
+        }
+        return etapas;
+    }
+
+    // Assinatura desenhada típica, normalizada como no cadastro da etapa
+    static AssinaturaImagem assinatura() throws IOException {
+        BufferedImage imagem = new BufferedImage(900, 300, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = imagem.createGraphics();
+        g.setColor(new Color(20, 40, 160));
+        g.setStroke(new BasicStroke(6f));
+        for (int x = 40; x < 860; x += 60) {
+            g.drawLine(x, 220 - (x % 120), x + 60, 80 + (x % 90));
+        }
+        g.dispose();
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(imagem, "png", png);
+        return new AssinaturaService(null).normalizar(
+                "data:image/png;base64," + Base64.getEncoder().encodeToString(png.toByteArray()));
+    }
+}
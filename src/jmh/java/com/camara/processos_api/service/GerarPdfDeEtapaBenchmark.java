@@ -0,0 +1,52 @@
+package com.camara.processos_api.service;
+
+import com.camara.processos_api.model.AssinaturaImagem;
+import com.camara.processos_api.model.Etapa;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renderização de uma página de despacho (gerarPdfDeEtapa) nas três formas de assinatura.
+ * Throughput + SampleTime (percentis de latência); rode com -prof gc para a taxa de alocação.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GerarPdfDeEtapaBenchmark {
+
+    @Param({"SEM_ASSINATURA", "ASSINATURA_IMAGEM", "ASSINATURA_TEXTO"})
+    public String assinatura;
+
+    private PdfGenerationService pdfService;
+    private Etapa etapa;
+    private AssinaturaImagem imagem;
+    private boolean usarAssinaturaTexto;
+
+    @Setup
+    public void preparar() throws IOException {
+        pdfService = DadosDeBenchmark.novoServico();
+        etapa = DadosDeBenchmark.novaEtapa(1L);
+        imagem = "ASSINATURA_IMAGEM".equals(assinatura) ? DadosDeBenchmark.assinatura() : null;
+        usarAssinaturaTexto = "ASSINATURA_TEXTO".equals(assinatura);
+    }
+
+    @Benchmark
+    public byte[] gerarPdfDeEtapa() throws IOException {
+        return pdfService.gerarPdfDeEtapa(etapa, imagem, usarAssinaturaTexto);
+    }
+}
@@ -0,0 +1,178 @@
+package com.camara.processos_api.service;
+
+import com.camara.processos_api.config.ZipConfig;
+import com.camara.processos_api.model.Arquivo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * ZIP dos anexos de um processo típico (PDFs e fotos já comprimidos + textos, CSV e DOC legados):
+ * implementação anterior (java.util.zip, deflate em tudo, uma thread) x ZipService por tipo com 1 e N threads.
+ * O throughput sai em ZIPs por segundo (34 MB de anexos cada); o CPU por MB (todas as threads do processo, aquecimento
+ * incluso) é impresso ao fim de cada trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class ZipBenchmark {
+
+    @Param({"referencia", "porTipo1Thread", "porTipoParalelo"})
+    public String implementacao;
+
+    private Path diretorio;
+    private List<Arquivo> arquivos;
+    private long bytesPorZip;
+    private ZipService zipService;
+
+    private long cpuInicial;
+    private long bytesProcessados;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        diretorio = Files.createTempDirectory("jmh-zip");
+        arquivos = new ArrayList<>();
+        Random aleatorio = new Random(42);
+        for (int i = 0; i < 4; i++) {
+            adicionar("parecer_" + i + ".pdf", "application/pdf", aleatorio(aleatorio, 4 << 20));
+            adicionar("foto_" + i + ".jpg", "image/jpeg", aleatorio(aleatorio, 2 << 20));
+            adicionar("planilha_" + i + ".csv", "text/csv", texto(aleatorio, 2 << 20));
+        }
+        adicionar("memorando.txt", "text/plain", texto(aleatorio, 1 << 20));
+        adicionar("oficio.doc", "application/msword", texto(aleatorio, 1 << 20));
+
+        if (!"referencia".equals(implementacao)) {
+            ZipConfig config = new ZipConfig();
+            config.setThreads("porTipo1Thread".equals(implementacao) ? 1 : Runtime.getRuntime().availableProcessors());
+            zipService = new ZipService(config);
+            zipService.iniciarCompressores();
+        }
+        cpuInicial = cpuDoProcesso();
+        bytesProcessados = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void limpar() throws IOException {
+        double mb = bytesProcessados / (1024.0 * 1024.0);
+        double cpuMs = (cpuDoProcesso() - cpuInicial) / 1_000_000.0;
+        System.out.printf("%n[INFO] %s: %.1f ms de CPU por MB de anexos (%.0f MB processados)%n",
+                implementacao, cpuMs / mb, mb);
+        if (zipService != null) {
+            zipService.pararCompressores();
+        }
+        try (Stream<Path> caminhos = Files.walk(diretorio)) {
+            caminhos.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    // Uma operação = um ZIP com todos os anexos
+    @Benchmark
+    public long gerarZip() throws IOException {
+        ContadorDeBytes saida = new ContadorDeBytes();
+        if (zipService == null) {
+            zipReferencia(saida);
+        } else {
+            zipService.escreverZip(arquivos, saida);
+        }
+        bytesProcessados += bytesPorZip;
+        return saida.total;
+    }
+
+    // Versão anterior do ZipService.escreverZip: ZipOutputStream com o nível padrão em todas as entradas
+    private void zipReferencia(OutputStream saida) throws IOException {
+        ZipOutputStream zos = new ZipOutputStream(new BufferedOutputStream(saida, 64 * 1024));
+        byte[] buffer = new byte[64 * 1024];
+        for (Arquivo arquivo : arquivos) {
+            zos.putNextEntry(new ZipEntry(arquivo.getNomeArquivo()));
+            try (FileInputStream fis = new FileInputStream(arquivo.getCaminhoArquivo())) {
+                int len;
+                while ((len = fis.read(buffer)) > 0) {
+                    zos.write(buffer, 0, len);
+                }
+            }
+            zos.closeEntry();
+        }
+        zos.finish();
+        zos.flush();
+    }
+
+    private void adicionar(String nome, String tipo, byte[] conteudo) throws IOException {
+        Path caminho = diretorio.resolve(nome);
+        Files.write(caminho, conteudo);
+        Arquivo arquivo = new Arquivo();
+        arquivo.setNomeArquivo(nome);
+        arquivo.setCaminhoArquivo(caminho.toString());
+        arquivo.setTipo(tipo);
+        arquivos.add(arquivo);
+        bytesPorZip += conteudo.length;
+    }
+
+    // Conteúdo já comprimido (PDF com streams deflate, JPEG): deflate não reduz
+    private static byte[] aleatorio(Random aleatorio, int tamanho) {
+        byte[] conteudo = new byte[tamanho];
+        aleatorio.nextBytes(conteudo);
+        return conteudo;
+    }
+
+    // Texto com vocabulário repetitivo, como planilhas e ofícios
+    private static byte[] texto(Random aleatorio, int tamanho) {
+        String[] palavras = {"processo", "despacho", "secretaria", "encaminho", "parecer", "2024", "anexo",
+                "legislativo", "protocolo", "análise", "câmara", "departamento", ";", "\n"};
+        StringBuilder sb = new StringBuilder(tamanho);
+        while (sb.length() < tamanho) {
+            sb.append(palavras[aleatorio.nextInt(palavras.length)]).append(' ');
+        }
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        return Arrays.copyOf(bytes, tamanho);
+    }
+
+    private static long cpuDoProcesso() {
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+    }
+
+    // Descarta o ZIP (sem I/O de rede/disco na medição), só contando o tamanho
+    private static final class ContadorDeBytes extends OutputStream {
+        long total;
+
+        @Override
+        public void write(int b) {
+            total++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            total += len;
+        }
+    }
+}
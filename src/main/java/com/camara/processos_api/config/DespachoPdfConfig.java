@@ -0,0 +1,126 @@
+package com.camara.processos_api.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "despacho.pdf")
+public class DespachoPdfConfig {
+
+    // true: cada etapa é acrescentada ao despacho_processo_{id}.pdf como atualização incremental
+    // false: modo legado, reconstrói o PDF consolidado copiando todas as páginas a cada etapa
+    private boolean anexacaoIncremental = true;
+
+    // true: o consolidado não é gravado nas etapas; é montado no download a partir das páginas
+    // despacho_etapa_{id}.pdf e mantido em cache até cacheMaxBytes (ignora anexacaoIncremental)
+    private boolean montagemSobDemanda = false;
+    private long cacheMaxBytes = 64L * 1024 * 1024;
+
+    // true: compressão máxima com object streams (xref em stream) e cópia de páginas em smart mode,
+    // que grava uma vez só fontes, logo e assinaturas idênticos
+    private boolean compacto = true;
+    // Registra no log o tamanho de cada PDF gerado
+    private boolean relatorioTamanho = true;
+
+    // Threads do renderizador em segundo plano e tamanho da fila de processos aguardando
+    private int workers = 2;
+    private int capacidadeFila = 100;
+
+    // Tentativas por job antes de marcar o PDF como ERRO
+    private int maxTentativas = 3;
+
+    // Intervalo da varredura que reenfileira jobs pendentes (falhas, fila cheia, reinício da aplicação)
+    private long intervaloVarreduraMs = 30000;
+
+    // Regeneração em lote: processos renderizados ao mesmo tempo e processos por página do cursor
+    private int regeneracaoParalelismo = Runtime.getRuntime().availableProcessors();
+    private int regeneracaoLote = 50;
+
+    public boolean isAnexacaoIncremental() {
+        return anexacaoIncremental;
+    }
+
+    public void setAnexacaoIncremental(boolean anexacaoIncremental) {
+        this.anexacaoIncremental = anexacaoIncremental;
+    }
+
+    public boolean isMontagemSobDemanda() {
+        return montagemSobDemanda;
+    }
+
+    public void setMontagemSobDemanda(boolean montagemSobDemanda) {
+        this.montagemSobDemanda = montagemSobDemanda;
+    }
+
+    public boolean isCompacto() {
+        return compacto;
+    }
+
+    public void setCompacto(boolean compacto) {
+        this.compacto = compacto;
+    }
+
+    public boolean isRelatorioTamanho() {
+        return relatorioTamanho;
+    }
+
+    public void setRelatorioTamanho(boolean relatorioTamanho) {
+        this.relatorioTamanho = relatorioTamanho;
+    }
+
+    public long getCacheMaxBytes() {
+        return cacheMaxBytes;
+    }
+
+    public void setCacheMaxBytes(long cacheMaxBytes) {
+        this.cacheMaxBytes = cacheMaxBytes;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public int getCapacidadeFila() {
+        return capacidadeFila;
+    }
+
+    public void setCapacidadeFila(int capacidadeFila) {
+        this.capacidadeFila = capacidadeFila;
+    }
+
+    public int getMaxTentativas() {
+        return maxTentativas;
+    }
+
+    public void setMaxTentativas(int maxTentativas) {
+        this.maxTentativas = maxTentativas;
+    }
+
+    public long getIntervaloVarreduraMs() {
+        return intervaloVarreduraMs;
+    }
+
+    public void setIntervaloVarreduraMs(long intervaloVarreduraMs) {
+        this.intervaloVarreduraMs = intervaloVarreduraMs;
+    }
+
+    public int getRegeneracaoParalelismo() {
+        return regeneracaoParalelismo;
+    }
+
+    public void setRegeneracaoParalelismo(int regeneracaoParalelismo) {
+        this.regeneracaoParalelismo = regeneracaoParalelismo;
+    }
+
+    public int getRegeneracaoLote() {
+        return regeneracaoLote;
+    }
+
+    public void setRegeneracaoLote(int regeneracaoLote) {
+        this.regeneracaoLote = regeneracaoLote;
+    }
+}
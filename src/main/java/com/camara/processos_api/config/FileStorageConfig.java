@@ -8,6 +8,14 @@ import org.springframework.context.annotation.Configuration;
 public class FileStorageConfig {
     private String uploadDir;
 
+    // true: anexos enviados são gravados uma vez por conteúdo (SHA-256) em {uploadDir}/blobs, com contagem de referências
+    // false: modo legado, {uploadDir}/{processoId}/{nome original}
+    private boolean enderecamentoPorConteudo = true;
+
+    // Blobs sem referências só são apagados depois da carência; a varredura roda a cada intervalo
+    private long carenciaBlobsMinutos = 60;
+    private long intervaloVarreduraBlobsMs = 3600000;
+
     public String getUploadDir() {
         return uploadDir;
     }
@@ -15,4 +23,28 @@ public class FileStorageConfig {
     public void setUploadDir(String uploadDir) {
         this.uploadDir = uploadDir;
     }
-}
\ No newline at end of file
+
+    public boolean isEnderecamentoPorConteudo() {
+        return enderecamentoPorConteudo;
+    }
+
+    public void setEnderecamentoPorConteudo(boolean enderecamentoPorConteudo) {
+        this.enderecamentoPorConteudo = enderecamentoPorConteudo;
+    }
+
+    public long getCarenciaBlobsMinutos() {
+        return carenciaBlobsMinutos;
+    }
+
+    public void setCarenciaBlobsMinutos(long carenciaBlobsMinutos) {
+        this.carenciaBlobsMinutos = carenciaBlobsMinutos;
+    }
+
+    public long getIntervaloVarreduraBlobsMs() {
+        return intervaloVarreduraBlobsMs;
+    }
+
+    public void setIntervaloVarreduraBlobsMs(long intervaloVarreduraBlobsMs) {
+        this.intervaloVarreduraBlobsMs = intervaloVarreduraBlobsMs;
+    }
+}
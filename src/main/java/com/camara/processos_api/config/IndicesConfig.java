@@ -0,0 +1,22 @@
+package com.camara.processos_api.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "processos.indices")
+public class IndicesConfig {
+
+    public enum ModoVerificacao { AVISAR, FALHAR, DESLIGADO }
+
+    // O que fazer na inicialização quando um índice declarado nas entidades não existe no banco
+    private ModoVerificacao verificacao = ModoVerificacao.AVISAR;
+
+    public ModoVerificacao getVerificacao() {
+        return verificacao;
+    }
+
+    public void setVerificacao(ModoVerificacao verificacao) {
+        this.verificacao = verificacao;
+    }
+}
@@ -0,0 +1,48 @@
+package com.camara.processos_api.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "processos.listagem")
+public class ListagemConfig {
+    // Idade a partir da qual o total aproximado é recalculado (em segundo plano)
+    private long contagemTtlSegundos = 60;
+    // Limite de contadores em cache (um por usuário/filtro); ao estourar, saem os menos usados
+    private int contagemMaxEntradas = 10_000;
+    // Recálculos simultâneos e fila de espera; com a fila cheia o recálculo é pulado (fica para a próxima leitura)
+    private int contagemThreads = 2;
+    private int contagemCapacidadeFila = 100;
+
+    public long getContagemTtlSegundos() {
+        return contagemTtlSegundos;
+    }
+
+    public void setContagemTtlSegundos(long contagemTtlSegundos) {
+        this.contagemTtlSegundos = contagemTtlSegundos;
+    }
+
+    public int getContagemMaxEntradas() {
+        return contagemMaxEntradas;
+    }
+
+    public void setContagemMaxEntradas(int contagemMaxEntradas) {
+        this.contagemMaxEntradas = contagemMaxEntradas;
+    }
+
+    public int getContagemThreads() {
+        return contagemThreads;
+    }
+
+    public void setContagemThreads(int contagemThreads) {
+        this.contagemThreads = contagemThreads;
+    }
+
+    public int getContagemCapacidadeFila() {
+        return contagemCapacidadeFila;
+    }
+
+    public void setContagemCapacidadeFila(int contagemCapacidadeFila) {
+        this.contagemCapacidadeFila = contagemCapacidadeFila;
+    }
+}
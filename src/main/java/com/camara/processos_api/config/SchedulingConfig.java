@@ -0,0 +1,10 @@
+package com.camara.processos_api.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Habilita tarefas @Scheduled (ex.: varredura de jobs de PDF pendentes)
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,131 @@
+package com.camara.processos_api.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.metamodel.EntityType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Confere na inicialização se os índices declarados no @Table(indexes) das entidades existem no banco
+ * (com Flyway desligado e ddl-auto=update, um banco antigo pode não ter recebido as migrations).
+ * Um índice conta como presente se algum índice da tabela começa pelas mesmas colunas, na mesma ordem,
+ * qualquer que seja o nome. processos.indices.verificacao: AVISAR (padrão), FALHAR ou DESLIGADO.
+ */
+@Component
+@RequiredArgsConstructor
+public class VerificadorIndices implements ApplicationRunner {
+
+    private final DataSource dataSource;
+    private final EntityManagerFactory entityManagerFactory;
+    private final IndicesConfig indicesConfig;
+
+    record IndiceEsperado(String tabela, String nome, List<String> colunas) {
+        @Override
+        public String toString() {
+            return tabela + "(" + String.join(", ", colunas) + ") [" + nome + "]";
+        }
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws SQLException {
+        IndicesConfig.ModoVerificacao modo = indicesConfig.getVerificacao();
+        if (modo == IndicesConfig.ModoVerificacao.DESLIGADO) {
+            return;
+        }
+
+        List<IndiceEsperado> esperados = indicesEsperados();
+        List<IndiceEsperado> ausentes = ausentes(esperados);
+        if (ausentes.isEmpty()) {
+            System.out.println("[INFO] Verificação de índices: os " + esperados.size() + " índices esperados estão presentes.");
+            return;
+        }
+
+        StringBuilder mensagem = new StringBuilder("Verificação de índices: " + ausentes.size() + " índice(s) esperado(s) ausente(s)"
+                + " (ver src/main/resources/db/migration):");
+        ausentes.forEach(i -> mensagem.append("\n  - ").append(i));
+        if (modo == IndicesConfig.ModoVerificacao.FALHAR) {
+            throw new IllegalStateException(mensagem.toString());
+        }
+        System.err.println("[WARN] " + mensagem);
+    }
+
+    // Índices declarados nas entidades mapeadas, por tabela e nome
+    List<IndiceEsperado> indicesEsperados() {
+        List<IndiceEsperado> esperados = new ArrayList<>();
+        for (EntityType<?> entidade : entityManagerFactory.getMetamodel().getEntities()) {
+            Table tabela = entidade.getJavaType().getAnnotation(Table.class);
+            if (tabela == null) {
+                continue;
+            }
+            for (Index indice : tabela.indexes()) {
+                List<String> colunas = Arrays.stream(indice.columnList().split(","))
+                        .map(c -> c.trim().split("\\s+")[0].toLowerCase(Locale.ROOT))
+                        .toList();
+                esperados.add(new IndiceEsperado(tabela.name().toLowerCase(Locale.ROOT), indice.name(), colunas));
+            }
+        }
+        esperados.sort(Comparator.comparing(IndiceEsperado::tabela).thenComparing(IndiceEsperado::nome));
+        return esperados;
+    }
+
+    List<IndiceEsperado> ausentes(List<IndiceEsperado> esperados) throws SQLException {
+        List<IndiceEsperado> ausentes = new ArrayList<>();
+        Map<String, List<List<String>>> porTabela = new HashMap<>();
+        try (Connection conexao = dataSource.getConnection()) {
+            DatabaseMetaData meta = conexao.getMetaData();
+            for (IndiceEsperado esperado : esperados) {
+                List<List<String>> existentes = porTabela.get(esperado.tabela());
+                if (existentes == null) {
+                    existentes = indicesDaTabela(meta, conexao.getCatalog(), conexao.getSchema(), esperado.tabela());
+                    porTabela.put(esperado.tabela(), existentes);
+                }
+                boolean coberto = existentes.stream().anyMatch(colunas -> colunas.size() >= esperado.colunas().size()
+                        && colunas.subList(0, esperado.colunas().size()).equals(esperado.colunas()));
+                if (!coberto) {
+                    ausentes.add(esperado);
+                }
+            }
+        }
+        return ausentes;
+    }
+
+    // Colunas de cada índice da tabela, em ordem; tenta o nome como está e em maiúsculas (catálogos que não normalizam)
+    private List<List<String>> indicesDaTabela(DatabaseMetaData meta, String catalogo, String schema, String tabela) throws SQLException {
+        Map<String, TreeMap<Short, String>> indices = new HashMap<>();
+        for (String nome : List.of(tabela, tabela.toUpperCase(Locale.ROOT))) {
+            try (ResultSet rs = meta.getIndexInfo(catalogo, schema, nome, false, true)) {
+                while (rs.next()) {
+                    String indice = rs.getString("INDEX_NAME");
+                    String coluna = rs.getString("COLUMN_NAME");
+                    if (indice == null || coluna == null || rs.getShort("TYPE") == DatabaseMetaData.tableIndexStatistic) {
+                        continue;
+                    }
+                    indices.computeIfAbsent(indice, k -> new TreeMap<>())
+                            .put(rs.getShort("ORDINAL_POSITION"), coluna.toLowerCase(Locale.ROOT));
+                }
+            }
+            if (!indices.isEmpty()) {
+                break;
+            }
+        }
+        return indices.values().stream().map(colunas -> (List<String>) new ArrayList<>(colunas.values())).toList();
+    }
+}
@@ -0,0 +1,97 @@
+package com.camara.processos_api.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@ConfigurationProperties(prefix = "processos.zip")
+public class ZipConfig {
+
+    // Threads que comprimem entradas do ZIP dos anexos (compartilhadas por todos os downloads)
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    // Nível do Deflater (1 = mais rápido ... 9 = menor arquivo)
+    private int nivelCompressao = 6;
+
+    // Entradas preparadas à frente da que está sendo escrita: limita o espaço em disco temporário por download
+    private int entradasAdiantadas = 8;
+
+    // Cache em disco dos ZIPs já montados, chaveado pela versão dos anexos; 0 desliga.
+    // Diretório vazio = {file.upload-dir}/.zip-cache
+    private long cacheMaxBytes = 1024L * 1024 * 1024;
+    private String cacheDiretorio = "";
+
+    // Arquivo.tipo (MIME) que já vem comprimido e vai para o ZIP como STORED.
+    // Terminado em "/" ou "." vale como prefixo. DOCX/XLSX/ODT já são ZIPs; DOC/XLS/RTF/TXT/CSV são comprimidos
+    private List<String> tiposSemCompressao = new ArrayList<>(List.of(
+            "application/pdf",
+            "image/jpeg", "image/png", "image/gif", "image/webp", "image/heic",
+            "video/", "audio/",
+            "application/zip", "application/x-zip-compressed", "application/gzip", "application/x-gzip",
+            "application/x-7z-compressed", "application/x-rar-compressed", "application/vnd.rar",
+            "application/vnd.openxmlformats-officedocument.", "application/vnd.oasis.opendocument."));
+
+    // Quando o tipo não foi informado (ou é application/octet-stream), decide pela extensão do nome
+    private List<String> extensoesSemCompressao = new ArrayList<>(List.of(
+            "pdf", "jpg", "jpeg", "png", "gif", "webp", "heic", "mp3", "mp4", "mov",
+            "zip", "rar", "7z", "gz", "docx", "xlsx", "pptx", "odt", "ods", "odp"));
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getNivelCompressao() {
+        return nivelCompressao;
+    }
+
+    public void setNivelCompressao(int nivelCompressao) {
+        this.nivelCompressao = nivelCompressao;
+    }
+
+    public int getEntradasAdiantadas() {
+        return entradasAdiantadas;
+    }
+
+    public void setEntradasAdiantadas(int entradasAdiantadas) {
+        this.entradasAdiantadas = entradasAdiantadas;
+    }
+
+    public long getCacheMaxBytes() {
+        return cacheMaxBytes;
+    }
+
+    public void setCacheMaxBytes(long cacheMaxBytes) {
+        this.cacheMaxBytes = cacheMaxBytes;
+    }
+
+    public String getCacheDiretorio() {
+        return cacheDiretorio;
+    }
+
+    public void setCacheDiretorio(String cacheDiretorio) {
+        this.cacheDiretorio = cacheDiretorio;
+    }
+
+    public List<String> getTiposSemCompressao() {
+        return tiposSemCompressao;
+    }
+
+    public void setTiposSemCompressao(List<String> tiposSemCompressao) {
+        this.tiposSemCompressao = tiposSemCompressao;
+    }
+
+    public List<String> getExtensoesSemCompressao() {
+        return extensoesSemCompressao;
+    }
+
+    public void setExtensoesSemCompressao(List<String> extensoesSemCompressao) {
+        this.extensoesSemCompressao = extensoesSemCompressao;
+    }
+}
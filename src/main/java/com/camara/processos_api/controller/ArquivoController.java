@@ -1,9 +1,12 @@
 package com.camara.processos_api.controller;
 
+import com.camara.processos_api.config.DespachoPdfConfig;
 import com.camara.processos_api.dto.ArquivoResponseDTO;
+import com.camara.processos_api.exception.FileNotFoundException;
 import com.camara.processos_api.model.Arquivo;
 import com.camara.processos_api.service.ArquivoService;
-import com.camara.processos_api.service.FileStorageService;
+import com.camara.processos_api.service.DespachoMontagemService;
+import com.camara.processos_api.service.DownloadArquivoService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
@@ -15,7 +18,11 @@ import org.springframework.http.ContentDisposition;
 import org.springframework.util.MimeTypeUtils;
 import java.nio.charset.StandardCharsets;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
@@ -29,7 +36,9 @@ import jakarta.servlet.http.HttpServletRequest;
 public class ArquivoController {
 
     private final ArquivoService arquivoService;
-    private final FileStorageService fileStorageService; // Para o download
+    private final DespachoMontagemService despachoMontagemService;
+    private final DespachoPdfConfig despachoPdfConfig;
+    private final DownloadArquivoService downloadArquivoService;
 
     // Endpoint que substitui o `processos_tramitacao_upload.php`
     @PostMapping("/processos/{processoId}/arquivos")
@@ -47,6 +56,12 @@ public class ArquivoController {
         return ResponseEntity.noContent().build();
     }
 
+    // Consulta de metadados, usada para acompanhar a geração dos PDFs de despacho (statusRenderizacao)
+    @GetMapping("/arquivos/{arquivoId}")
+    public ResponseEntity<ArquivoResponseDTO> buscarArquivo(@PathVariable Long arquivoId) {
+        return ResponseEntity.ok(arquivoService.buscarDtoPorId(arquivoId));
+    }
+
     // Endpoint para Download
 //    @GetMapping("/arquivos/download/{arquivoId}")
 //    public ResponseEntity<Resource> downloadArquivo(@PathVariable Long arquivoId, HttpServletRequest request) throws IOException {
@@ -75,8 +90,10 @@ public class ArquivoController {
         return ResponseEntity.ok(arquivoSalvo);
     }
 
+    // Sem corpo de retorno: o DownloadArquivoService escreve a resposta inteira (200, 206, 304, 416 ou HEAD)
     @GetMapping({"/download/{arquivoId}", "/arquivos/download/{arquivoId}"})
-    public ResponseEntity<Resource> downloadArquivo(@PathVariable Long arquivoId) {
+    public void downloadArquivo(@PathVariable Long arquivoId,
+                                HttpServletRequest request, HttpServletResponse response) {
         System.out.println("\n--- INICIANDO DOWNLOAD/VISUALIZAÇÃO DO ARQUIVO ID: " + arquivoId + " ---");
         try {
             // Passo 1: Busca no banco
@@ -84,48 +101,59 @@ public class ArquivoController {
             Arquivo arquivo = arquivoService.buscarPorId(arquivoId);
             if (arquivo == null) {
                 System.err.println("[ERRO] ArquivoService.buscarPorId retornou nulo.");
-                return ResponseEntity.notFound().build();
+                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                return;
             }
             System.out.println("[DEBUG] ... Arquivo encontrado. Caminho: " + arquivo.getCaminhoArquivo());
 
-            // Passo 2: Carrega do disco
-            System.out.println("[DEBUG] 2. Carregando o arquivo físico do disco...");
-            Resource resource = fileStorageService.loadFileAsResource(arquivo.getCaminhoArquivo());
-            if (resource == null || !resource.exists()) {
-                System.err.println("[ERRO] FileStorageService não encontrou o recurso no disco.");
-                return ResponseEntity.notFound().build();
-            }
-            System.out.println("[DEBUG] ... Recurso do arquivo carregado. Existe: " + resource.exists());
-
-            // Passo 3: Determina o tipo de mídia
-            System.out.println("[DEBUG] 3. Determinando o MediaType. Tipo salvo no banco: " + arquivo.getTipo());
+            // Passo 2: Determina o tipo de mídia
+            System.out.println("[DEBUG] 2. Determinando o MediaType. Tipo salvo no banco: " + arquivo.getTipo());
             MediaType mediaType = MediaType.parseMediaType(
                     (arquivo.getTipo() != null && !arquivo.getTipo().isBlank()) ? arquivo.getTipo() : "application/octet-stream"
             );
             System.out.println("[DEBUG] ... MediaType definido como: " + mediaType);
 
-            // Passo 4: Cria os cabeçalhos
-            System.out.println("[DEBUG] 4. Criando os cabeçalhos HTTP...");
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(mediaType);
+            // Passo 3: Despacho consolidado montado em memória, no modo sob demanda
+            if (despachoPdfConfig.isMontagemSobDemanda() && arquivo.getNomeArquivo() != null
+                    && arquivo.getNomeArquivo().startsWith("despacho_processo_")) {
+                System.out.println("[DEBUG] 3. Montando o despacho consolidado a partir das páginas das etapas...");
+                byte[] consolidado = despachoMontagemService.obterConsolidado(arquivo.getProcesso().getId());
+                ContentDisposition contentDisposition = ContentDisposition.builder("inline")
+                        .filename(arquivo.getNomeArquivo(), StandardCharsets.UTF_8)
+                        .build();
+                downloadArquivoService.enviar(consolidado, mediaType, contentDisposition, request, response);
+                return;
+            }
 
+            // Passo 3: Arquivo do disco, com ETag/Last-Modified, Range e envio por sendfile
+            System.out.println("[DEBUG] 3. Enviando o arquivo físico do disco...");
+            Path caminho = Paths.get(arquivo.getCaminhoArquivo());
             ContentDisposition contentDisposition = ContentDisposition.builder("inline")
-                    .filename(resource.getFilename(), StandardCharsets.UTF_8)
+                    // Nome original do upload: no armazenamento por conteúdo o arquivo em disco se chama pelo hash
+                    .filename(arquivo.getNomeArquivo() != null ? arquivo.getNomeArquivo() : caminho.getFileName().toString(), StandardCharsets.UTF_8)
                     .build();
-            headers.setContentDisposition(contentDisposition);
-            System.out.println("[DEBUG] ... Cabeçalhos criados.");
-
-            // Passo 5: Retorna a resposta
-            System.out.println("[DEBUG] 5. Enviando resposta 200 OK para o navegador.");
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .body(resource);
-
+            downloadArquivoService.enviar(caminho, arquivo.getHashConteudo(), mediaType, contentDisposition, request, response);
+            System.out.println("[DEBUG] ... Resposta " + response.getStatus() + " enviada para o navegador.");
+
+        } catch (NoSuchFileException e) {
+            System.err.println("[ERRO] Arquivo não encontrado no disco: " + e.getFile());
+            responderErro(response, HttpServletResponse.SC_NOT_FOUND);
+        } catch (FileNotFoundException e) {
+            System.err.println("[ERRO] " + e.getMessage());
+            responderErro(response, HttpServletResponse.SC_NOT_FOUND);
         } catch (Exception e) {
             System.err.println("[ERRO] Uma exceção inesperada ocorreu durante o download!");
             // Imprime o erro completo no console para análise
             e.printStackTrace();
-            return ResponseEntity.internalServerError().build();
+            responderErro(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    // Resposta vazia com o status; se o corpo já começou a sair, só resta interromper o envio
+    private static void responderErro(HttpServletResponse response, int status) {
+        if (!response.isCommitted()) {
+            response.reset();
+            response.setStatus(status);
         }
     }
 
@@ -0,0 +1,33 @@
+package com.camara.processos_api.controller;
+
+import com.camara.processos_api.dto.ReindexacaoBuscaStatusDTO;
+import com.camara.processos_api.service.BuscaProcessoService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@Tag(name = "Administração da busca", description = "Reconstrução do índice da busca textual")
+@RestController
+@RequestMapping("/api/admin/busca/reindexacao")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+public class BuscaAdminController {
+
+    private final BuscaProcessoService buscaProcessoService;
+
+    @Operation(summary = "Reconstrói em segundo plano o índice da busca de todos os processos")
+    @PostMapping
+    public ResponseEntity<ReindexacaoBuscaStatusDTO> iniciar() {
+        return new ResponseEntity<>(buscaProcessoService.reindexar(), HttpStatus.ACCEPTED);
+    }
+
+    @Operation(summary = "Progresso da última reindexação")
+    @GetMapping
+    public ResponseEntity<ReindexacaoBuscaStatusDTO> status() {
+        return ResponseEntity.ok(buscaProcessoService.statusReindexacao());
+    }
+}
@@ -0,0 +1,33 @@
+package com.camara.processos_api.controller;
+
+import com.camara.processos_api.dto.CacheEstatisticasDTO;
+import com.camara.processos_api.service.CacheEntidadesService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@Tag(name = "Administração do cache", description = "Cache de segundo nível do Hibernate")
+@RestController
+@RequestMapping("/api/admin/cache")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+public class CacheAdminController {
+
+    private final CacheEntidadesService cacheEntidadesService;
+
+    @Operation(summary = "Acertos, falhas e inserções do cache de segundo nível e do cache de consultas, por região")
+    @GetMapping
+    public ResponseEntity<CacheEstatisticasDTO> estatisticas() {
+        return ResponseEntity.ok(cacheEntidadesService.estatisticas());
+    }
+
+    @Operation(summary = "Esvazia o cache (ex.: após alterar usuários ou processos direto no banco)")
+    @DeleteMapping
+    public ResponseEntity<Void> esvaziar() {
+        cacheEntidadesService.invalidarTudo();
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -1,9 +1,14 @@
 package com.camara.processos_api.controller;
 
+import com.camara.processos_api.dto.CursorPageDTO;
 import com.camara.processos_api.dto.ProcessoRequestDTO;
 import com.camara.processos_api.dto.ProcessoResponseDTO;
+import com.camara.processos_api.dto.ProcessoResumoDTO;
 import com.camara.processos_api.dto.ProtocoloUpdateRequestDTO;
+import com.camara.processos_api.dto.SliceDTO;
+import com.camara.processos_api.model.Arquivo;
 import com.camara.processos_api.model.Usuario;
+import com.camara.processos_api.service.BuscaProcessoService;
 import com.camara.processos_api.service.ProcessoService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -13,6 +18,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -20,10 +26,11 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 
-import java.io.IOException;
 import java.util.List;
 
 @Tag(name = "Processos", description = "Endpoints para gerenciamento de processos")
@@ -33,6 +40,7 @@ import java.util.List;
 public class ProcessoController {
 
     private final ProcessoService processoService;
+    private final BuscaProcessoService buscaProcessoService;
 
     // --- Leitura ---
     @Operation(summary = "Busca um processo pelo ID")
@@ -91,14 +99,27 @@ public class ProcessoController {
 
 
     @GetMapping("/{processoId}/arquivos/download-zip")
-    public ResponseEntity<byte[]> downloadTodosArquivosComoZip(@PathVariable Long processoId) throws IOException {
-        // Delegar ao service a montagem do ZIP
-        byte[] zipBytes = processoService.gerarZipArquivos(processoId);
+    public ResponseEntity<StreamingResponseBody> downloadTodosArquivosComoZip(@PathVariable Long processoId, WebRequest request) {
+        List<Arquivo> arquivos = processoService.listarArquivosParaZip(processoId);
+
+        // ETag = versão do conjunto de anexos: se nada mudou desde o último download, 304 sem corpo
+        String versao = processoService.versaoZipArquivos(arquivos);
+        String etag = "\"" + versao + "\"";
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
+        // O ZIP é escrito direto na resposta enquanto os anexos são lidos: memória constante e
+        // o cliente recebe os primeiros bytes sem esperar o arquivo inteiro (sem Content-Length, vai em chunks)
+        StreamingResponseBody corpo = saida -> processoService.escreverZipArquivos(processoId, versao, arquivos, saida);
 
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
         headers.setContentDispositionFormData("attachment", "processo_" + processoId + "_anexos.zip");
-        return new ResponseEntity<>(zipBytes, headers, HttpStatus.OK);
+        headers.setETag(etag);
+        // Conteúdo do usuário autenticado: só o navegador guarda, sempre revalidando com If-None-Match
+        headers.setCacheControl(CacheControl.noCache().cachePrivate());
+        return new ResponseEntity<>(corpo, headers, HttpStatus.OK);
     }
 
     // Alias para compatibilidade: redireciona /download-rar -> /download-zip
@@ -133,6 +154,85 @@ public class ProcessoController {
         return ResponseEntity.ok(processos);
     }
 
+    @Operation(summary = "Lista processos sem contagem (Slice): só indica se há próxima página; total aproximado opcional")
+    @GetMapping("/slice")
+    public ResponseEntity<SliceDTO<ProcessoResponseDTO>> listarEmSlice(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String departamentoOrigem,
+            @RequestParam(required = false) String titulo,
+            @RequestParam(required = false, defaultValue = "todos") String filtro,
+            @RequestParam(defaultValue = "false") boolean totalAproximado,
+            @PageableDefault(sort = "dataCriacao", direction = Sort.Direction.DESC) Pageable pageable,
+            Authentication authentication) {
+
+        if (authentication == null || !authentication.isAuthenticated() || !(authentication.getPrincipal() instanceof Usuario)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        Usuario usuarioLogado = (Usuario) authentication.getPrincipal();
+
+        return ResponseEntity.ok(processoService.buscarEmSlice(
+                filtro, usuarioLogado, status, departamentoOrigem, titulo, pageable, totalAproximado
+        ));
+    }
+
+    @Operation(summary = "Busca textual em título, descrição e observações das etapas, ordenada por relevância")
+    @GetMapping("/busca")
+    public ResponseEntity<Page<ProcessoResumoDTO>> buscarPorTexto(
+            @RequestParam String q,
+            @PageableDefault(size = 20) Pageable pageable,
+            Authentication authentication) {
+
+        if (authentication == null || !authentication.isAuthenticated() || !(authentication.getPrincipal() instanceof Usuario)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        return ResponseEntity.ok(buscaProcessoService.buscar(q, pageable));
+    }
+
+    @Operation(summary = "Lista resumida de processos (sem etapas/arquivos; mesmos filtros da listagem)")
+    @GetMapping("/resumo")
+    public ResponseEntity<Page<ProcessoResumoDTO>> listarResumos(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String departamentoOrigem,
+            @RequestParam(required = false) String titulo,
+            @RequestParam(required = false, defaultValue = "todos") String filtro,
+            @PageableDefault(sort = "dataCriacao", direction = Sort.Direction.DESC) Pageable pageable,
+            Authentication authentication) {
+
+        if (authentication == null || !authentication.isAuthenticated() || !(authentication.getPrincipal() instanceof Usuario)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        Usuario usuarioLogado = (Usuario) authentication.getPrincipal();
+
+        return ResponseEntity.ok(processoService.buscarResumos(
+                filtro, usuarioLogado, status, departamentoOrigem, titulo, pageable
+        ));
+    }
+
+    @Operation(summary = "Lista processos por cursor (mesmos filtros; ?cursor= com o proximoCursor da resposta anterior)")
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPageDTO<ProcessoResponseDTO>> listarProcessosPorCursor(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String departamentoOrigem,
+            @RequestParam(required = false) String titulo,
+            @RequestParam(required = false, defaultValue = "todos") String filtro,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false, defaultValue = "20") int tamanho,
+            Authentication authentication) {
+
+        if (authentication == null || !authentication.isAuthenticated() || !(authentication.getPrincipal() instanceof Usuario)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        Usuario usuarioLogado = (Usuario) authentication.getPrincipal();
+
+        return ResponseEntity.ok(processoService.buscarComCursor(
+                filtro, usuarioLogado, status, departamentoOrigem, titulo, cursor, tamanho
+        ));
+    }
+
     // NOVO ENDPOINT para o SECADM atribuir protocolo e encaminhar
     @PatchMapping("/{id}/protocolar")
     @PreAuthorize("hasRole('SECADM')") // Garante a segurança no nível do endpoint
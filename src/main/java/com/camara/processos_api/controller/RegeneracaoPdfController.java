@@ -0,0 +1,33 @@
+package com.camara.processos_api.controller;
+
+import com.camara.processos_api.dto.RegeneracaoPdfStatusDTO;
+import com.camara.processos_api.service.RegeneracaoPdfService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@Tag(name = "Administração de despachos", description = "Regeneração em lote dos PDFs de despacho")
+@RestController
+@RequestMapping("/api/admin/despachos/regeneracao")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+public class RegeneracaoPdfController {
+
+    private final RegeneracaoPdfService regeneracaoPdfService;
+
+    @Operation(summary = "Inicia (ou retoma do último checkpoint) a regeneração de todos os PDFs de despacho")
+    @PostMapping
+    public ResponseEntity<RegeneracaoPdfStatusDTO> iniciar() {
+        return new ResponseEntity<>(regeneracaoPdfService.iniciar(), HttpStatus.ACCEPTED);
+    }
+
+    @Operation(summary = "Progresso da regeneração: processos, páginas, páginas/s e tempo restante estimado")
+    @GetMapping
+    public ResponseEntity<RegeneracaoPdfStatusDTO> status() {
+        return ResponseEntity.ok(regeneracaoPdfService.status());
+    }
+}
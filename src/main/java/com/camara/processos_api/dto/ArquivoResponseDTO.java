@@ -13,6 +13,7 @@ public class ArquivoResponseDTO {
     private Long idProcesso;
     private Long idEtapa;
     private Long paraUsuarioId;
+    private String statusRenderizacao; // PENDENTE, PRONTO ou ERRO (PDFs de despacho gerados em segundo plano)
 
     // Getters/Setters explícitos para MapStruct
     public String getEnviadoPorNome() { return enviadoPorNome; }
@@ -24,4 +25,7 @@ public class ArquivoResponseDTO {
     public Long getIdEtapa() { return idEtapa; }
     public void setIdEtapa(Long idEtapa) { this.idEtapa = idEtapa; }
     public Long getParaUsuarioId() { return paraUsuarioId; }
+
+    public String getStatusRenderizacao() { return statusRenderizacao; }
+    public void setStatusRenderizacao(String statusRenderizacao) { this.statusRenderizacao = statusRenderizacao; }
 }
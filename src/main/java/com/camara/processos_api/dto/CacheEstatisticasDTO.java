@@ -0,0 +1,27 @@
+package com.camara.processos_api.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class CacheEstatisticasDTO {
+    private boolean estatisticasHabilitadas;
+    private long acertos;          // segundo nível (entidades e coleções)
+    private long falhas;
+    private long insercoes;
+    private long acertosConsultas; // cache de consultas
+    private long falhasConsultas;
+    private List<Regiao> regioes = new ArrayList<>();
+
+    @Data
+    public static class Regiao {
+        private String nome;
+        private long acertos;
+        private long falhas;
+        private long insercoes;
+        private long elementos;     // -1 quando o provedor não informa
+        private Double taxaAcerto;  // nula sem nenhum acesso
+    }
+}
@@ -0,0 +1,16 @@
+package com.camara.processos_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+// Página da listagem por cursor: proximoCursor é opaco e só deve ser devolvido como ?cursor=
+@Data
+@AllArgsConstructor
+public class CursorPageDTO<T> {
+    private List<T> conteudo;
+    private int tamanho;
+    private boolean temMais;
+    private String proximoCursor;
+}
@@ -0,0 +1,23 @@
+package com.camara.processos_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// Linha da listagem resumida: preenchida direto pela consulta (projeção por construtor),
+// sem carregar etapas, arquivos nem a descrição do processo
+@Data
+@AllArgsConstructor
+public class ProcessoResumoDTO {
+    private Long id;
+    private String titulo;
+    private String status;
+    private String protocolo;
+    private String departamentoOrigem;
+    private LocalDateTime dataCriacao;
+    private String nomeCriador;
+    private Long responsavelAtualId;
+    private String nomeResponsavelAtual;
+    private long quantidadeArquivos;
+}
@@ -0,0 +1,23 @@
+package com.camara.processos_api.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class RegeneracaoPdfStatusDTO {
+    private Long id;
+    private String status;
+    private boolean emExecucao;
+    private Long ultimoProcessoId;
+    private long processosProcessados;
+    private long processosComErro;
+    private long paginasGeradas;
+    private Long paginasRestantes;    // estimativa: etapas de processos ainda não percorridos
+    private Double paginasPorSegundo; // desta execução (desde o início ou a retomada)
+    private Long etaSegundos;
+    private String erro;
+    private LocalDateTime dataInicio;
+    private LocalDateTime dataAtualizacao;
+    private LocalDateTime dataFim;
+}
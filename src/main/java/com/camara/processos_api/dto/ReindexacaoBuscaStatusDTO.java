@@ -0,0 +1,14 @@
+package com.camara.processos_api.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class ReindexacaoBuscaStatusDTO {
+    private boolean emExecucao;
+    private long processosIndexados;
+    private String erro;
+    private LocalDateTime dataInicio;
+    private LocalDateTime dataFim;
+}
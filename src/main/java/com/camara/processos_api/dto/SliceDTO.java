@@ -0,0 +1,18 @@
+package com.camara.processos_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+// Página sem contagem: só informa se existe a próxima. totalAproximado vem de um contador em cache
+// (pode estar defasado) e é nulo quando não foi pedido ou ainda não foi calculado.
+@Data
+@AllArgsConstructor
+public class SliceDTO<T> {
+    private List<T> conteudo;
+    private int numero;
+    private int tamanho;
+    private boolean temProxima;
+    private Long totalAproximado;
+}
@@ -31,6 +31,11 @@ public class GlobalExceptionHandler {
         return build(HttpStatus.NOT_FOUND, ex.getMessage(), req.getRequestURI());
     }
 
+    @ExceptionHandler(CursorInvalidoException.class)
+    public ResponseEntity<ApiError> handleCursor(CursorInvalidoException ex, HttpServletRequest req) {
+        return build(HttpStatus.BAD_REQUEST, ex.getMessage(), req.getRequestURI());
+    }
+
     @ExceptionHandler(AuthorizationException.class)
     public ResponseEntity<ApiError> handleForbidden(AuthorizationException ex, HttpServletRequest req) {
         return build(HttpStatus.FORBIDDEN, ex.getMessage(), req.getRequestURI());
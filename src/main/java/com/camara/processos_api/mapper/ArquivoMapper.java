@@ -11,5 +11,7 @@ public interface ArquivoMapper {
     @Mapping(source = "enviadoPor.nome", target = "enviadoPorNome")
     @Mapping(source = "processo.id", target = "idProcesso")
     @Mapping(source = "etapa.id", target = "idEtapa")
+    // Anexos enviados pelo usuário não passam pelo renderizador: sempre prontos
+    @Mapping(source = "statusRenderizacao", target = "statusRenderizacao", defaultValue = "PRONTO")
     ArquivoResponseDTO toResponseDTO(Arquivo arquivo);
 }
\ No newline at end of file
@@ -28,5 +28,7 @@ public interface ProcessoMapper {
     @Mapping(target = "departamentoOrigem", ignore = true) // Ignoramos, pois será pego do usuário logado
     @Mapping(target = "etapas", ignore = true)
     @Mapping(target = "arquivos", ignore = true)
+    @Mapping(target = "ultimaEtapaId", ignore = true) // Mantidos pelo serviço na criação e a cada tramitação
+    @Mapping(target = "responsavelAtualId", ignore = true)
     Processo toEntity(ProcessoRequestDTO requestDTO);
 }
\ No newline at end of file
@@ -7,8 +7,18 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "arquivos_processo")
+@Table(name = "arquivos_processo", indexes = {
+        // Consolidado do despacho: findTopByProcessoIdAndTipoAndNomeArquivoStartingWithOrderByIdDesc
+        @Index(name = "idx_arquivos_processo_tipo_nome", columnList = "id_processo, tipo, nome_arquivo"),
+        @Index(name = "idx_arquivos_etapa_nome", columnList = "id_etapa, nome_arquivo")
+})
 public class Arquivo {
+
+    // Situação da geração de PDFs de despacho (nulo em anexos enviados pelo usuário = pronto)
+    public static final String RENDER_PENDENTE = "PENDENTE";
+    public static final String RENDER_PRONTO = "PRONTO";
+    public static final String RENDER_ERRO = "ERRO";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -29,7 +39,7 @@ public class Arquivo {
     @Column(name = "data_envio")
     private LocalDateTime dataEnvio;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "enviado_por")
     private Usuario enviadoPor;
 
@@ -39,6 +49,13 @@ public class Arquivo {
     @JsonIgnore
     private Etapa etapa;
 
+    @Column(name = "status_renderizacao", length = 20)
+    private String statusRenderizacao;
+
+    // SHA-256 do conteúdo (caminhoArquivo aponta para o blob); nulo em PDFs gerados e anexos anteriores ao armazenamento por conteúdo
+    @Column(name = "hash_conteudo", length = 64)
+    private String hashConteudo;
+
     // Getters explícitos para MapStruct
     public Long getId() { return id; }
     public Processo getProcesso() { return processo; }
@@ -48,4 +65,6 @@ public class Arquivo {
     public LocalDateTime getDataEnvio() { return dataEnvio; }
     public Usuario getEnviadoPor() { return enviadoPor; }
     public Etapa getEtapa() { return etapa; }
+    public String getStatusRenderizacao() { return statusRenderizacao; }
+    public String getHashConteudo() { return hashConteudo; }
 }
@@ -0,0 +1,36 @@
+package com.camara.processos_api.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// Assinatura desenhada já normalizada (PNG reduzido para impressão), identificada pelo SHA-256 do conteúdo.
+// Etapas com a mesma assinatura apontam para o mesmo registro.
+@Data
+@Entity
+@Table(name = "assinaturas_imagem")
+public class AssinaturaImagem {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 64)
+    private String hash;
+
+    // SHA-256 do Base64 que originou o registro; nulo nas assinaturas gravadas antes desta coluna
+    @Column(name = "hash_entrada", unique = true, length = 64)
+    private String hashEntrada;
+
+    @Lob
+    @Column(nullable = false, columnDefinition = "MEDIUMBLOB")
+    private byte[] conteudo;
+
+    private int largura;
+
+    private int altura;
+
+    @Column(name = "data_criacao")
+    private LocalDateTime dataCriacao;
+}
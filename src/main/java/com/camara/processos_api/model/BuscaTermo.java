@@ -0,0 +1,41 @@
+package com.camara.processos_api.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+// Índice invertido da busca textual: uma linha por termo normalizado de cada campo indexado.
+// etapaId nulo = termos do título/descrição do processo; preenchido = observação daquela etapa.
+@Data
+@Entity
+@Table(name = "busca_termos", indexes = {
+        @Index(name = "idx_busca_termos_termo", columnList = "termo, id_processo, peso"),
+        @Index(name = "idx_busca_termos_processo", columnList = "id_processo, id_etapa")
+})
+public class BuscaTermo {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 60)
+    private String termo;
+
+    @Column(name = "id_processo", nullable = false)
+    private Long processoId;
+
+    @Column(name = "id_etapa")
+    private Long etapaId;
+
+    // Relevância do termo no campo: peso do campo x ocorrências (limitadas)
+    @Column(nullable = false)
+    private int peso;
+
+    public BuscaTermo() {}
+
+    public BuscaTermo(String termo, Long processoId, Long etapaId, int peso) {
+        this.termo = termo;
+        this.processoId = processoId;
+        this.etapaId = etapaId;
+        this.peso = peso;
+    }
+}
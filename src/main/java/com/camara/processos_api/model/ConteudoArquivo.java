@@ -0,0 +1,30 @@
+package com.camara.processos_api.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// Conteúdo de anexo gravado uma única vez, endereçado pelo SHA-256 ({file.upload-dir}/blobs/ab/cd/{hash}).
+// referencias = linhas de arquivos_processo que apontam para ele; com zero referências por mais que a
+// carência, a varredura do ConteudoArquivoService apaga a linha e o blob.
+@Data
+@Entity
+@Table(name = "conteudos_arquivo", indexes = {
+        @Index(name = "idx_conteudos_referencias_atualizado", columnList = "referencias, atualizado_em")
+})
+public class ConteudoArquivo {
+
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    @Column(nullable = false)
+    private long tamanho;
+
+    @Column(nullable = false)
+    private int referencias;
+
+    @Column(name = "atualizado_em", nullable = false)
+    private LocalDateTime atualizadoEm;
+}
@@ -4,14 +4,37 @@ package com.camara.processos_api.model;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "etapas_processo")
+@Table(name = "etapas_processo", indexes = {
+        // Etapas de um processo em ordem de registro (histórico, páginas do despacho, última etapa)
+        @Index(name = "idx_etapas_processo_id", columnList = "id_processo, id"),
+        @Index(name = "idx_etapas_processo_data_envio", columnList = "id_processo, data_envio"),
+        @Index(name = "idx_etapas_para_usuario", columnList = "para_usuario"),
+        @Index(name = "idx_etapas_de_usuario", columnList = "de_usuario")
+})
+@Cacheable
+// Etapa não muda depois de encaminhada: leitura quase exclusiva, sem trava no cache
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "etapas")
+@NamedEntityGraph(name = Etapa.GRAFO_HISTORICO, attributeNodes = {
+        @NamedAttributeNode("deUsuario"), @NamedAttributeNode("paraUsuario")
+})
+@NamedEntityGraph(name = Etapa.GRAFO_RENDERIZACAO, attributeNodes = {
+        @NamedAttributeNode("processo"), @NamedAttributeNode("assinaturaImagem"),
+        @NamedAttributeNode("deUsuario"), @NamedAttributeNode("paraUsuario")
+})
 public class Etapa {
 
+    // Histórico de etapas: remetente e destinatário
+    public static final String GRAFO_HISTORICO = "Etapa.historico";
+    // Renderização do PDF (roda fora de transação): tudo que o PdfGenerationService lê
+    public static final String GRAFO_RENDERIZACAO = "Etapa.renderizacao";
+
     @Id
     @GeneratedValue(strategy = jakarta.persistence.GenerationType.IDENTITY)
     private Long id;
@@ -21,11 +44,11 @@ public class Etapa {
     @JsonIgnore
     private Processo processo;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "de_usuario")
     private Usuario deUsuario;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "para_usuario")
     private Usuario paraUsuario;
 
@@ -48,6 +71,16 @@ public class Etapa {
     @Column(name = "data_envio")
     private LocalDateTime dataEnvio;
 
+    // Assinatura desenhada normalizada (compartilhada entre etapas com a mesma imagem)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "id_assinatura_imagem")
+    @JsonIgnore
+    private AssinaturaImagem assinaturaImagem;
+
+    // Bloco de assinatura padronizado em texto (guardado para poder regenerar o PDF depois)
+    @Column(name = "usar_assinatura_texto")
+    private Boolean usarAssinaturaTexto;
+
     // Getters explícitos para MapStruct
     public Long getId() { return id; }
     public Processo getProcesso() { return processo; }
@@ -59,4 +92,6 @@ public class Etapa {
     public String getObservacao() { return observacao; }
     public String getAssinatura() { return assinatura; }
     public LocalDateTime getDataEnvio() { return dataEnvio; }
+    public AssinaturaImagem getAssinaturaImagem() { return assinaturaImagem; }
+    public Boolean getUsarAssinaturaTexto() { return usarAssinaturaTexto; }
 }
@@ -0,0 +1,44 @@
+package com.camara.processos_api.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// Por onde cada processo já passou: uma linha por (usuário, processo), mantida pelo EtapaService a
+// cada encaminhamento. data_criacao_processo é copiada do processo para que "meus enviados" e
+// "já passou por mim" sejam varreduras de índice já na ordem da listagem.
+@Data
+@Entity
+@Table(name = "participacoes_processo",
+        uniqueConstraints = @UniqueConstraint(name = "uk_participacoes_usuario_processo", columnNames = {"id_usuario", "id_processo"}),
+        indexes = {
+                @Index(name = "idx_participacoes_usuario_papel_data", columnList = "id_usuario, papel, data_criacao_processo, id_processo"),
+                @Index(name = "idx_participacoes_usuario_data", columnList = "id_usuario, data_criacao_processo, id_processo"),
+                @Index(name = "idx_participacoes_processo", columnList = "id_processo")
+        })
+public class ParticipacaoProcesso {
+
+    // REMETENTE: o usuário já encaminhou o processo ao menos uma vez; DESTINATARIO: só o recebeu
+    public static final String PAPEL_REMETENTE = "REMETENTE";
+    public static final String PAPEL_DESTINATARIO = "DESTINATARIO";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "id_usuario", nullable = false)
+    private Long usuarioId;
+
+    @Column(name = "id_processo", nullable = false)
+    private Long processoId;
+
+    @Column(nullable = false, length = 20)
+    private String papel;
+
+    @Column(name = "ultima_acao", nullable = false)
+    private LocalDateTime ultimaAcao;
+
+    @Column(name = "data_criacao_processo")
+    private LocalDateTime dataCriacaoProcesso;
+}
@@ -0,0 +1,60 @@
+package com.camara.processos_api.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// Outbox da renderização de PDFs de despacho: gravado na mesma transação da etapa e
+// consumido em segundo plano pelo DespachoRenderService
+@Data
+@Entity
+@Table(name = "pdf_render_jobs", indexes = {
+        @Index(name = "idx_pdf_render_jobs_status_processo", columnList = "status, id_processo")
+})
+public class PdfRenderJob {
+
+    public static final String STATUS_PENDENTE = "PENDENTE";
+    public static final String STATUS_CONCLUIDO = "CONCLUIDO";
+    public static final String STATUS_ERRO = "ERRO";
+
+    // PAGINA: renderiza a etapa; CARIMBO: carimba o protocolo nas páginas que ainda não o exibem
+    public static final String TIPO_PAGINA = "PAGINA";
+    public static final String TIPO_CARIMBO = "CARIMBO";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "id_processo", nullable = false)
+    private Long processoId;
+
+    @Column(nullable = false, length = 20)
+    private String tipo = TIPO_PAGINA;
+
+    // No carimbo, a etapa mais recente quando o protocolo foi atribuído
+    @Column(name = "id_etapa", nullable = false)
+    private Long etapaId;
+
+    @Column(name = "usar_assinatura_texto", nullable = false)
+    private boolean usarAssinaturaTexto;
+
+    // false quando a etapa só acrescenta página ao consolidado (ex.: etapa com anexos)
+    @Column(name = "gerar_pdf_etapa", nullable = false)
+    private boolean gerarPdfEtapa;
+
+    @Column(nullable = false, length = 20)
+    private String status = STATUS_PENDENTE;
+
+    @Column(nullable = false)
+    private int tentativas;
+
+    @Column(length = 1000)
+    private String erro;
+
+    @Column(name = "data_criacao")
+    private LocalDateTime dataCriacao;
+
+    @Column(name = "data_atualizacao")
+    private LocalDateTime dataAtualizacao;
+}
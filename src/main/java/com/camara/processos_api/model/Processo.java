@@ -3,8 +3,8 @@ package com.camara.processos_api.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
-import org.hibernate.annotations.Fetch;
-import org.hibernate.annotations.FetchMode;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import jakarta.persistence.OrderBy;
 
 import java.time.LocalDateTime;
@@ -13,9 +13,47 @@ import java.util.List;
 
 @Data
 @Entity
-@Table(name = "processos_tramitacao")
+@Table(name = "processos_tramitacao", indexes = {
+        @Index(name = "idx_processos_responsavel_atual", columnList = "responsavel_atual_id, data_criacao"),
+        @Index(name = "idx_processos_ultima_etapa", columnList = "ultima_etapa_id"),
+        @Index(name = "idx_processos_data_criacao", columnList = "data_criacao, id"),
+        // Filtros da listagem "todos", na ordem padrão (data_criacao DESC)
+        @Index(name = "idx_processos_status_data", columnList = "status, data_criacao"),
+        @Index(name = "idx_processos_departamento_data", columnList = "departamento_origem, data_criacao")
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "processos")
+// Planos de carga por caso de uso (aplicados nos métodos do ProcessoRepository). Etapas e arquivos são
+// duas bags: vão em consultas separadas, nunca no mesmo join.
+@NamedEntityGraph(name = Processo.GRAFO_LINHA, attributeNodes = @NamedAttributeNode("criadoPor"))
+@NamedEntityGraph(name = Processo.GRAFO_DETALHE,
+        attributeNodes = {
+                @NamedAttributeNode("criadoPor"),
+                @NamedAttributeNode(value = "etapas", subgraph = "etapa-usuarios")
+        },
+        subgraphs = @NamedSubgraph(name = "etapa-usuarios", attributeNodes = {
+                @NamedAttributeNode("deUsuario"), @NamedAttributeNode("paraUsuario")
+        }))
+@NamedEntityGraph(name = Processo.GRAFO_ETAPAS,
+        attributeNodes = @NamedAttributeNode(value = "etapas", subgraph = "etapa-usuarios"),
+        subgraphs = @NamedSubgraph(name = "etapa-usuarios", attributeNodes = {
+                @NamedAttributeNode("deUsuario"), @NamedAttributeNode("paraUsuario")
+        }))
+@NamedEntityGraph(name = Processo.GRAFO_ARQUIVOS,
+        attributeNodes = @NamedAttributeNode(value = "arquivos", subgraph = "arquivo-remetente"),
+        subgraphs = @NamedSubgraph(name = "arquivo-remetente", attributeNodes = @NamedAttributeNode("enviadoPor")))
+@NamedEntityGraph(name = Processo.GRAFO_ZIP, attributeNodes = @NamedAttributeNode("arquivos"))
 public class Processo {
 
+    // Linha de listagem: só o criador (as coleções da página vêm com GRAFO_ETAPAS e GRAFO_ARQUIVOS)
+    public static final String GRAFO_LINHA = "Processo.linha";
+    // GET /{id}: criador e etapas com remetente/destinatário
+    public static final String GRAFO_DETALHE = "Processo.detalhe";
+    public static final String GRAFO_ETAPAS = "Processo.etapas";
+    public static final String GRAFO_ARQUIVOS = "Processo.arquivos";
+    // Exportação em ZIP: só os arquivos (caminho e nome)
+    public static final String GRAFO_ZIP = "Processo.zip";
+
     @Id
     @GeneratedValue(strategy = jakarta.persistence.GenerationType.IDENTITY)
     private Long id;
@@ -36,17 +74,25 @@ public class Processo {
     @Column(name = "protocolo")
     private String protocolo;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "criado_por")
     private Usuario criadoPor;
 
+    // Etapa mais recente e seu destinatário, mantidos pelo EtapaService a cada encaminhamento
+    // (evita procurar a última etapa nas consultas de caixa de entrada e de autorização)
+    @Column(name = "ultima_etapa_id")
+    private Long ultimaEtapaId;
+
+    @Column(name = "responsavel_atual_id")
+    private Long responsavelAtualId;
+
     @OneToMany(mappedBy = "processo", cascade = CascadeType.ALL, orphanRemoval = true)
     @OrderBy("id DESC")
-    @Fetch(FetchMode.SUBSELECT)
+    // Invalidada explicitamente (CacheEntidadesService) quando uma etapa é criada pelo lado filho
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "processos-etapas")
     private List<Etapa> etapas = new ArrayList<>();
 
     @OneToMany(mappedBy = "processo", cascade = CascadeType.ALL, orphanRemoval = true)
-    @Fetch(FetchMode.SUBSELECT)
     private List<Arquivo> arquivos = new ArrayList<>();
 
     // Getters explícitos para MapStruct
@@ -58,6 +104,8 @@ public class Processo {
     public LocalDateTime getDataCriacao() { return dataCriacao; }
     public String getProtocolo() { return protocolo; }
     public Usuario getCriadoPor() { return criadoPor; }
+    public Long getUltimaEtapaId() { return ultimaEtapaId; }
+    public Long getResponsavelAtualId() { return responsavelAtualId; }
     public java.util.List<Etapa> getEtapas() { return etapas; }
     public java.util.List<Arquivo> getArquivos() { return arquivos; }
 }
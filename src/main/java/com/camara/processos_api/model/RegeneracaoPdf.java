@@ -0,0 +1,49 @@
+package com.camara.processos_api.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// Execução da regeneração em lote dos PDFs de despacho. ultimoProcessoId é o checkpoint do cursor:
+// uma execução não concluída é retomada a partir dele.
+@Data
+@Entity
+@Table(name = "regeneracoes_pdf")
+public class RegeneracaoPdf {
+
+    public static final String STATUS_EM_ANDAMENTO = "EM_ANDAMENTO";
+    public static final String STATUS_CONCLUIDA = "CONCLUIDA";
+    public static final String STATUS_FALHOU = "FALHOU";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 20)
+    private String status = STATUS_EM_ANDAMENTO;
+
+    @Column(name = "ultimo_processo_id", nullable = false)
+    private Long ultimoProcessoId = 0L;
+
+    @Column(name = "processos_processados", nullable = false)
+    private long processosProcessados;
+
+    @Column(name = "processos_com_erro", nullable = false)
+    private long processosComErro;
+
+    @Column(name = "paginas_geradas", nullable = false)
+    private long paginasGeradas;
+
+    @Column(length = 1000)
+    private String erro;
+
+    @Column(name = "data_inicio")
+    private LocalDateTime dataInicio;
+
+    @Column(name = "data_atualizacao")
+    private LocalDateTime dataAtualizacao;
+
+    @Column(name = "data_fim")
+    private LocalDateTime dataFim;
+}
@@ -1,9 +1,15 @@
 package com.camara.processos_api.repository;
 
 import com.camara.processos_api.model.Arquivo;
+import jakarta.transaction.Transactional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -14,4 +20,28 @@ public interface ArquivoRepository  extends JpaRepository<Arquivo, Long> {
     Optional<Arquivo> findTopByProcessoIdAndTipoAndNomeArquivoStartingWithOrderByIdDesc(
             Long processoId, String tipo, String prefixoNome
     );
+
+    // PDFs de despacho (por etapa e consolidado) de um lote de processos
+    @Query("SELECT a FROM Arquivo a WHERE a.processo.id IN :processoIds AND a.tipo = 'application/pdf' " +
+           "AND a.nomeArquivo LIKE 'despacho%'")
+    List<Arquivo> findDespachosByProcessoIds(@Param("processoIds") Collection<Long> processoIds);
+
+    Optional<Arquivo> findFirstByEtapaIdAndNomeArquivo(Long etapaId, String nomeArquivo);
+
+    // Um item por anexo (com repetição): cada linha é uma referência ao blob
+    @Query("SELECT a.hashConteudo FROM Arquivo a WHERE a.processo.id = :processoId AND a.hashConteudo IS NOT NULL")
+    List<String> findHashesConteudoByProcessoId(@Param("processoId") Long processoId);
+
+    // Atualiza só o status, sem sobrescrever o restante do registro (usado pelo renderizador em segundo plano)
+    @Modifying
+    @Transactional
+    @Query("UPDATE Arquivo a SET a.statusRenderizacao = :status WHERE a.id = :id")
+    int atualizarStatusRenderizacao(@Param("id") Long id, @Param("status") String status);
+
+    // Consolidado: só muda o status se o registro ainda aponta para a etapa renderizada
+    // (se outra etapa já foi registrada, continua PENDENTE até o job dela terminar)
+    @Modifying
+    @Transactional
+    @Query("UPDATE Arquivo a SET a.statusRenderizacao = :status WHERE a.id = :id AND a.etapa.id = :etapaId")
+    int atualizarStatusRenderizacaoSeEtapa(@Param("id") Long id, @Param("etapaId") Long etapaId, @Param("status") String status);
 }
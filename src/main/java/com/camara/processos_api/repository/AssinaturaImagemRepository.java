@@ -0,0 +1,16 @@
+package com.camara.processos_api.repository;
+
+import com.camara.processos_api.model.AssinaturaImagem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface AssinaturaImagemRepository extends JpaRepository<AssinaturaImagem, Long> {
+
+    Optional<AssinaturaImagem> findByHash(String hash);
+
+    // Assinatura já recebida exatamente com este Base64 (evita decodificar a mesma imagem de novo)
+    Optional<AssinaturaImagem> findByHashEntrada(String hashEntrada);
+}
@@ -0,0 +1,35 @@
+package com.camara.processos_api.repository;
+
+import com.camara.processos_api.model.BuscaTermo;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+
+@Repository
+public interface BuscaTermoRepository extends JpaRepository<BuscaTermo, Long> {
+
+    // Processos que contêm TODOS os termos, do mais relevante para o menos relevante.
+    // Só lê o índice (termo, id_processo, peso): o custo depende das listas dos termos, não do tamanho da tabela.
+    @Query(value = "SELECT t.id_processo FROM busca_termos t WHERE t.termo IN (:termos) " +
+                   "GROUP BY t.id_processo HAVING COUNT(DISTINCT t.termo) = :quantidade " +
+                   "ORDER BY SUM(t.peso) DESC, t.id_processo DESC",
+           countQuery = "SELECT COUNT(*) FROM (SELECT t.id_processo FROM busca_termos t WHERE t.termo IN (:termos) " +
+                        "GROUP BY t.id_processo HAVING COUNT(DISTINCT t.termo) = :quantidade) r",
+           nativeQuery = true)
+    Page<Long> buscarProcessoIds(@Param("termos") Collection<String> termos,
+                                 @Param("quantidade") long quantidade, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM BuscaTermo t WHERE t.processoId = :processoId AND t.etapaId IS NULL")
+    int deleteCamposDoProcesso(@Param("processoId") Long processoId);
+
+    @Modifying
+    @Query("DELETE FROM BuscaTermo t WHERE t.processoId IN :processoIds")
+    int deleteByProcessoIds(@Param("processoIds") Collection<Long> processoIds);
+}
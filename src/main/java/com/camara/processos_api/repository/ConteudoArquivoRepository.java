@@ -0,0 +1,32 @@
+package com.camara.processos_api.repository;
+
+import com.camara.processos_api.model.ConteudoArquivo;
+import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ConteudoArquivoRepository extends JpaRepository<ConteudoArquivo, String>, ConteudoArquivoRepositoryCustom {
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ConteudoArquivo c SET c.referencias = c.referencias - 1, c.atualizadoEm = :agora " +
+           "WHERE c.hash = :hash AND c.referencias > 0")
+    int removerReferencia(@Param("hash") String hash, @Param("agora") LocalDateTime agora);
+
+    @Query("SELECT c.hash FROM ConteudoArquivo c WHERE c.referencias = 0 AND c.atualizadoEm < :limite")
+    List<String> findOrfaos(@Param("limite") LocalDateTime limite, Limit limit);
+
+    // Só remove se continuar sem referências: um upload concorrente que reaproveitou o blob vence
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ConteudoArquivo c WHERE c.hash = :hash AND c.referencias = 0 AND c.atualizadoEm < :limite")
+    int deleteSeOrfao(@Param("hash") String hash, @Param("limite") LocalDateTime limite);
+}
@@ -0,0 +1,12 @@
+package com.camara.processos_api.repository;
+
+import java.time.LocalDateTime;
+
+// Upserts nativos de conteudos_arquivo, executados com o espaço de consulta declarado (ver ConteudoArquivoRepositoryImpl)
+public interface ConteudoArquivoRepositoryCustom {
+
+    // Garante a linha do conteúdo (0 referências se nova) e renova atualizado_em, sem mexer na contagem
+    void registrarConteudo(String hash, long tamanho, LocalDateTime agora);
+
+    int adicionarReferencia(String hash, long tamanho, LocalDateTime agora);
+}
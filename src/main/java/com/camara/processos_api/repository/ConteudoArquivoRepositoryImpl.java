@@ -0,0 +1,50 @@
+package com.camara.processos_api.repository;
+
+import com.camara.processos_api.model.ConteudoArquivo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+import org.hibernate.query.NativeQuery;
+
+import java.time.LocalDateTime;
+
+/**
+ * Upsert em um statement: dois uploads simultâneos do mesmo conteúdo não disputam o INSERT.
+ * SQL nativo sem espaço de consulta faz o Hibernate esvaziar todas as regiões do cache de segundo
+ * nível a cada execução; declarando a entidade, só conteudos_arquivo (que não é cacheada) é afetada.
+ */
+public class ConteudoArquivoRepositoryImpl implements ConteudoArquivoRepositoryCustom {
+
+    private static final String REGISTRAR =
+            "INSERT INTO conteudos_arquivo (hash, tamanho, referencias, atualizado_em) VALUES (:hash, :tamanho, 0, :agora) " +
+            "ON DUPLICATE KEY UPDATE atualizado_em = :agora";
+
+    private static final String ADICIONAR_REFERENCIA =
+            "INSERT INTO conteudos_arquivo (hash, tamanho, referencias, atualizado_em) VALUES (:hash, :tamanho, 1, :agora) " +
+            "ON DUPLICATE KEY UPDATE referencias = referencias + 1, atualizado_em = :agora";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public void registrarConteudo(String hash, long tamanho, LocalDateTime agora) {
+        executar(REGISTRAR, hash, tamanho, agora);
+    }
+
+    @Override
+    @Transactional
+    public int adicionarReferencia(String hash, long tamanho, LocalDateTime agora) {
+        return executar(ADICIONAR_REFERENCIA, hash, tamanho, agora);
+    }
+
+    private int executar(String sql, String hash, long tamanho, LocalDateTime agora) {
+        return entityManager.createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(ConteudoArquivo.class)
+                .setParameter("hash", hash)
+                .setParameter("tamanho", tamanho)
+                .setParameter("agora", agora)
+                .executeUpdate();
+    }
+}
@@ -1,9 +1,13 @@
 package com.camara.processos_api.repository;
 
 import com.camara.processos_api.model.Etapa;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,6 +22,29 @@ public interface EtapaRepository extends JpaRepository<Etapa, Long> {
     // Histórico ordenado por data de envio desc
     List<Etapa> findByProcessoIdOrderByDataEnvioDesc(Long processoId);
 
-    // Histórico por ID desc (compatibilidade)
+    // Histórico por ID desc (compatibilidade), com remetente e destinatário
+    @EntityGraph(Etapa.GRAFO_HISTORICO)
     List<Etapa> findByProcessoIdOrderByIdDesc(Long processoId);
+
+    // IDs das etapas em ordem de registro (páginas do despacho consolidado)
+    @Query("SELECT e.id FROM Etapa e WHERE e.processo.id = :processoId ORDER BY e.id")
+    List<Long> findIdsByProcessoIdOrderById(@Param("processoId") Long processoId);
+
+    // Etapas de um lote de processos, com tudo que a renderização usa (regeneração em lote)
+    @EntityGraph(Etapa.GRAFO_RENDERIZACAO)
+    @Query("SELECT e FROM Etapa e WHERE e.processo.id IN :processoIds ORDER BY e.processo.id, e.id")
+    List<Etapa> findParaRenderizacaoByProcessoIds(@Param("processoIds") Collection<Long> processoIds);
+
+    // Quantidade de etapas (= páginas de despacho) após um ponto do cursor, para estimar o ETA
+    @Query("SELECT COUNT(e) FROM Etapa e WHERE e.processo.id > :ultimoProcessoId")
+    long countByProcessoIdGreaterThan(@Param("ultimoProcessoId") Long ultimoProcessoId);
+
+    // Etapa com processo, assinatura e usuários já carregados, para renderizar o PDF fora de uma transação
+    @EntityGraph(Etapa.GRAFO_RENDERIZACAO)
+    @Query("SELECT e FROM Etapa e WHERE e.id = :id")
+    Optional<Etapa> findByIdComProcesso(@Param("id") Long id);
+
+    // Observações para a reindexação da busca: [id_processo, id_etapa, observacao]
+    @Query("SELECT e.processo.id, e.id, e.observacao FROM Etapa e WHERE e.processo.id IN :processoIds AND e.observacao IS NOT NULL")
+    List<Object[]> findObservacoesByProcessoIds(@Param("processoIds") Collection<Long> processoIds);
 }
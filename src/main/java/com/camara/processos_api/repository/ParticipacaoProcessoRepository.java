@@ -0,0 +1,21 @@
+package com.camara.processos_api.repository;
+
+import com.camara.processos_api.model.ParticipacaoProcesso;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ParticipacaoProcessoRepository extends JpaRepository<ParticipacaoProcesso, Long> {
+
+    List<ParticipacaoProcesso> findByProcessoIdAndUsuarioIdIn(Long processoId, Collection<Long> usuarioIds);
+
+    @Modifying
+    @Query("DELETE FROM ParticipacaoProcesso pp WHERE pp.processoId = :processoId")
+    int deleteByProcessoId(@Param("processoId") Long processoId);
+}
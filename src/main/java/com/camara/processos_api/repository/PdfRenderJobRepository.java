@@ -0,0 +1,32 @@
+package com.camara.processos_api.repository;
+
+import com.camara.processos_api.model.PdfRenderJob;
+import jakarta.transaction.Transactional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PdfRenderJobRepository extends JpaRepository<PdfRenderJob, Long> {
+
+    // Próximo job do processo na ordem em que as etapas foram registradas
+    Optional<PdfRenderJob> findFirstByProcessoIdAndStatusOrderByIdAsc(Long processoId, String status);
+
+    // A regeneração em lote já renderizou até ultimaEtapaId: os jobs pendentes até ela não devem anexar de novo
+    @Modifying
+    @Transactional
+    @Query("UPDATE PdfRenderJob j SET j.status = 'CONCLUIDO', j.dataAtualizacao = :agora " +
+           "WHERE j.processoId = :processoId AND j.status = 'PENDENTE' AND j.etapaId <= :ultimaEtapaId")
+    int concluirPendentesAte(@Param("processoId") Long processoId, @Param("ultimaEtapaId") Long ultimaEtapaId,
+                             @Param("agora") LocalDateTime agora);
+
+    // Processos com jobs aguardando (usado pela varredura periódica)
+    @Query("SELECT DISTINCT j.processoId FROM PdfRenderJob j WHERE j.status = :status")
+    List<Long> findProcessosComStatus(@Param("status") String status);
+}
@@ -1,14 +1,23 @@
 package com.camara.processos_api.repository;
 
+import com.camara.processos_api.dto.ProcessoResumoDTO;
 import com.camara.processos_api.model.Processo;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,33 +29,162 @@ public interface ProcessoRepository extends JpaRepository<Processo, Long>, JpaSp
             "WHERE p.id = :id")
     Optional<Processo> findByIdWithDetails(@Param("id") Long id);
 
+    // Listagem "todos": mesma consulta do JpaSpecificationExecutor, já com o criador de cada linha
+    @Override
+    @EntityGraph(Processo.GRAFO_LINHA)
+    Page<Processo> findAll(Specification<Processo> spec, Pageable pageable);
+
     //NOVO: Query para "Caixa de Entrada" (Para Mim)
-    // Encontra processos onde o usuário :usuarioId é o destinatário da etapa mais recente.
-    @Query(
-            value = "SELECT p.* FROM processos_tramitacao p " +
-                    "INNER JOIN etapas_processo e ON p.id = e.id_processo " +
-                    "WHERE e.para_usuario = :usuarioId AND e.id = (" +
-                    "  SELECT MAX(e2.id) FROM etapas_processo e2 WHERE e2.id_processo = p.id" +
-                    ") ORDER BY p.data_criacao DESC",
-            countQuery = "SELECT count(*) FROM processos_tramitacao p " +
-                    "INNER JOIN etapas_processo e ON p.id = e.id_processo " +
-                    "WHERE e.para_usuario = :usuarioId AND e.id = (" +
-                    "  SELECT MAX(e2.id) FROM etapas_processo e2 WHERE e2.id_processo = p.id" +
-                    ")",
-            nativeQuery = true // Informa ao Spring que esta é uma query SQL nativa
-    )
+    // Processos cujo responsável atual (destinatário da etapa mais recente) é o usuário :usuarioId.
+    // Busca direta no índice (responsavel_atual_id, data_criacao), sem subconsulta por processo.
+    // JPQL (e não SQL nativo) para aceitar o plano de carga da linha de listagem.
+    @EntityGraph(Processo.GRAFO_LINHA)
+    @Query(value = "SELECT p FROM Processo p WHERE p.responsavelAtualId = :usuarioId ORDER BY p.dataCriacao DESC, p.id DESC",
+           countQuery = "SELECT COUNT(p) FROM Processo p WHERE p.responsavelAtualId = :usuarioId")
     Page<Processo> findProcessosParaMim(@Param("usuarioId") Long usuarioId, Pageable pageable);
 
-    // NOVO: Query para "Enviados"
-    // Encontra processos distintos (DISTINCT) que tenham PELO MENOS UMA etapa onde o usuário :usuarioId foi o remetente.
-    @Query("SELECT DISTINCT p FROM Processo p JOIN p.etapas e WHERE e.deUsuario.id = :usuarioId")
+    // Responsável atual do processo (vazio se o processo não existir ou ainda não tiver etapas)
+    @Query("SELECT p.responsavelAtualId FROM Processo p WHERE p.id = :id")
+    Optional<Long> findResponsavelAtualId(@Param("id") Long id);
+
+    // Trava a linha do processo durante o encaminhamento: duas etapas simultâneas não podem
+    // partir do mesmo responsável nem deixar ultima_etapa_id/responsavel_atual_id inconsistentes
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Processo p WHERE p.id = :id")
+    Optional<Processo> findByIdParaAtualizacao(@Param("id") Long id);
+
+    // --- "Meus enviados" e "Já passou por mim": partem de participacoes_processo (uma linha por usuário
+    // e processo, já com a data de criação do processo), sem DISTINCT sobre etapas. A ordem é fixa
+    // (dataCriacao DESC, id DESC), a mesma do índice, como na caixa "para mim".
+    String DE_PARTICIPACOES = "FROM ParticipacaoProcesso pp JOIN Processo p ON p.id = pp.processoId ";
+    String ENVIADOS_POR_MIM = "WHERE pp.usuarioId = :usuarioId AND pp.papel = 'REMETENTE' ";
+    String PASSARAM_POR_MIM = "WHERE pp.usuarioId = :usuarioId ";
+    String APOS_CURSOR_PARTICIPACAO = "AND (:id IS NULL " +
+            "OR (:dataCriacao IS NULL AND pp.dataCriacaoProcesso IS NULL AND pp.processoId < :id) " +
+            "OR (:dataCriacao IS NOT NULL AND (pp.dataCriacaoProcesso < :dataCriacao " +
+            "OR (pp.dataCriacaoProcesso = :dataCriacao AND pp.processoId < :id) OR pp.dataCriacaoProcesso IS NULL))) ";
+    String ORDEM_PARTICIPACOES = "ORDER BY pp.dataCriacaoProcesso DESC, pp.processoId DESC";
+
+    @EntityGraph(Processo.GRAFO_LINHA)
+    @Query(value = "SELECT p " + DE_PARTICIPACOES + ENVIADOS_POR_MIM + ORDEM_PARTICIPACOES,
+           countQuery = "SELECT COUNT(pp) FROM ParticipacaoProcesso pp " + ENVIADOS_POR_MIM)
     Page<Processo> findProcessosEnviadosPorMim(@Param("usuarioId") Long usuarioId, Pageable pageable);
 
-    // Detalhes com ETAPAS (sem arquivos)
-    @Query("SELECT p FROM Processo p LEFT JOIN FETCH p.etapas WHERE p.id = :id")
+    @EntityGraph(Processo.GRAFO_LINHA)
+    @Query(value = "SELECT p " + DE_PARTICIPACOES + PASSARAM_POR_MIM + ORDEM_PARTICIPACOES,
+           countQuery = "SELECT COUNT(pp) FROM ParticipacaoProcesso pp " + PASSARAM_POR_MIM)
+    Page<Processo> findProcessosQuePassaramPorMim(@Param("usuarioId") Long usuarioId, Pageable pageable);
+
+    // --- Paginação por cursor (seek em (dataCriacao, id), sem OFFSET nem count) ---
+    // Com :id nulo a consulta devolve o primeiro bloco. Processos sem data vêm por último (NULL é o
+    // menor valor no DESC): depois de um cursor datado entram todos eles; depois de um cursor sem
+    // data, só os sem data de id menor
+    @EntityGraph(Processo.GRAFO_LINHA)
+    @Query("SELECT p FROM Processo p WHERE p.responsavelAtualId = :usuarioId " +
+           "AND (:id IS NULL " +
+           "OR (:dataCriacao IS NULL AND p.dataCriacao IS NULL AND p.id < :id) " +
+           "OR (:dataCriacao IS NOT NULL AND (p.dataCriacao < :dataCriacao " +
+           "OR (p.dataCriacao = :dataCriacao AND p.id < :id) OR p.dataCriacao IS NULL))) " +
+           "ORDER BY p.dataCriacao DESC, p.id DESC")
+    List<Processo> findParaMimAposCursor(@Param("usuarioId") Long usuarioId, @Param("dataCriacao") LocalDateTime dataCriacao,
+                                         @Param("id") Long id, Limit limite);
+
+    @EntityGraph(Processo.GRAFO_LINHA)
+    @Query("SELECT p " + DE_PARTICIPACOES + ENVIADOS_POR_MIM + APOS_CURSOR_PARTICIPACAO + ORDEM_PARTICIPACOES)
+    List<Processo> findEnviadosPorMimAposCursor(@Param("usuarioId") Long usuarioId, @Param("dataCriacao") LocalDateTime dataCriacao,
+                                                @Param("id") Long id, Limit limite);
+
+    @EntityGraph(Processo.GRAFO_LINHA)
+    @Query("SELECT p " + DE_PARTICIPACOES + PASSARAM_POR_MIM + APOS_CURSOR_PARTICIPACAO + ORDEM_PARTICIPACOES)
+    List<Processo> findPassaramPorMimAposCursor(@Param("usuarioId") Long usuarioId, @Param("dataCriacao") LocalDateTime dataCriacao,
+                                                @Param("id") Long id, Limit limite);
+
+    // --- Listagem resumida (projeção por construtor: uma consulta de dados e uma de contagem) ---
+    String PROJECAO_RESUMO = "SELECT new com.camara.processos_api.dto.ProcessoResumoDTO(" +
+            "p.id, p.titulo, p.status, p.protocolo, p.departamentoOrigem, p.dataCriacao, c.nome, " +
+            "r.id, r.nome, (SELECT COUNT(a) FROM Arquivo a WHERE a.processo = p)) ";
+    String JUNCOES_RESUMO = "LEFT JOIN p.criadoPor c LEFT JOIN Usuario r ON r.id = p.responsavelAtualId ";
+    String SELECT_RESUMO = PROJECAO_RESUMO + "FROM Processo p " + JUNCOES_RESUMO;
+    String FILTROS_RESUMO = "WHERE (:status IS NULL OR p.status = :status) " +
+            "AND (:departamento IS NULL OR p.departamentoOrigem = :departamento) " +
+            "AND (:titulo IS NULL OR LOWER(p.titulo) LIKE :titulo)";
+
+    @Query(value = SELECT_RESUMO + FILTROS_RESUMO,
+           countQuery = "SELECT COUNT(p) FROM Processo p " + FILTROS_RESUMO)
+    Page<ProcessoResumoDTO> findResumos(@Param("status") String status, @Param("departamento") String departamento,
+                                        @Param("titulo") String tituloLike, Pageable pageable);
+
+    @Query(value = SELECT_RESUMO + "WHERE p.responsavelAtualId = :usuarioId",
+           countQuery = "SELECT COUNT(p) FROM Processo p WHERE p.responsavelAtualId = :usuarioId")
+    Page<ProcessoResumoDTO> findResumosParaMim(@Param("usuarioId") Long usuarioId, Pageable pageable);
+
+    @Query(value = PROJECAO_RESUMO + DE_PARTICIPACOES + JUNCOES_RESUMO + ENVIADOS_POR_MIM + ORDEM_PARTICIPACOES,
+           countQuery = "SELECT COUNT(pp) FROM ParticipacaoProcesso pp " + ENVIADOS_POR_MIM)
+    Page<ProcessoResumoDTO> findResumosEnviadosPorMim(@Param("usuarioId") Long usuarioId, Pageable pageable);
+
+    @Query(value = PROJECAO_RESUMO + DE_PARTICIPACOES + JUNCOES_RESUMO + PASSARAM_POR_MIM + ORDEM_PARTICIPACOES,
+           countQuery = "SELECT COUNT(pp) FROM ParticipacaoProcesso pp " + PASSARAM_POR_MIM)
+    Page<ProcessoResumoDTO> findResumosPassaramPorMim(@Param("usuarioId") Long usuarioId, Pageable pageable);
+
+    // --- Modo slice: sem countQuery (o Spring Data busca tamanho + 1 para saber se há próxima) ---
+    @EntityGraph(Processo.GRAFO_LINHA)
+    @Query("SELECT p FROM Processo p " + FILTROS_RESUMO)
+    Slice<Processo> findSliceTodos(@Param("status") String status, @Param("departamento") String departamento,
+                                   @Param("titulo") String tituloLike, Pageable pageable);
+
+    @EntityGraph(Processo.GRAFO_LINHA)
+    @Query("SELECT p FROM Processo p WHERE p.responsavelAtualId = :usuarioId")
+    Slice<Processo> findSliceParaMim(@Param("usuarioId") Long usuarioId, Pageable pageable);
+
+    @EntityGraph(Processo.GRAFO_LINHA)
+    @Query("SELECT p " + DE_PARTICIPACOES + ENVIADOS_POR_MIM + ORDEM_PARTICIPACOES)
+    Slice<Processo> findSliceEnviadosPorMim(@Param("usuarioId") Long usuarioId, Pageable pageable);
+
+    @EntityGraph(Processo.GRAFO_LINHA)
+    @Query("SELECT p " + DE_PARTICIPACOES + PASSARAM_POR_MIM + ORDEM_PARTICIPACOES)
+    Slice<Processo> findSlicePassaramPorMim(@Param("usuarioId") Long usuarioId, Pageable pageable);
+
+    // Contagens do total aproximado (executadas em segundo plano)
+    @Query("SELECT COUNT(p) FROM Processo p " + FILTROS_RESUMO)
+    long contarTodos(@Param("status") String status, @Param("departamento") String departamento,
+                     @Param("titulo") String tituloLike);
+
+    long countByResponsavelAtualId(Long responsavelAtualId);
+
+    @Query("SELECT COUNT(pp) FROM ParticipacaoProcesso pp " + ENVIADOS_POR_MIM)
+    long contarEnviadosPorMim(@Param("usuarioId") Long usuarioId);
+
+    @Query("SELECT COUNT(pp) FROM ParticipacaoProcesso pp " + PASSARAM_POR_MIM)
+    long contarPassaramPorMim(@Param("usuarioId") Long usuarioId);
+
+    @Query(SELECT_RESUMO + "WHERE p.id IN :ids")
+    List<ProcessoResumoDTO> findResumosPorIds(@Param("ids") Collection<Long> ids);
+
+    // Colunas indexadas pela busca textual: [id, titulo, descricao]
+    @Query("SELECT p.id, p.titulo, p.descricao FROM Processo p WHERE p.id IN :ids")
+    List<Object[]> findCamposDeBusca(@Param("ids") Collection<Long> ids);
+
+    // Detalhes: criador e ETAPAS com remetente/destinatário (sem arquivos)
+    @EntityGraph(Processo.GRAFO_DETALHE)
+    @Query("SELECT p FROM Processo p WHERE p.id = :id")
     Optional<Processo> findByIdWithEtapas(@Param("id") Long id);
 
+    // Exportação em ZIP: processo e arquivos em uma consulta, sem etapas nem usuários
+    @EntityGraph(Processo.GRAFO_ZIP)
+    @Query("SELECT p FROM Processo p WHERE p.id = :id")
+    Optional<Processo> findParaZipById(@Param("id") Long id);
+
+    // Cursor por id (keyset): próximos processos após o último já percorrido
+    @Query("SELECT p.id FROM Processo p WHERE p.id > :ultimoId ORDER BY p.id")
+    List<Long> findIdsAposId(@Param("ultimoId") Long ultimoId, Pageable limite);
+
     // Carrega ARQUIVOS para uma lista de processos (merge em cache de persistência)
-    @Query("SELECT DISTINCT p FROM Processo p LEFT JOIN FETCH p.arquivos WHERE p IN :processos")
+    @EntityGraph(Processo.GRAFO_ARQUIVOS)
+    @Query("SELECT p FROM Processo p WHERE p IN :processos")
     List<Processo> findWithArquivos(@Param("processos") List<Processo> processos);
+
+    // Etapas (com remetente e destinatário) dos processos de uma página, em uma única query
+    @EntityGraph(Processo.GRAFO_ETAPAS)
+    @Query("SELECT p FROM Processo p WHERE p IN :processos")
+    List<Processo> findWithEtapas(@Param("processos") List<Processo> processos);
 }
@@ -0,0 +1,13 @@
+package com.camara.processos_api.repository;
+
+import com.camara.processos_api.model.RegeneracaoPdf;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface RegeneracaoPdfRepository extends JpaRepository<RegeneracaoPdf, Long> {
+
+    Optional<RegeneracaoPdf> findFirstByOrderByIdDesc();
+}
@@ -3,7 +3,10 @@ package com.camara.processos_api.repository;
 import com.camara.processos_api.model.Usuario;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -13,6 +16,11 @@ import java.util.Optional;
 @Repository
 
 public interface UsuarioRepository extends JpaRepository<Usuario, Long>, JpaSpecificationExecutor<Usuario> {
+    // Login: resultado no cache de consultas (invalidado a cada escrita na tabela usuario)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "usuarios-consultas")
+    })
     Optional<Usuario> findByMatricula(String matricula);
 
     List<Usuario> findByPerfilIn(List<String> perfis);
@@ -21,7 +29,11 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Long>, JpaSpec
     @Query("select u from Usuario u where lower(trim(u.perfil)) in :perfis")
     List<Usuario> findByPerfilInIgnoreCase(@Param("perfis") List<String> perfisLower);
 
-    // Para obter rapidamente um usuário por perfil específico
+    // Para obter rapidamente um usuário por perfil específico (ex.: "secadm" a cada processo criado)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "usuarios-consultas")
+    })
     Optional<Usuario> findFirstByPerfil(String perfil);
 
     // Busca por matrícula ignorando espaços nas extremidades
@@ -4,6 +4,8 @@ import com.camara.processos_api.model.Processo;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Component;
 
+import java.time.LocalDateTime;
+
 @Component
 public class ProcessoSpecification {
     public static Specification<Processo> comStatus(String status) {
@@ -32,4 +34,22 @@ public class ProcessoSpecification {
             return builder.like(builder.lower(root.get("titulo")), "%" + titulo.toLowerCase() + "%");
         };
     }
-}
\ No newline at end of file
+
+    // Seek da paginação por cursor: processos depois de (dataCriacao, id) na ordem (dataCriacao DESC, id DESC).
+    // Os sem data vêm por último (NULL é o menor valor no DESC), em ordem de id
+    public static Specification<Processo> depoisDoCursor(LocalDateTime dataCriacao, Long id) {
+        return (root, query, builder) -> {
+            if (id == null) {
+                return builder.conjunction();
+            }
+            if (dataCriacao == null) {
+                return builder.and(builder.isNull(root.get("dataCriacao")), builder.lessThan(root.get("id"), id));
+            }
+            return builder.or(
+                    builder.lessThan(root.get("dataCriacao"), dataCriacao),
+                    builder.and(builder.equal(root.get("dataCriacao"), dataCriacao), builder.lessThan(root.get("id"), id)),
+                    builder.isNull(root.get("dataCriacao"))
+            );
+        };
+    }
+}
@@ -29,7 +29,7 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class ArquivoService {
 
-    private final FileStorageService fileStorageService;
+    private final ConteudoArquivoService conteudoArquivoService;
     private final ArquivoRepository arquivoRepository;
     private final ProcessoRepository processoRepository;
     private final UsuarioRepository usuarioRepository;
@@ -38,6 +38,8 @@ public class ArquivoService {
     private final ProcessoMapper processoMapper;
 
     private final ProcessoService processoService;
+    private final CacheEntidadesService cacheEntidadesService;
+    private final ZipCacheService zipCacheService;
 
     @Transactional
     public ArquivoResponseDTO salvarArquivoParaProcesso(MultipartFile file, Long processoId, Long usuarioId) {
@@ -57,18 +59,21 @@ public class ArquivoService {
         Usuario usuario = usuarioRepository.findById(usuarioId)
                 .orElseThrow(() -> new ResourceNotFoundException("Usuário não encontrado"));
 
-        String caminhoArquivo = fileStorageService.storeFile(file, processo.getId());
+        ConteudoArquivoService.ConteudoArmazenado conteudo = conteudoArquivoService.armazenar(file, processo.getId());
 
         Arquivo arquivo = new Arquivo();
         arquivo.setProcesso(processo);
         arquivo.setEtapa(etapa);
         arquivo.setEnviadoPor(usuario);
         arquivo.setNomeArquivo(file.getOriginalFilename());
-        arquivo.setCaminhoArquivo(caminhoArquivo);
+        arquivo.setCaminhoArquivo(conteudo.caminho());
+        arquivo.setHashConteudo(conteudo.hash());
         arquivo.setTipo(file.getContentType());
         arquivo.setDataEnvio(LocalDateTime.now());
 
         Arquivo arquivoSalvo = arquivoRepository.save(arquivo);
+        cacheEntidadesService.invalidarProcessoAposCommit(processo.getId());
+        zipCacheService.invalidar(processo.getId());
         return arquivoMapper.toResponseDTO(arquivoSalvo);
     }
 
@@ -76,8 +81,10 @@ public class ArquivoService {
     public void deletarArquivo(Long arquivoId) {
         Arquivo arquivo = arquivoRepository.findById(arquivoId)
                 .orElseThrow(() -> new FileNotFoundException("Arquivo não encontrado com id: " + arquivoId));
-        fileStorageService.deleteFile(arquivo.getCaminhoArquivo());
+        conteudoArquivoService.liberar(arquivo);
         arquivoRepository.delete(arquivo);
+        cacheEntidadesService.invalidarProcessoAposCommit(arquivo.getProcesso().getId());
+        zipCacheService.invalidar(arquivo.getProcesso().getId());
     }
 
     @Transactional
@@ -86,6 +93,12 @@ public class ArquivoService {
                 .orElseThrow(() -> new FileNotFoundException("Arquivo não encontrado com id: " + arquivoId));
     }
 
+    // Metadados do arquivo (o front consulta statusRenderizacao até o PDF de despacho ficar PRONTO)
+    @Transactional
+    public ArquivoResponseDTO buscarDtoPorId(Long arquivoId) {
+        return arquivoMapper.toResponseDTO(buscarPorId(arquivoId));
+    }
+
     @Transactional
     public ProcessoResponseDTO criarProcessoComArquivo(ProcessoRequestDTO dto, MultipartFile arquivo, Usuario criadoPor) {
         Processo novoProcesso = processoMapper.toEntity(dto);
@@ -95,16 +108,18 @@ public class ArquivoService {
         Processo processoSalvo = processoRepository.save(novoProcesso);
 
         if (arquivo != null && !arquivo.isEmpty()) {
-            String caminhoDoArquivo = fileStorageService.storeFile(arquivo, processoSalvo.getId());
+            ConteudoArquivoService.ConteudoArmazenado conteudo = conteudoArquivoService.armazenar(arquivo, processoSalvo.getId());
             Arquivo novoArquivo = new Arquivo();
             novoArquivo.setProcesso(processoSalvo);
             novoArquivo.setNomeArquivo(arquivo.getOriginalFilename());
-            novoArquivo.setCaminhoArquivo(caminhoDoArquivo);
+            novoArquivo.setCaminhoArquivo(conteudo.caminho());
+            novoArquivo.setHashConteudo(conteudo.hash());
             novoArquivo.setTipo(arquivo.getContentType());
             novoArquivo.setEnviadoPor(criadoPor);
             novoArquivo.setDataEnvio(LocalDateTime.now());
             arquivoRepository.save(novoArquivo);
         }
+        cacheEntidadesService.invalidarProcessoAposCommit(processoSalvo.getId());
         return processoMapper.toResponseDTO(processoSalvo);
     }
 
@@ -119,12 +134,13 @@ public class ArquivoService {
         List<Arquivo> arquivosSalvos = new ArrayList<>();
         for (MultipartFile file : files) {
             if (!file.isEmpty()) {
-                String caminho = fileStorageService.storeFile(file, etapa.getProcesso().getId());
+                ConteudoArquivoService.ConteudoArmazenado conteudo = conteudoArquivoService.armazenar(file, etapa.getProcesso().getId());
                 Arquivo novoArquivo = new Arquivo();
                 novoArquivo.setProcesso(etapa.getProcesso());
                 novoArquivo.setEtapa(etapa); // Associa o arquivo à etapa
                 novoArquivo.setNomeArquivo(file.getOriginalFilename());
-                novoArquivo.setCaminhoArquivo(caminho);
+                novoArquivo.setCaminhoArquivo(conteudo.caminho());
+                novoArquivo.setHashConteudo(conteudo.hash());
                 novoArquivo.setTipo(file.getContentType());
                 novoArquivo.setEnviadoPor(usuarioLogado);
                 novoArquivo.setDataEnvio(LocalDateTime.now());
@@ -132,6 +148,9 @@ public class ArquivoService {
             }
         }
 
+        cacheEntidadesService.invalidarProcessoAposCommit(etapa.getProcesso().getId());
+        zipCacheService.invalidar(etapa.getProcesso().getId());
+
         // Converte a lista de entidades para uma lista de DTOs
         return arquivosSalvos.stream()
                 .map(arquivoMapper::toResponseDTO)
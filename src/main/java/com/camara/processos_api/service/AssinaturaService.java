@@ -0,0 +1,153 @@
+package com.camara.processos_api.service;
+
+import com.camara.processos_api.model.AssinaturaImagem;
+import com.camara.processos_api.repository.AssinaturaImagemRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+
+@Service
+@RequiredArgsConstructor
+public class AssinaturaService {
+
+    // A assinatura é impressa em até 220x110 pt; o dobro em pixels (~150 dpi) basta para impressão
+    static final int LARGURA_MAXIMA = 460;
+    static final int ALTURA_MAXIMA = 230;
+
+    private final AssinaturaImagemRepository assinaturaImagemRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transacaoPropria;
+
+    @PostConstruct
+    void prepararTransacao() {
+        transacaoPropria = new TransactionTemplate(transactionManager);
+        transacaoPropria.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Normaliza a assinatura recebida em Base64 e devolve o registro correspondente, criando-o se
+     * for a primeira vez que essa imagem aparece. A mesma entrada (a assinatura salva no navegador,
+     * reenviada a cada encaminhamento) é reconhecida pelo hash do Base64, sem decodificar a imagem.
+     * @param assinaturaBase64 imagem (PNG/JPEG), com ou sem prefixo "data:image/...;base64,"
+     * @return o registro da assinatura, ou null se não houver imagem ou ela for inválida
+     */
+    @Transactional
+    public AssinaturaImagem registrar(String assinaturaBase64) {
+        String conteudoBase64 = conteudoBase64(assinaturaBase64);
+        if (conteudoBase64 == null) {
+            return null;
+        }
+        String hashEntrada = sha256(conteudoBase64.getBytes(StandardCharsets.US_ASCII));
+        Optional<AssinaturaImagem> jaRecebida = assinaturaImagemRepository.findByHashEntrada(hashEntrada);
+        if (jaRecebida.isPresent()) {
+            return jaRecebida.get();
+        }
+
+        AssinaturaImagem normalizada = normalizar(assinaturaBase64);
+        if (normalizada == null) {
+            return null;
+        }
+        Optional<AssinaturaImagem> existente = assinaturaImagemRepository.findByHash(normalizada.getHash());
+        if (existente.isPresent()) {
+            // Outra entrada com a mesma imagem normalizada (ex.: reenviada em outro formato)
+            return existente.get();
+        }
+        normalizada.setHashEntrada(hashEntrada);
+        // Insert em transação própria: se outra requisição gravou a mesma assinatura entre a busca e
+        // o insert, a violação da chave única não marca a transação da etapa para rollback
+        try {
+            return transacaoPropria.execute(status -> assinaturaImagemRepository.save(normalizada));
+        } catch (DataIntegrityViolationException concorrente) {
+            // Relido também em transação nova, para enxergar o registro que acabou de ser confirmado
+            return transacaoPropria.execute(status -> assinaturaImagemRepository.findByHash(normalizada.getHash()))
+                    .orElseThrow(() -> concorrente);
+        }
+    }
+
+    /**
+     * Decodifica, reduz para a resolução de impressão (sem ampliar) e regrava como PNG,
+     * preservando a transparência. O hash é calculado sobre o PNG normalizado.
+     */
+    AssinaturaImagem normalizar(String assinaturaBase64) {
+        String conteudoBase64 = conteudoBase64(assinaturaBase64);
+        if (conteudoBase64 == null) {
+            return null;
+        }
+        try {
+            BufferedImage original = ImageIO.read(new ByteArrayInputStream(Base64.getDecoder().decode(conteudoBase64)));
+            if (original == null) {
+                System.err.println("[WARN] Assinatura recebida não é uma imagem reconhecida; será ignorada.");
+                return null;
+            }
+
+            double escala = Math.min(1.0, Math.min(
+                    (double) LARGURA_MAXIMA / original.getWidth(),
+                    (double) ALTURA_MAXIMA / original.getHeight()));
+            int largura = Math.max(1, (int) Math.round(original.getWidth() * escala));
+            int altura = Math.max(1, (int) Math.round(original.getHeight() * escala));
+
+            BufferedImage reduzida = new BufferedImage(largura, altura, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = reduzida.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(original, 0, 0, largura, altura, null);
+            } finally {
+                g.dispose();
+            }
+
+            ByteArrayOutputStream png = new ByteArrayOutputStream();
+            ImageIO.write(reduzida, "png", png);
+            byte[] conteudo = png.toByteArray();
+
+            AssinaturaImagem assinatura = new AssinaturaImagem();
+            assinatura.setHash(sha256(conteudo));
+            assinatura.setConteudo(conteudo);
+            assinatura.setLargura(largura);
+            assinatura.setAltura(altura);
+            assinatura.setDataCriacao(LocalDateTime.now());
+            return assinatura;
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println("Erro ao decodificar a imagem da assinatura: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Parte Base64 da entrada, sem o prefixo "data:...;base64," (null se não houver imagem)
+    private static String conteudoBase64(String assinaturaBase64) {
+        if (assinaturaBase64 == null || assinaturaBase64.isBlank()) {
+            return null;
+        }
+        String base64Image = assinaturaBase64.substring(assinaturaBase64.indexOf(',') + 1).trim();
+        return base64Image.isEmpty() ? null : base64Image;
+    }
+
+    private static String sha256(byte[] dados) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(dados));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível na JVM", e);
+        }
+    }
+}
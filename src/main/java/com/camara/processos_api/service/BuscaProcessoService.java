@@ -0,0 +1,172 @@
+package com.camara.processos_api.service;
+
+import com.camara.processos_api.dto.ProcessoResumoDTO;
+import com.camara.processos_api.dto.ReindexacaoBuscaStatusDTO;
+import com.camara.processos_api.model.BuscaTermo;
+import com.camara.processos_api.repository.BuscaTermoRepository;
+import com.camara.processos_api.repository.EtapaRepository;
+import com.camara.processos_api.repository.ProcessoRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Busca textual sobre título, descrição e observações das etapas, apoiada no índice invertido
+ * busca_termos. O índice é mantido na mesma transação das gravações (processo criado/alterado,
+ * etapa criada); a reindexação completa só é necessária para dados anteriores ao índice.
+ */
+@Service
+@RequiredArgsConstructor
+public class BuscaProcessoService {
+
+    // Título pesa mais que descrição, que pesa mais que observações de tramitação
+    private static final int PESO_TITULO = 5;
+    private static final int PESO_DESCRICAO = 2;
+    private static final int PESO_OBSERVACAO = 1;
+    // Repetir a palavra não deve dominar o ranking
+    private static final int OCORRENCIAS_MAXIMAS = 3;
+    private static final int TERMOS_MAXIMOS_CONSULTA = 10;
+    private static final int LOTE_REINDEXACAO = 200;
+
+    private final BuscaTermoRepository buscaTermoRepository;
+    private final ProcessoRepository processoRepository;
+    private final EtapaRepository etapaRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    private final AtomicBoolean reindexando = new AtomicBoolean(false);
+    private final AtomicLong processosReindexados = new AtomicLong();
+    private volatile LocalDateTime inicioReindexacao;
+    private volatile LocalDateTime fimReindexacao;
+    private volatile String erroReindexacao;
+
+    /**
+     * Processos que contêm todas as palavras da consulta (sem acento/maiúsculas e sem stopwords),
+     * ordenados por relevância. Consulta sem nenhum termo útil retorna página vazia.
+     */
+    public Page<ProcessoResumoDTO> buscar(String consulta, Pageable pageable) {
+        List<String> termos = NormalizadorTexto.contarTermos(consulta).keySet().stream()
+                .limit(TERMOS_MAXIMOS_CONSULTA)
+                .toList();
+        Pageable semOrdenacao = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+        if (termos.isEmpty()) {
+            return Page.empty(semOrdenacao);
+        }
+
+        Page<Long> ids = buscaTermoRepository.buscarProcessoIds(termos, termos.size(), semOrdenacao);
+        if (ids.isEmpty()) {
+            return new PageImpl<>(List.of(), semOrdenacao, ids.getTotalElements());
+        }
+        // A projeção volta em ordem arbitrária: reaplica a ordem do ranking
+        Map<Long, ProcessoResumoDTO> porId = processoRepository.findResumosPorIds(ids.getContent()).stream()
+                .collect(Collectors.toMap(ProcessoResumoDTO::getId, Function.identity()));
+        return ids.map(porId::get);
+    }
+
+    // --- Manutenção incremental (chamada dentro da transação de quem grava) ---
+
+    public void indexarProcesso(Long processoId, String titulo, String descricao) {
+        buscaTermoRepository.deleteCamposDoProcesso(processoId);
+        List<BuscaTermo> linhas = new ArrayList<>();
+        adicionarCampos(linhas, processoId, titulo, descricao);
+        buscaTermoRepository.saveAll(linhas);
+    }
+
+    public void indexarEtapa(Long processoId, Long etapaId, String observacao) {
+        List<BuscaTermo> linhas = new ArrayList<>();
+        adicionarTermos(linhas, processoId, etapaId, NormalizadorTexto.contarTermos(observacao), PESO_OBSERVACAO);
+        buscaTermoRepository.saveAll(linhas);
+    }
+
+    public void removerProcesso(Long processoId) {
+        buscaTermoRepository.deleteByProcessoIds(List.of(processoId));
+    }
+
+    // --- Reindexação completa ---
+
+    /** Reconstrói o índice de todos os processos em segundo plano, por lotes de id. */
+    public ReindexacaoBuscaStatusDTO reindexar() {
+        if (!reindexando.compareAndSet(false, true)) {
+            throw new IllegalStateException("Já existe uma reindexação da busca em andamento.");
+        }
+        processosReindexados.set(0);
+        inicioReindexacao = LocalDateTime.now();
+        fimReindexacao = null;
+        erroReindexacao = null;
+        Thread.ofVirtual().name("reindexacao-busca").start(this::executarReindexacao);
+        System.out.println("[INFO] Reindexação da busca iniciada.");
+        return statusReindexacao();
+    }
+
+    public ReindexacaoBuscaStatusDTO statusReindexacao() {
+        ReindexacaoBuscaStatusDTO dto = new ReindexacaoBuscaStatusDTO();
+        dto.setEmExecucao(reindexando.get());
+        dto.setProcessosIndexados(processosReindexados.get());
+        dto.setErro(erroReindexacao);
+        dto.setDataInicio(inicioReindexacao);
+        dto.setDataFim(fimReindexacao);
+        return dto;
+    }
+
+    private void executarReindexacao() {
+        TransactionTemplate transacao = new TransactionTemplate(transactionManager);
+        PageRequest lote = PageRequest.of(0, LOTE_REINDEXACAO);
+        try {
+            Long cursor = 0L;
+            List<Long> processoIds;
+            while (!(processoIds = processoRepository.findIdsAposId(cursor, lote)).isEmpty()) {
+                List<Long> ids = processoIds;
+                transacao.executeWithoutResult(status -> reindexarLote(ids));
+                processosReindexados.addAndGet(ids.size());
+                cursor = ids.get(ids.size() - 1);
+            }
+            System.out.println("[INFO] Reindexação da busca concluída: " + processosReindexados.get() + " processos.");
+        } catch (Exception e) {
+            erroReindexacao = e.getMessage();
+            System.err.println("ERRO na reindexação da busca: " + e.getMessage());
+        } finally {
+            fimReindexacao = LocalDateTime.now();
+            reindexando.set(false);
+        }
+    }
+
+    // Lê só as colunas indexadas do lote (duas consultas) e regrava todas as linhas dele
+    private void reindexarLote(List<Long> processoIds) {
+        buscaTermoRepository.deleteByProcessoIds(processoIds);
+        List<BuscaTermo> linhas = new ArrayList<>();
+        for (Object[] campos : processoRepository.findCamposDeBusca(processoIds)) {
+            adicionarCampos(linhas, (Long) campos[0], (String) campos[1], (String) campos[2]);
+        }
+        for (Object[] etapa : etapaRepository.findObservacoesByProcessoIds(processoIds)) {
+            adicionarTermos(linhas, (Long) etapa[0], (Long) etapa[1],
+                    NormalizadorTexto.contarTermos((String) etapa[2]), PESO_OBSERVACAO);
+        }
+        buscaTermoRepository.saveAll(linhas);
+    }
+
+    // Título e descrição viram um só conjunto de linhas (etapaId nulo), somando os pesos por termo
+    private void adicionarCampos(List<BuscaTermo> linhas, Long processoId, String titulo, String descricao) {
+        Map<String, Integer> pesos = new LinkedHashMap<>();
+        NormalizadorTexto.contarTermos(titulo).forEach((termo, n) -> pesos.merge(termo, PESO_TITULO * Math.min(n, OCORRENCIAS_MAXIMAS), Integer::sum));
+        NormalizadorTexto.contarTermos(descricao).forEach((termo, n) -> pesos.merge(termo, PESO_DESCRICAO * Math.min(n, OCORRENCIAS_MAXIMAS), Integer::sum));
+        pesos.forEach((termo, peso) -> linhas.add(new BuscaTermo(termo, processoId, null, peso)));
+    }
+
+    private void adicionarTermos(List<BuscaTermo> linhas, Long processoId, Long etapaId, Map<String, Integer> termos, int pesoDoCampo) {
+        termos.forEach((termo, n) -> linhas.add(new BuscaTermo(termo, processoId, etapaId, pesoDoCampo * Math.min(n, OCORRENCIAS_MAXIMAS))));
+    }
+}
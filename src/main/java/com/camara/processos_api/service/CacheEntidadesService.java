@@ -0,0 +1,99 @@
+package com.camara.processos_api.service;
+
+import com.camara.processos_api.dto.CacheEstatisticasDTO;
+import com.camara.processos_api.model.Processo;
+import com.camara.processos_api.model.Usuario;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+
+/**
+ * Cache de segundo nível (JCache/Caffeine) de Usuario, Processo e Etapa.
+ * As escritas feitas pela sessão já atualizam as regiões no commit; a invalidação explícita cobre
+ * o que o Hibernate não acompanha, como a coleção Processo.etapas quando a etapa é salva pelo lado
+ * filho, e alterações feitas fora da aplicação (ex.: usuários mantidos pelo sistema legado).
+ * A remoção só acontece depois do commit, para que uma leitura concorrente não recoloque o valor antigo.
+ */
+@Service
+@RequiredArgsConstructor
+public class CacheEntidadesService {
+
+    private static final String COLECAO_ETAPAS = Processo.class.getName() + ".etapas";
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    /** Descarta o processo e a sua lista de etapas após o commit da transação corrente. */
+    public void invalidarProcessoAposCommit(Long processoId) {
+        if (processoId == null) {
+            return;
+        }
+        aposCommit(() -> {
+            Cache cache = cache();
+            cache.evictEntityData(Processo.class, processoId);
+            cache.evictCollectionData(COLECAO_ETAPAS, processoId);
+        });
+    }
+
+    public void invalidarUsuario(Long usuarioId) {
+        aposCommit(() -> cache().evictEntityData(Usuario.class, usuarioId));
+    }
+
+    /** Esvazia todas as regiões (entidades, coleções e consultas). */
+    public void invalidarTudo() {
+        cache().evictAllRegions();
+        System.out.println("[INFO] Cache de segundo nível esvaziado.");
+    }
+
+    public CacheEstatisticasDTO estatisticas() {
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        CacheEstatisticasDTO dto = new CacheEstatisticasDTO();
+        dto.setEstatisticasHabilitadas(stats.isStatisticsEnabled());
+        dto.setAcertos(stats.getSecondLevelCacheHitCount());
+        dto.setFalhas(stats.getSecondLevelCacheMissCount());
+        dto.setInsercoes(stats.getSecondLevelCachePutCount());
+        dto.setAcertosConsultas(stats.getQueryCacheHitCount());
+        dto.setFalhasConsultas(stats.getQueryCacheMissCount());
+
+        Arrays.stream(stats.getSecondLevelCacheRegionNames()).sorted().forEach(nome -> {
+            CacheRegionStatistics regiao = stats.getCacheRegionStatistics(nome);
+            if (regiao == null) {
+                return;
+            }
+            CacheEstatisticasDTO.Regiao linha = new CacheEstatisticasDTO.Regiao();
+            linha.setNome(nome);
+            linha.setAcertos(regiao.getHitCount());
+            linha.setFalhas(regiao.getMissCount());
+            linha.setInsercoes(regiao.getPutCount());
+            linha.setElementos(Math.max(-1, regiao.getElementCountInMemory()));
+            long acessos = regiao.getHitCount() + regiao.getMissCount();
+            linha.setTaxaAcerto(acessos > 0 ? Math.round(regiao.getHitCount() * 1000.0 / acessos) / 1000.0 : null);
+            dto.getRegioes().add(linha);
+        });
+        return dto;
+    }
+
+    private Cache cache() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getCache();
+    }
+
+    private static void aposCommit(Runnable acao) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    acao.run();
+                }
+            });
+        } else {
+            acao.run();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.camara.processos_api.service;
+
+import com.camara.processos_api.config.ListagemConfig;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Totais aproximados das listagens em modo slice. Cada contador (por usuário e filtro) fica em
+ * um cache limitado em memória e é recalculado em um pool pequeno quando envelhece; a requisição
+ * nunca espera pelo count, apenas devolve o último valor conhecido (ou nulo na primeira vez).
+ */
+@Service
+@RequiredArgsConstructor
+public class ContagemAproximadaService {
+
+    private final ListagemConfig listagemConfig;
+
+    // Limitado por quantidade: chaves com texto livre (filtro por título) saem pelas menos usadas
+    private Cache<String, Contagem> contagens;
+    private final Set<String> emAtualizacao = ConcurrentHashMap.newKeySet();
+
+    // Pool próprio e limitado, como o do renderizador de PDF; não é exposto como bean
+    private ThreadPoolTaskExecutor contadores;
+
+    private record Contagem(long valor, long calculadaEmNanos) {}
+
+    @PostConstruct
+    void iniciar() {
+        contagens = Caffeine.newBuilder()
+                .maximumSize(listagemConfig.getContagemMaxEntradas())
+                .build();
+        contadores = new ThreadPoolTaskExecutor();
+        contadores.setCorePoolSize(Math.max(1, listagemConfig.getContagemThreads()));
+        contadores.setMaxPoolSize(Math.max(1, listagemConfig.getContagemThreads()));
+        contadores.setQueueCapacity(listagemConfig.getContagemCapacidadeFila());
+        contadores.setThreadNamePrefix("contagem-");
+        contadores.initialize();
+    }
+
+    @PreDestroy
+    void parar() {
+        contadores.shutdown();
+    }
+
+    /** Último total conhecido para a chave; agenda o recálculo se ausente ou vencido. */
+    public Long obter(String chave, LongSupplier contar) {
+        Contagem atual = contagens.getIfPresent(chave);
+        long ttlNanos = listagemConfig.getContagemTtlSegundos() * 1_000_000_000L;
+        if (atual == null || System.nanoTime() - atual.calculadaEmNanos() > ttlNanos) {
+            agendarAtualizacao(chave, contar);
+        }
+        return atual != null ? atual.valor() : null;
+    }
+
+    // Um recálculo por chave de cada vez, mesmo com várias requisições simultâneas
+    private void agendarAtualizacao(String chave, LongSupplier contar) {
+        if (!emAtualizacao.add(chave)) {
+            return;
+        }
+        try {
+            contadores.execute(() -> {
+                try {
+                    contagens.put(chave, new Contagem(contar.getAsLong(), System.nanoTime()));
+                } catch (Exception e) {
+                    System.err.println("[WARN] Falha ao atualizar a contagem '" + chave + "': " + e.getMessage());
+                } finally {
+                    emAtualizacao.remove(chave);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            // Fila cheia: o total continua o anterior (ou nulo) e a próxima leitura tenta de novo
+            emAtualizacao.remove(chave);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.camara.processos_api.service;
+
+import com.camara.processos_api.config.FileStorageConfig;
+import com.camara.processos_api.exception.FileStorageException;
+import com.camara.processos_api.model.Arquivo;
+import com.camara.processos_api.repository.ArquivoRepository;
+import com.camara.processos_api.repository.ConteudoArquivoRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Armazenamento dos anexos enviados pelos usuários, endereçado pelo conteúdo.
+ * O SHA-256 é calculado enquanto o upload é copiado para um temporário; o blob fica em
+ * {uploadDir}/blobs/ab/cd/{hash} e cada linha de arquivos_processo conta uma referência em
+ * conteudos_arquivo. Reenviar um conteúdo já conhecido custa só a leitura do upload: o temporário é
+ * descartado e nada novo fica no disco. Blobs sem referências (inclusive os de uploads cuja transação foi
+ * desfeita) são apagados pela varredura, após a carência.
+ * PDFs de despacho continuam em {uploadDir}/{processoId}, porque são reescritos no lugar.
+ * As travas por hash só cobrem operações no disco: ninguém espera um lock do banco segurando uma delas,
+ * senão um upload (dono da linha) e a varredura (dona da trava) podiam se esperar sem o InnoDB perceber.
+ */
+@Service
+@RequiredArgsConstructor
+public class ConteudoArquivoService {
+
+    private final FileStorageConfig fileStorageConfig;
+    private final FileStorageService fileStorageService;
+    private final ConteudoArquivoRepository conteudoArquivoRepository;
+    private final ArquivoRepository arquivoRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    private Path diretorioBlobs;
+    private TransactionTemplate transacaoPropria;
+
+    // Travas por faixa de hash: a varredura não apaga um blob no meio de um upload que o reaproveita
+    private final ReentrantLock[] travas = criarTravas(64);
+
+    // Hashes cuja linha a varredura está apagando; true = um upload reaproveitou o blob no meio e ele fica
+    private final Map<String, Boolean> emRemocao = new ConcurrentHashMap<>();
+
+    // hash nulo = gravado no modo legado (file.enderecamento-por-conteudo=false)
+    public record ConteudoArmazenado(String caminho, String hash) {}
+
+    @PostConstruct
+    void prepararDiretorio() {
+        transacaoPropria = new TransactionTemplate(transactionManager);
+        transacaoPropria.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        diretorioBlobs = Paths.get(fileStorageConfig.getUploadDir()).toAbsolutePath().normalize().resolve("blobs");
+        try {
+            Files.createDirectories(diretorioBlobs);
+            // Uploads interrompidos por uma queda da aplicação
+            try (DirectoryStream<Path> parciais = Files.newDirectoryStream(diretorioBlobs, "upload-*.parcial")) {
+                for (Path parcial : parciais) {
+                    Files.deleteIfExists(parcial);
+                }
+            }
+        } catch (IOException ex) {
+            throw new FileStorageException("Não foi possível criar o diretório de blobs " + diretorioBlobs, ex);
+        }
+    }
+
+    /**
+     * Grava o anexo e registra a referência ao blob. Deve ser chamado na transação que salva o Arquivo:
+     * se ela for desfeita, a referência também é, e a linha do conteúdo é registrada de novo (sem
+     * referências) para a varredura apagar o blob após a carência. O mesmo conteúdo pode vir mais de uma
+     * vez na transação: a linha já é dela e o upsert não espera.
+     */
+    public ConteudoArmazenado armazenar(MultipartFile file, Long processoId) {
+        if (!fileStorageConfig.isEnderecamentoPorConteudo()) {
+            return new ConteudoArmazenado(fileStorageService.storeFile(file, processoId), null);
+        }
+
+        Path temporario = null;
+        try {
+            temporario = Files.createTempFile(diretorioBlobs, "upload-", ".parcial");
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            long tamanho;
+            try (InputStream in = new DigestInputStream(file.getInputStream(), sha256)) {
+                tamanho = Files.copy(in, temporario, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String hash = HexFormat.of().formatHex(sha256.digest());
+            Path blob = caminhoDoBlob(hash);
+
+            // A referência entra primeiro, na transação de quem chamou e sem trava: a partir daqui a linha
+            // é desta transação, e o DELETE da varredura espera por ela e não acha a linha órfã
+            conteudoArquivoRepository.adicionarReferencia(hash, tamanho, LocalDateTime.now());
+            registrarSeDesfeita(hash, tamanho);
+
+            ReentrantLock trava = travaDoHash(hash);
+            trava.lock();
+            try {
+                // A varredura pode ter apagado a linha antes do upsert acima: o blob não pode sair do disco
+                emRemocao.replace(hash, true);
+                if (!Files.exists(blob)) {
+                    Files.createDirectories(blob.getParent());
+                    Files.move(temporario, blob, StandardCopyOption.ATOMIC_MOVE);
+                }
+            } finally {
+                trava.unlock();
+            }
+            return new ConteudoArmazenado(blob.toString(), hash);
+        } catch (IOException | NoSuchAlgorithmException ex) {
+            throw new FileStorageException("Não foi possível salvar o arquivo " + file.getOriginalFilename(), ex);
+        } finally {
+            // Conteúdo já conhecido (ou falha): o temporário não vira blob
+            apagarTemporario(temporario);
+        }
+    }
+
+    /** Solta o conteúdo de um anexo excluído: o blob perde uma referência; anexos legados são apagados do disco. */
+    public void liberar(Arquivo arquivo) {
+        if (arquivo.getHashConteudo() != null) {
+            conteudoArquivoRepository.removerReferencia(arquivo.getHashConteudo(), LocalDateTime.now());
+        } else {
+            fileStorageService.deleteFile(arquivo.getCaminhoArquivo());
+        }
+    }
+
+    /** Solta os blobs de todos os anexos do processo (antes da exclusão do processo). */
+    public void liberarDoProcesso(Long processoId) {
+        LocalDateTime agora = LocalDateTime.now();
+        for (String hash : arquivoRepository.findHashesConteudoByProcessoId(processoId)) {
+            conteudoArquivoRepository.removerReferencia(hash, agora);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${file.intervalo-varredura-blobs-ms:3600000}",
+            initialDelayString = "${file.intervalo-varredura-blobs-ms:3600000}")
+    public void varrerOrfaos() {
+        LocalDateTime limite = LocalDateTime.now().minusMinutes(fileStorageConfig.getCarenciaBlobsMinutos());
+        int apagados = 0;
+        List<String> orfaos;
+        int apagadosAntes;
+        do {
+            apagadosAntes = apagados;
+            orfaos = conteudoArquivoRepository.findOrfaos(limite, Limit.of(500));
+            for (String hash : orfaos) {
+                if (apagarSeOrfao(hash, limite)) {
+                    apagados++;
+                }
+            }
+        } while (orfaos.size() == 500 && apagados > apagadosAntes);
+        if (apagados > 0) {
+            System.out.println("[INFO] Blobs sem referências apagados: " + apagados);
+        }
+    }
+
+    // A linha sai primeiro (e só se continuar órfã), fora da trava: o DELETE pode esperar a transação de um
+    // upload. O blob só é apagado se a linha saiu e nenhum upload o reaproveitou nesse meio-tempo
+    private boolean apagarSeOrfao(String hash, LocalDateTime limite) {
+        ReentrantLock trava = travaDoHash(hash);
+        trava.lock();
+        try {
+            emRemocao.put(hash, false);
+        } finally {
+            trava.unlock();
+        }
+
+        boolean linhaApagada = false;
+        try {
+            linhaApagada = conteudoArquivoRepository.deleteSeOrfao(hash, limite) > 0;
+        } finally {
+            trava.lock();
+            try {
+                boolean reaproveitado = emRemocao.remove(hash);
+                if (linhaApagada && !reaproveitado) {
+                    Files.deleteIfExists(caminhoDoBlob(hash));
+                }
+            } catch (IOException e) {
+                System.err.println("[WARN] Não foi possível apagar o blob " + hash + ": " + e.getMessage());
+            } finally {
+                trava.unlock();
+            }
+        }
+        return linhaApagada;
+    }
+
+    // Upload desfeito: a linha nova some com ele, mas o blob já está no disco. Registrada de novo (sem
+    // referências, em transação própria e já sem os locks da desfeita), entra na varredura após a carência
+    private void registrarSeDesfeita(String hash, long tamanho) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return; // sem transação em volta: a referência já foi confirmada
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    try {
+                        transacaoPropria.executeWithoutResult(s ->
+                                conteudoArquivoRepository.registrarConteudo(hash, tamanho, LocalDateTime.now()));
+                    } catch (RuntimeException e) {
+                        System.err.println("[WARN] Não foi possível registrar o blob " + hash
+                                + " do upload desfeito: " + e.getMessage());
+                    }
+                }
+            }
+        });
+    }
+
+    // Dois níveis de 256 diretórios: nenhum diretório acumula milhões de entradas
+    private Path caminhoDoBlob(String hash) {
+        return diretorioBlobs.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    private ReentrantLock travaDoHash(String hash) {
+        return travas[Math.floorMod(hash.hashCode(), travas.length)];
+    }
+
+    private static void apagarTemporario(Path temporario) {
+        if (temporario == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(temporario);
+        } catch (IOException e) {
+            System.err.println("[WARN] Não foi possível apagar o temporário " + temporario + ": " + e.getMessage());
+        }
+    }
+
+    private static ReentrantLock[] criarTravas(int quantidade) {
+        ReentrantLock[] travas = new ReentrantLock[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            travas[i] = new ReentrantLock();
+        }
+        return travas;
+    }
+}
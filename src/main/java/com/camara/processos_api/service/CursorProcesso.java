@@ -0,0 +1,39 @@
+package com.camara.processos_api.service;
+
+import com.camara.processos_api.exception.CursorInvalidoException;
+import com.camara.processos_api.model.Processo;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Posição na listagem ordenada por (dataCriacao DESC, id DESC): o próximo bloco começa logo
+ * depois deste par. Vai ao cliente como token Base64 URL-safe, sem significado para ele.
+ * Processos legados sem data_criacao vêm depois de todos os datados (NULL é o menor valor no
+ * MySQL e no H2) e ficam com a data vazia no token ("|id").
+ */
+record CursorProcesso(LocalDateTime dataCriacao, Long id) {
+
+    static CursorProcesso depoisDe(Processo processo) {
+        return new CursorProcesso(processo.getDataCriacao(), processo.getId());
+    }
+
+    String codificar() {
+        String valor = (dataCriacao != null ? dataCriacao.toString() : "") + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static CursorProcesso decodificar(String token) {
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separador = valor.lastIndexOf('|');
+            String data = valor.substring(0, separador);
+            return new CursorProcesso(data.isEmpty() ? null : LocalDateTime.parse(data),
+                    Long.valueOf(valor.substring(separador + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new CursorInvalidoException("Cursor de paginação inválido.");
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.camara.processos_api.service;
+
+import com.camara.processos_api.config.DespachoPdfConfig;
+import com.camara.processos_api.exception.FileNotFoundException;
+import com.camara.processos_api.model.Processo;
+import com.camara.processos_api.repository.EtapaRepository;
+import com.camara.processos_api.repository.ProcessoRepository;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Montagem sob demanda do despacho consolidado (despacho.pdf.montagem-sob-demanda=true).
+ * As páginas despacho_etapa_{id}.pdf são a fonte da verdade; o consolidado só é montado no
+ * download e fica em um cache limitado por bytes, chaveado por (processoId, última etapa).
+ */
+@Service
+@RequiredArgsConstructor
+public class DespachoMontagemService {
+
+    private final EtapaRepository etapaRepository;
+    private final ProcessoRepository processoRepository;
+    private final PdfGenerationService pdfService;
+    private final FileStorageService fileStorageService;
+    private final DespachoPdfConfig despachoPdfConfig;
+
+    // Um consolidado por processo, em ordem de acesso (LRU); só vale se a última etapa for a mesma
+    private final Map<Long, ConsolidadoEmCache> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytesEmCache;
+
+    private record ConsolidadoEmCache(Long ultimaEtapaId, byte[] conteudo) {}
+
+    /**
+     * Retorna o PDF consolidado do processo, montando-o a partir das páginas de cada etapa se
+     * não estiver no cache.
+     */
+    public byte[] obterConsolidado(Long processoId) throws IOException {
+        List<Long> etapaIds = etapaRepository.findIdsByProcessoIdOrderById(processoId);
+        if (etapaIds.isEmpty()) {
+            throw new FileNotFoundException("O processo " + processoId + " não possui etapas de despacho.");
+        }
+        Long ultimaEtapaId = etapaIds.get(etapaIds.size() - 1);
+
+        byte[] emCache = buscarNoCache(processoId, ultimaEtapaId);
+        if (emCache != null) {
+            return emCache;
+        }
+
+        List<Path> paginas = new ArrayList<>();
+        for (Long etapaId : etapaIds) {
+            Path pagina = fileStorageService.resolverCaminho("despacho_etapa_" + etapaId + ".pdf", processoId);
+            if (Files.exists(pagina)) {
+                paginas.add(pagina);
+            } else {
+                // Etapa ainda na fila de renderização (ou anterior ao modo sob demanda)
+                System.err.println("[WARN] Página de despacho ausente, ignorada na montagem: " + pagina);
+            }
+        }
+        if (paginas.isEmpty()) {
+            throw new FileNotFoundException("Nenhuma página de despacho disponível para o processo " + processoId);
+        }
+
+        String protocolo = processoRepository.findById(processoId).map(Processo::getProtocolo).orElse(null);
+
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        PdfWriter writer = pdfService.novoWriter(saida, true);
+        // Cada página traz sua cópia do cabeçalho (logo, fonte); o smart mode grava cada uma só uma vez
+        writer.setSmartMode(true);
+        try (PdfDocument destino = new PdfDocument(writer)) {
+            for (Path pagina : paginas) {
+                try (PdfDocument origem = new PdfDocument(new PdfReader(pagina.toFile()))) {
+                    origem.copyPagesTo(1, origem.getNumberOfPages(), destino);
+                }
+            }
+            // Páginas renderizadas antes da atribuição do protocolo recebem o carimbo só na cópia montada
+            if (protocolo != null && !protocolo.isBlank()) {
+                pdfService.carimbarPaginasSemProtocolo(destino, protocolo, destino.getNumberOfPages());
+            }
+        }
+        byte[] consolidado = saida.toByteArray();
+        pdfService.relatarTamanho("consolidado do processo " + processoId + " (montado sob demanda)", paginas.size(), consolidado.length);
+
+        // Montagem incompleta não vai para o cache: o próximo download tenta de novo
+        if (paginas.size() == etapaIds.size()) {
+            guardarNoCache(processoId, ultimaEtapaId, consolidado);
+        }
+        return consolidado;
+    }
+
+    // Descarta o consolidado em cache (ex.: páginas regeneradas sem mudar a última etapa)
+    public synchronized void invalidar(Long processoId) {
+        ConsolidadoEmCache removido = cache.remove(processoId);
+        if (removido != null) {
+            bytesEmCache -= removido.conteudo().length;
+        }
+    }
+
+    private synchronized byte[] buscarNoCache(Long processoId, Long ultimaEtapaId) {
+        ConsolidadoEmCache entrada = cache.get(processoId);
+        return entrada != null && entrada.ultimaEtapaId().equals(ultimaEtapaId) ? entrada.conteudo() : null;
+    }
+
+    private synchronized void guardarNoCache(Long processoId, Long ultimaEtapaId, byte[] conteudo) {
+        long limite = despachoPdfConfig.getCacheMaxBytes();
+        if (conteudo.length > limite) {
+            return;
+        }
+        ConsolidadoEmCache anterior = cache.put(processoId, new ConsolidadoEmCache(ultimaEtapaId, conteudo));
+        if (anterior != null) {
+            bytesEmCache -= anterior.conteudo().length;
+        }
+        bytesEmCache += conteudo.length;
+
+        // Remove os menos acessados até caber no limite
+        Iterator<ConsolidadoEmCache> it = cache.values().iterator();
+        while (bytesEmCache > limite && it.hasNext()) {
+            bytesEmCache -= it.next().conteudo().length;
+            it.remove();
+        }
+    }
+}
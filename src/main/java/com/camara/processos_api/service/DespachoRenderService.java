@@ -0,0 +1,328 @@
+package com.camara.processos_api.service;
+
+import com.camara.processos_api.config.DespachoPdfConfig;
+import com.camara.processos_api.exception.ResourceNotFoundException;
+import com.camara.processos_api.model.Arquivo;
+import com.camara.processos_api.model.Etapa;
+import com.camara.processos_api.model.PdfRenderJob;
+import com.camara.processos_api.model.Usuario;
+import com.camara.processos_api.repository.ArquivoRepository;
+import com.camara.processos_api.repository.EtapaRepository;
+import com.camara.processos_api.repository.PdfRenderJobRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Renderização dos PDFs de despacho fora da requisição.
+ * A etapa grava um {@link PdfRenderJob} na mesma transação; após o commit o processo é
+ * enfileirado em um pool limitado de workers, que gera o PDF da etapa e acrescenta a página ao
+ * consolidado. Os jobs de um mesmo processo são executados um por vez, em ordem de id.
+ */
+@Service
+@RequiredArgsConstructor
+public class DespachoRenderService {
+
+    private static final String PREFIXO_CONSOLIDADO = "despacho_processo_";
+
+    private final PdfRenderJobRepository jobRepository;
+    private final EtapaRepository etapaRepository;
+    private final ArquivoRepository arquivoRepository;
+    private final PdfGenerationService pdfService;
+    private final FileStorageService fileStorageService;
+    private final DespachoMontagemService despachoMontagemService;
+    private final DespachoPdfConfig despachoPdfConfig;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Pool próprio e limitado; não é exposto como bean para não substituir o executor padrão do Spring
+    private ThreadPoolTaskExecutor pdfRenderExecutor;
+
+    // Processos já enfileirados (evita ocupar a fila com o mesmo processo várias vezes)
+    private final Set<Long> agendados = ConcurrentHashMap.newKeySet();
+
+    // Travas por faixa de processo: garante um único worker por processo sem manter um mapa que só cresce
+    private final ReentrantLock[] travas = criarTravas(64);
+
+    // Evento publicado pela etapa; só é tratado depois do commit
+    public record RenderizacaoSolicitada(Long processoId) {}
+
+    @PostConstruct
+    void iniciarWorkers() {
+        pdfRenderExecutor = new ThreadPoolTaskExecutor();
+        pdfRenderExecutor.setCorePoolSize(despachoPdfConfig.getWorkers());
+        pdfRenderExecutor.setMaxPoolSize(despachoPdfConfig.getWorkers());
+        pdfRenderExecutor.setQueueCapacity(despachoPdfConfig.getCapacidadeFila());
+        pdfRenderExecutor.setThreadNamePrefix("pdf-render-");
+        pdfRenderExecutor.setWaitForTasksToCompleteOnShutdown(true);
+        pdfRenderExecutor.setAwaitTerminationSeconds(30);
+        pdfRenderExecutor.initialize();
+    }
+
+    @PreDestroy
+    void pararWorkers() {
+        pdfRenderExecutor.shutdown();
+    }
+
+    /**
+     * Registra os PDFs da etapa como PENDENTE e grava o job de renderização.
+     * Deve ser chamado dentro da transação que salvou a etapa.
+     */
+    @Transactional
+    public void solicitarRenderizacao(Etapa etapa, Usuario remetente, boolean usarAssinaturaTexto, boolean gerarPdfEtapa) {
+        Long processoId = etapa.getProcesso().getId();
+
+        // Sob demanda a página de toda etapa vai para o disco (é dela que o consolidado é montado),
+        // então toda página tem o seu registro: aparece na listagem e no ZIP e sai com a exclusão
+        if (gerarPdfEtapa || despachoPdfConfig.isMontagemSobDemanda()) {
+            String nomePdf = "despacho_etapa_" + etapa.getId() + ".pdf";
+            Arquivo arquivoPdf = new Arquivo();
+            arquivoPdf.setProcesso(etapa.getProcesso());
+            arquivoPdf.setEtapa(etapa); // Associa o PDF à etapa que o gerou
+            arquivoPdf.setNomeArquivo(nomePdf);
+            arquivoPdf.setCaminhoArquivo(fileStorageService.resolverCaminho(nomePdf, processoId).toString());
+            arquivoPdf.setTipo("application/pdf");
+            arquivoPdf.setEnviadoPor(remetente);
+            arquivoPdf.setDataEnvio(LocalDateTime.now());
+            arquivoPdf.setStatusRenderizacao(Arquivo.RENDER_PENDENTE);
+            arquivoRepository.save(arquivoPdf);
+        }
+
+        // Consolidado: um único registro por processo, apontando para a etapa mais recente
+        // (sob demanda não há arquivo no caminho: o download monta o PDF a partir das páginas)
+        String nomeConsolidado = PREFIXO_CONSOLIDADO + processoId + ".pdf";
+        Arquivo consolidado = arquivoRepository.findTopByProcessoIdAndTipoAndNomeArquivoStartingWithOrderByIdDesc(
+                processoId, "application/pdf", PREFIXO_CONSOLIDADO
+        ).orElseGet(() -> {
+            Arquivo novo = new Arquivo();
+            novo.setCaminhoArquivo(fileStorageService.resolverCaminho(nomeConsolidado, processoId).toString());
+            return novo;
+        });
+        consolidado.setProcesso(etapa.getProcesso());
+        consolidado.setEtapa(etapa);
+        consolidado.setNomeArquivo(nomeConsolidado);
+        consolidado.setTipo("application/pdf");
+        consolidado.setEnviadoPor(remetente);
+        consolidado.setDataEnvio(LocalDateTime.now());
+        consolidado.setStatusRenderizacao(Arquivo.RENDER_PENDENTE);
+        arquivoRepository.save(consolidado);
+
+        PdfRenderJob job = new PdfRenderJob();
+        job.setProcessoId(processoId);
+        job.setEtapaId(etapa.getId());
+        job.setUsarAssinaturaTexto(usarAssinaturaTexto);
+        job.setGerarPdfEtapa(gerarPdfEtapa);
+        job.setDataCriacao(LocalDateTime.now());
+        jobRepository.save(job);
+
+        eventPublisher.publishEvent(new RenderizacaoSolicitada(processoId));
+    }
+
+    /**
+     * Enfileira o carimbo do protocolo recém-atribuído nas páginas já existentes do consolidado.
+     * Entra na mesma fila ordenada das páginas: as etapas seguintes já saem com o protocolo impresso.
+     * Deve ser chamado dentro da transação que gravou o protocolo.
+     */
+    @Transactional
+    public void solicitarCarimboProtocolo(Long processoId) {
+        // Sem etapas ainda não há páginas para carimbar
+        Optional<Etapa> ultimaEtapa = etapaRepository.findTopByProcessoIdOrderByIdDesc(processoId);
+        if (ultimaEtapa.isEmpty()) {
+            return;
+        }
+
+        arquivoRepository.findTopByProcessoIdAndTipoAndNomeArquivoStartingWithOrderByIdDesc(
+                processoId, "application/pdf", PREFIXO_CONSOLIDADO
+        ).ifPresent(a -> arquivoRepository.atualizarStatusRenderizacao(a.getId(), Arquivo.RENDER_PENDENTE));
+
+        PdfRenderJob job = new PdfRenderJob();
+        job.setProcessoId(processoId);
+        job.setTipo(PdfRenderJob.TIPO_CARIMBO);
+        job.setEtapaId(ultimaEtapa.get().getId());
+        job.setDataCriacao(LocalDateTime.now());
+        jobRepository.save(job);
+
+        eventPublisher.publishEvent(new RenderizacaoSolicitada(processoId));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void aoConfirmarEtapa(RenderizacaoSolicitada evento) {
+        agendar(evento.processoId());
+    }
+
+    // Reenfileira o que ficou pendente: falhas com novas tentativas, fila cheia ou reinício da aplicação
+    @Scheduled(fixedDelayString = "${despacho.pdf.intervalo-varredura-ms:30000}",
+            initialDelayString = "${despacho.pdf.intervalo-varredura-ms:30000}")
+    public void varrerPendentes() {
+        for (Long processoId : jobRepository.findProcessosComStatus(PdfRenderJob.STATUS_PENDENTE)) {
+            agendar(processoId);
+        }
+    }
+
+    private void agendar(Long processoId) {
+        if (agendados.add(processoId)) {
+            try {
+                pdfRenderExecutor.execute(() -> processarPendentes(processoId));
+            } catch (TaskRejectedException e) {
+                // Fila cheia ou pool encerrando: não roda na thread da requisição; o job continua
+                // PENDENTE e a próxima varredura tenta de novo
+                agendados.remove(processoId);
+                System.err.println("[WARN] Não foi possível agendar a renderização do processo " + processoId + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Executa, em ordem, todos os jobs pendentes do processo.
+     * Se um job falhar e ainda tiver tentativas, para aqui para não pular páginas no consolidado.
+     */
+    void processarPendentes(Long processoId) {
+        agendados.remove(processoId);
+        ReentrantLock trava = travaDoProcesso(processoId);
+        trava.lock();
+        try {
+            Optional<PdfRenderJob> proximo;
+            while ((proximo = jobRepository.findFirstByProcessoIdAndStatusOrderByIdAsc(
+                    processoId, PdfRenderJob.STATUS_PENDENTE)).isPresent()) {
+                if (!executar(proximo.get())) {
+                    break;
+                }
+            }
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Executa a tarefa com a mesma trava usada pelo worker, para que outra rotina (ex.: regeneração
+     * em lote) não grave os PDFs do processo ao mesmo tempo que um job.
+     */
+    <T> T executarComTrava(Long processoId, Callable<T> tarefa) throws Exception {
+        ReentrantLock trava = travaDoProcesso(processoId);
+        trava.lock();
+        try {
+            return tarefa.call();
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    private ReentrantLock travaDoProcesso(Long processoId) {
+        return travas[Math.floorMod(processoId.hashCode(), travas.length)];
+    }
+
+    private boolean executar(PdfRenderJob job) {
+        Long processoId = job.getProcessoId();
+        Long etapaId = job.getEtapaId();
+        try {
+            Etapa etapa = etapaRepository.findByIdComProcesso(etapaId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Etapa não encontrada com o ID: " + etapaId));
+
+            if (PdfRenderJob.TIPO_CARIMBO.equals(job.getTipo())) {
+                carimbar(processoId, etapaId, etapa.getProcesso().getProtocolo());
+                concluir(job);
+                return true;
+            }
+
+            // Sob demanda, a página de toda etapa é gravada: é dela que o consolidado é montado no download
+            boolean sobDemanda = despachoPdfConfig.isMontagemSobDemanda();
+            if (job.isGerarPdfEtapa() || sobDemanda) {
+                String nomePdf = "despacho_etapa_" + etapaId + ".pdf";
+                byte[] pdfEtapa = pdfService.gerarPdfDeEtapa(etapa, etapa.getAssinaturaImagem(), job.isUsarAssinaturaTexto());
+                fileStorageService.storeFile(pdfEtapa, nomePdf, processoId);
+                arquivoRepository.findFirstByEtapaIdAndNomeArquivo(etapaId, nomePdf)
+                        .ifPresent(a -> arquivoRepository.atualizarStatusRenderizacao(a.getId(), Arquivo.RENDER_PRONTO));
+            }
+
+            Arquivo consolidado = arquivoRepository.findTopByProcessoIdAndTipoAndNomeArquivoStartingWithOrderByIdDesc(
+                    processoId, "application/pdf", PREFIXO_CONSOLIDADO
+            ).orElseThrow(() -> new ResourceNotFoundException("PDF consolidado não registrado para o processo " + processoId));
+            // Sob demanda não há o que gravar aqui: o consolidado é montado no download (DespachoMontagemService)
+            if (!sobDemanda) {
+                Path destino = Paths.get(consolidado.getCaminhoArquivo());
+                if (despachoPdfConfig.isAnexacaoIncremental()) {
+                    // Acrescenta só a página nova ao arquivo existente (ou cria o primeiro)
+                    pdfService.anexarPaginaDeDespacho(destino, etapa, etapa.getAssinaturaImagem(), job.isUsarAssinaturaTexto());
+                } else {
+                    byte[] pdfAtualizado = pdfService.adicionarPaginaDeDespacho(destino, etapa, etapa.getAssinaturaImagem(), job.isUsarAssinaturaTexto());
+                    fileStorageService.storeFile(pdfAtualizado, PREFIXO_CONSOLIDADO + processoId + ".pdf", processoId);
+                }
+            }
+            arquivoRepository.atualizarStatusRenderizacaoSeEtapa(consolidado.getId(), etapaId, Arquivo.RENDER_PRONTO);
+
+            concluir(job);
+            return true;
+
+        } catch (Exception e) {
+            System.err.println("ERRO ao renderizar PDF de despacho (processo " + processoId + ", etapa " + etapaId + "): " + e.getMessage());
+            job.setTentativas(job.getTentativas() + 1);
+            job.setErro(e.getMessage() != null && e.getMessage().length() > 1000 ? e.getMessage().substring(0, 1000) : e.getMessage());
+            job.setDataAtualizacao(LocalDateTime.now());
+            boolean esgotado = job.getTentativas() >= despachoPdfConfig.getMaxTentativas();
+            if (esgotado) {
+                job.setStatus(PdfRenderJob.STATUS_ERRO);
+                marcarErro(job);
+            }
+            jobRepository.save(job);
+            // Esgotado: segue para as próximas etapas; senão interrompe e espera a próxima varredura
+            return esgotado;
+        }
+    }
+
+    // Carimba só as páginas ainda sem protocolo; as anteriores não são regravadas
+    private void carimbar(Long processoId, Long etapaId, String protocolo) throws IOException {
+        Optional<Arquivo> consolidado = arquivoRepository.findTopByProcessoIdAndTipoAndNomeArquivoStartingWithOrderByIdDesc(
+                processoId, "application/pdf", PREFIXO_CONSOLIDADO);
+        if (despachoPdfConfig.isMontagemSobDemanda()) {
+            // As páginas por etapa ficam intactas; a montagem carimba as que não têm protocolo
+            despachoMontagemService.invalidar(processoId);
+        } else if (consolidado.isPresent()) {
+            int paginas = pdfService.carimbarProtocolo(Paths.get(consolidado.get().getCaminhoArquivo()), protocolo);
+            System.out.println("[INFO] Protocolo carimbado em " + paginas + " página(s) do consolidado do processo " + processoId);
+        }
+        // Se uma etapa nova já foi registrada, é o job dela que marca o consolidado como PRONTO
+        consolidado.ifPresent(a -> arquivoRepository.atualizarStatusRenderizacaoSeEtapa(a.getId(), etapaId, Arquivo.RENDER_PRONTO));
+    }
+
+    private void concluir(PdfRenderJob job) {
+        job.setStatus(PdfRenderJob.STATUS_CONCLUIDO);
+        job.setErro(null);
+        job.setDataAtualizacao(LocalDateTime.now());
+        jobRepository.save(job);
+    }
+
+    private void marcarErro(PdfRenderJob job) {
+        if ((job.isGerarPdfEtapa() || despachoPdfConfig.isMontagemSobDemanda()) && PdfRenderJob.TIPO_PAGINA.equals(job.getTipo())) {
+            arquivoRepository.findFirstByEtapaIdAndNomeArquivo(job.getEtapaId(), "despacho_etapa_" + job.getEtapaId() + ".pdf")
+                    .ifPresent(a -> arquivoRepository.atualizarStatusRenderizacao(a.getId(), Arquivo.RENDER_ERRO));
+        }
+        arquivoRepository.findTopByProcessoIdAndTipoAndNomeArquivoStartingWithOrderByIdDesc(
+                job.getProcessoId(), "application/pdf", PREFIXO_CONSOLIDADO
+        ).ifPresent(a -> arquivoRepository.atualizarStatusRenderizacao(a.getId(), Arquivo.RENDER_ERRO));
+    }
+
+    private static ReentrantLock[] criarTravas(int quantidade) {
+        ReentrantLock[] travas = new ReentrantLock[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            travas[i] = new ReentrantLock();
+        }
+        return travas;
+    }
+}
@@ -0,0 +1,224 @@
+package com.camara.processos_api.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Entrega de um anexo do disco na resposta HTTP, com validadores e pedidos parciais.
+ * ETag forte = hash do conteúdo (armazenamento por conteúdo) ou tamanho + data de modificação (legado);
+ * Last-Modified = data de modificação do arquivo. If-None-Match / If-Modified-Since respondem 304 e
+ * Range (uma faixa, condicionada por If-Range) responde 206. O corpo sai pelo sendfile do Tomcat, que
+ * usa FileChannel.transferTo: os bytes vão do cache de páginas para o socket sem passar pelo heap.
+ * Os dois métodos escrevem a resposta inteira (status, cabeçalhos e corpo); o handler que os chama
+ * não devolve corpo.
+ */
+@Service
+public class DownloadArquivoService {
+
+    // Atributos do sendfile do conector NIO do Tomcat (os mesmos usados pelo DefaultServlet)
+    private static final String SENDFILE_SUPORTE = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_ARQUIVO = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_INICIO = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_FIM = "org.apache.tomcat.sendfile.end";
+
+    // Sem data de modificação (conteúdo montado em memória): sem Last-Modified e sem validação por data
+    private static final long SEM_DATA = -1;
+
+    // Bytes a enviar, já validados contra o tamanho do conteúdo (fim inclusivo)
+    private record Faixa(long inicio, long fim) {
+        long comprimento() {
+            return fim - inicio + 1;
+        }
+    }
+
+    /**
+     * Responde o arquivo: 200 (inteiro), 206 (faixa), 304 (cliente já tem esta versão) ou
+     * 416 (faixa fora do arquivo). Lança NoSuchFileException se o arquivo não está no disco.
+     */
+    public void enviar(Path arquivo, String hashConteudo, MediaType tipo, ContentDisposition disposicao,
+                       HttpServletRequest request, HttpServletResponse response) throws IOException {
+        BasicFileAttributes atributos = Files.readAttributes(arquivo, BasicFileAttributes.class);
+        long tamanho = atributos.size();
+        long modificadoEmMs = atributos.lastModifiedTime().toMillis();
+        // Datas HTTP têm precisão de segundos: compara no mesmo arredondamento que vai no cabeçalho
+        long modificadoEm = modificadoEmMs / 1000 * 1000;
+        String etag = hashConteudo != null
+                ? "\"" + hashConteudo + "\""
+                : "\"" + Long.toHexString(tamanho) + "-" + Long.toHexString(modificadoEmMs) + "\"";
+
+        Faixa faixa = prepararResposta(tamanho, etag, modificadoEm, tipo, disposicao, request, response);
+        if (faixa == null) {
+            return;
+        }
+        long inicio = faixa.inicio();
+        long fim = faixa.fim();
+        long comprimento = faixa.comprimento();
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPORTE))) {
+            // O Tomcat envia o arquivo depois que o handler retorna; nada pode ser escrito no corpo aqui
+            request.setAttribute(SENDFILE_ARQUIVO, arquivo.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_INICIO, inicio);
+            request.setAttribute(SENDFILE_FIM, fim + 1);
+            return;
+        }
+
+        // Sem sendfile (HTTPS, outro container, MockMvc): transferTo direto para a saída da resposta
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            WritableByteChannel saida = Channels.newChannel(response.getOutputStream());
+            long posicao = inicio;
+            long restante = comprimento;
+            while (restante > 0) {
+                long enviados = canal.transferTo(posicao, restante, saida);
+                if (enviados <= 0) {
+                    break; // arquivo encolheu durante o envio
+                }
+                posicao += enviados;
+                restante -= enviados;
+            }
+        }
+        response.flushBuffer();
+    }
+
+    /**
+     * Responde um conteúdo montado em memória (ex.: despacho consolidado sob demanda) com as mesmas
+     * regras de 304, Range e HEAD. ETag forte = SHA-256 do conteúdo; sem Last-Modified.
+     */
+    public void enviar(byte[] conteudo, MediaType tipo, ContentDisposition disposicao,
+                       HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String etag = "\"" + sha256(conteudo) + "\"";
+        Faixa faixa = prepararResposta(conteudo.length, etag, SEM_DATA, tipo, disposicao, request, response);
+        if (faixa == null) {
+            return;
+        }
+        response.getOutputStream().write(conteudo, (int) faixa.inicio(), (int) faixa.comprimento());
+        response.flushBuffer();
+    }
+
+    /**
+     * Validadores, 304, faixa pedida (206/416) e cabeçalhos do corpo. Devolve a faixa a enviar, ou null
+     * se a resposta já está completa (304, 416, HEAD ou conteúdo vazio).
+     */
+    private static Faixa prepararResposta(long tamanho, String etag, long modificadoEm, MediaType tipo,
+                                          ContentDisposition disposicao, HttpServletRequest request,
+                                          HttpServletResponse response) {
+        response.setHeader(HttpHeaders.ETAG, etag);
+        if (modificadoEm != SEM_DATA) {
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, modificadoEm);
+        }
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        // Guardado só no navegador e sempre revalidado (o 304 não transfere o corpo)
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+
+        if (naoModificado(request, etag, modificadoEm)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return null;
+        }
+
+        long inicio = 0;
+        long fim = tamanho - 1;
+        HttpRange faixa = faixaPedida(request, etag, modificadoEm);
+        if (faixa != null) {
+            try {
+                inicio = faixa.getRangeStart(tamanho);
+                fim = faixa.getRangeEnd(tamanho);
+                if (fim < inicio) {
+                    throw new IllegalArgumentException("Faixa vazia"); // ex.: sufixo pedido de arquivo vazio
+                }
+            } catch (IllegalArgumentException foraDoArquivo) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + tamanho);
+                return null;
+            }
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + inicio + "-" + fim + "/" + tamanho);
+        }
+
+        long comprimento = fim - inicio + 1;
+        response.setContentType(tipo.toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, disposicao.toString());
+        response.setContentLengthLong(comprimento);
+        if ("HEAD".equals(request.getMethod()) || comprimento == 0) {
+            return null;
+        }
+        return new Faixa(inicio, fim);
+    }
+
+    // If-None-Match tem precedência; If-Modified-Since só vale quando ele não veio (RFC 9110, 13.2.2)
+    private static boolean naoModificado(HttpServletRequest request, String etag, long modificadoEm) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            for (String candidata : ifNoneMatch.split(",")) {
+                String tag = candidata.trim();
+                if (tag.equals("*") || semPrefixoFraco(tag).equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long ifModifiedSince = dataDoCabecalho(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return modificadoEm != SEM_DATA && ifModifiedSince >= 0 && modificadoEm <= ifModifiedSince;
+    }
+
+    // Faixa única a servir, ou null para o arquivo inteiro. Vários intervalos, sintaxe inválida ou
+    // If-Range de outra versão ignoram o Range (200 completo, permitido pela RFC 9110, 14.2)
+    private static HttpRange faixaPedida(HttpServletRequest request, String etag, long modificadoEm) {
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range == null || !"GET".equals(request.getMethod())) {
+            return null;
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null) {
+            String valor = ifRange.trim();
+            boolean mesmaVersao = valor.startsWith("\"") || valor.startsWith("W/")
+                    ? valor.equals(etag) // comparação forte: ETag fraca nunca casa
+                    : modificadoEm != SEM_DATA && dataDoCabecalho(request, HttpHeaders.IF_RANGE) == modificadoEm;
+            if (!mesmaVersao) {
+                return null;
+            }
+        }
+        try {
+            List<HttpRange> faixas = HttpRange.parseRanges(range);
+            return faixas.size() == 1 ? faixas.get(0) : null;
+        } catch (IllegalArgumentException invalido) {
+            return null;
+        }
+    }
+
+    private static String sha256(byte[] conteudo) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(conteudo));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível na JVM", e);
+        }
+    }
+
+    private static String semPrefixoFraco(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    private static long dataDoCabecalho(HttpServletRequest request, String nome) {
+        try {
+            return request.getDateHeader(nome);
+        } catch (IllegalArgumentException formatoInvalido) {
+            return -1;
+        }
+    }
+}
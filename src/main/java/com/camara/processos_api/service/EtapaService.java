@@ -7,10 +7,12 @@ import com.camara.processos_api.exception.ResourceNotFoundException;
 import com.camara.processos_api.mapper.EtapaMapper;
 import com.camara.processos_api.model.Arquivo;
 import com.camara.processos_api.model.Etapa;
+import com.camara.processos_api.model.ParticipacaoProcesso;
 import com.camara.processos_api.model.Processo;
 import com.camara.processos_api.model.Usuario;
 import com.camara.processos_api.repository.ArquivoRepository;
 import com.camara.processos_api.repository.EtapaRepository;
+import com.camara.processos_api.repository.ParticipacaoProcessoRepository;
 import com.camara.processos_api.repository.ProcessoRepository;
 import com.camara.processos_api.repository.UsuarioRepository;
 import jakarta.transaction.Transactional;
@@ -18,11 +20,9 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -35,28 +35,23 @@ public class EtapaService {
     private final UsuarioRepository usuarioRepository;
     private final EtapaMapper etapaMapper;
     private final NotificacaoService notificacaoService;
-    private final PdfGenerationService pdfService;
-    private final FileStorageService fileStorageService;
+    private final ConteudoArquivoService conteudoArquivoService;
     private final ArquivoRepository arquivoRepository;
+    private final DespachoRenderService despachoRenderService;
+    private final AssinaturaService assinaturaService;
+    private final BuscaProcessoService buscaProcessoService;
+    private final ParticipacaoProcessoRepository participacaoProcessoRepository;
+    private final CacheEntidadesService cacheEntidadesService;
+    private final ZipCacheService zipCacheService;
 
     @Transactional
     public EtapaResponseDTO criarEtapa(Long processoId, EtapaRequestDTO dto, Usuario remetente) {
         // Verifica responsável atual: se houver etapa anterior, apenas o destinatário atual pode encaminhar
-        var optUltima = etapaRepository.findTopByProcessoIdOrderByDataEnvioDesc(processoId);
-        if (optUltima.isPresent()) {
-            Etapa ultimaEtapa = optUltima.get();
-            if (!ultimaEtapa.getParaUsuario().getId().equals(remetente.getId())) {
-                throw new AuthorizationException("Acesso negado. Você não é o responsável atual por este processo.");
-            }
-        }
-
-        Processo processo = processoRepository.findById(processoId)
-                .orElseThrow(() -> new ResourceNotFoundException("Processo não encontrado com o ID: " + processoId));
+        Processo processo = carregarParaEncaminhar(processoId, remetente);
 
         // NOVO: Atualiza e persiste o protocolo se SECADM enviar
         if ("secadm".equalsIgnoreCase(remetente.getPerfil()) && dto.getProtocolo() != null && !dto.getProtocolo().isBlank()) {
-            processo.setProtocolo(dto.getProtocolo().trim());
-            processoRepository.save(processo);
+            atribuirProtocolo(processo, dto.getProtocolo().trim());
         }
 
         Usuario paraUsuario = usuarioRepository.findById(dto.getParaUsuarioId())
@@ -75,14 +70,24 @@ public class EtapaService {
 
         novaEtapa.setStatus(dto.getStatus());
         novaEtapa.setObservacao(dto.getObservacao());
-        // NÃO persistir Base64 no banco para evitar truncation
+        // NÃO persistir Base64 no banco: a imagem é normalizada uma vez e guardada como asset compartilhado
         novaEtapa.setAssinatura(null);
+        novaEtapa.setAssinaturaImagem(assinaturaService.registrar(selecionarAssinatura(dto)));
+        novaEtapa.setUsarAssinaturaTexto(dto.isUsarAssinaturaTexto());
         novaEtapa.setDataEnvio(LocalDateTime.now());
 
         processo.setStatus(dto.getStatus());
         processoRepository.save(processo);
 
         Etapa etapaSalva = etapaRepository.save(novaEtapa);
+        processo.setUltimaEtapaId(etapaSalva.getId());
+        processo.setResponsavelAtualId(paraUsuario.getId());
+        buscaProcessoService.indexarEtapa(processo.getId(), etapaSalva.getId(), etapaSalva.getObservacao());
+        registrarParticipacoes(processo, remetente, paraUsuario, etapaSalva.getDataEnvio());
+        // A etapa é salva pelo lado filho: a lista de etapas do processo em cache fica desatualizada
+        cacheEntidadesService.invalidarProcessoAposCommit(processo.getId());
+        // A etapa traz anexos e PDFs de despacho novos: o ZIP em cache deixa de valer
+        zipCacheService.invalidar(processo.getId());
 
         String demanda = String.format(
                 "O processo #%d ('%s') foi encaminhado para você por %s.",
@@ -91,41 +96,8 @@ public class EtapaService {
         String link = "/processos/" + processo.getId();
         notificacaoService.criarNotificacao(remetente, paraUsuario, demanda, link);
 
-        // Seleciona assinatura para o PDF (preferindo a imagem Base64)
-        String assinaturaParaPdf = (dto.getAssinaturaImagemBase64() != null && !dto.getAssinaturaImagemBase64().isBlank())
-                ? dto.getAssinaturaImagemBase64() : dto.getAssinatura();
-
-        try {
-            // Gera o arquivo PDF com os dados da etapa (uma página), usando a assinatura recebida
-            File pdfFile = pdfService.gerarPdfDeEtapa(etapaSalva, assinaturaParaPdf, dto.isUsarAssinaturaTexto());
-
-            // Salva o PDF gerado no disco usando nosso serviço de arquivos
-            String caminhoPdf;
-            try (FileInputStream fis = new FileInputStream(pdfFile)) {
-                caminhoPdf = fileStorageService.storeFile(fis, pdfFile.getName(), processoId);
-            }
-
-            // Cria um registro de 'Arquivo' para o PDF gerado
-            Arquivo arquivoPdf = new Arquivo();
-            arquivoPdf.setProcesso(etapaSalva.getProcesso());
-            arquivoPdf.setEtapa(etapaSalva); // Associa o PDF à etapa que o gerou
-            arquivoPdf.setNomeArquivo(pdfFile.getName());
-            arquivoPdf.setCaminhoArquivo(caminhoPdf);
-            arquivoPdf.setTipo("application/pdf");
-            arquivoPdf.setEnviadoPor(remetente);
-            arquivoPdf.setDataEnvio(LocalDateTime.now());
-            arquivoRepository.save(arquivoPdf);
-
-            // Remove o arquivo temporário gerado
-            pdfFile.delete();
-
-        } catch (IOException e) {
-            // Lidar com o erro de geração/armazenamento de PDF
-            System.err.println("Erro ao gerar/armazenar o PDF da etapa: " + e.getMessage());
-        }
-
-        // Atualiza/gera o PDF consolidado (sempre adiciona nova página)
-        atualizarPdfDespachoConsolidado(processoId, etapaSalva, remetente, assinaturaParaPdf, dto.isUsarAssinaturaTexto());
+        // Registra o PDF da etapa e a nova página do consolidado; a renderização roda após o commit
+        despachoRenderService.solicitarRenderizacao(etapaSalva, remetente, dto.isUsarAssinaturaTexto(), true);
 
         return etapaMapper.toResponseDTO(etapaSalva);
     }
@@ -133,21 +105,11 @@ public class EtapaService {
     @Transactional
     public EtapaResponseDTO criarEtapaComArquivos(Long processoId, EtapaRequestDTO dto, List<MultipartFile> arquivos, Usuario remetente) {
         // Verificação de responsabilidade igual ao método criarEtapa
-        var optUltima = etapaRepository.findTopByProcessoIdOrderByDataEnvioDesc(processoId);
-        if (optUltima.isPresent()) {
-            Etapa ultimaEtapa = optUltima.get();
-            if (!ultimaEtapa.getParaUsuario().getId().equals(remetente.getId())) {
-                throw new AuthorizationException("Acesso negado. Você não é o responsável atual por este processo.");
-            }
-        }
-
-        Processo processo = processoRepository.findById(processoId)
-                .orElseThrow(() -> new ResourceNotFoundException("Processo não encontrado com o ID: " + processoId));
+        Processo processo = carregarParaEncaminhar(processoId, remetente);
 
         // NOVO: Lógica para atualizar o protocolo se o usuário for o 'secadm'
         if ("secadm".equalsIgnoreCase(remetente.getPerfil()) && dto.getProtocolo() != null && !dto.getProtocolo().isBlank()) {
-            processo.setProtocolo(dto.getProtocolo().trim());
-            processoRepository.save(processo); // Salva a atualização do protocolo no processo principal
+            atribuirProtocolo(processo, dto.getProtocolo().trim()); // Salva a atualização do protocolo no processo principal
         }
 
         Usuario paraUsuario = usuarioRepository.findById(dto.getParaUsuarioId())
@@ -161,14 +123,24 @@ public class EtapaService {
         novaEtapa.setParaDepartamento(dto.getParaDepartamento());
         novaEtapa.setStatus(dto.getStatus());
         novaEtapa.setObservacao(dto.getObservacao());
-        // NÃO persistir Base64 no banco
+        // NÃO persistir Base64 no banco: a imagem é normalizada uma vez e guardada como asset compartilhado
         novaEtapa.setAssinatura(null);
+        novaEtapa.setAssinaturaImagem(assinaturaService.registrar(selecionarAssinatura(dto)));
+        novaEtapa.setUsarAssinaturaTexto(dto.isUsarAssinaturaTexto());
         novaEtapa.setDataEnvio(LocalDateTime.now());
 
         processo.setStatus(dto.getStatus());
         processoRepository.save(processo);
 
         Etapa etapaSalva = etapaRepository.save(novaEtapa);
+        processo.setUltimaEtapaId(etapaSalva.getId());
+        processo.setResponsavelAtualId(paraUsuario.getId());
+        buscaProcessoService.indexarEtapa(processo.getId(), etapaSalva.getId(), etapaSalva.getObservacao());
+        registrarParticipacoes(processo, remetente, paraUsuario, etapaSalva.getDataEnvio());
+        // A etapa é salva pelo lado filho: a lista de etapas do processo em cache fica desatualizada
+        cacheEntidadesService.invalidarProcessoAposCommit(processo.getId());
+        // A etapa traz anexos e PDFs de despacho novos: o ZIP em cache deixa de valer
+        zipCacheService.invalidar(processo.getId());
 
         // Notificação
         String demanda = String.format(
@@ -178,23 +150,21 @@ public class EtapaService {
         String link = "/processos/" + processo.getId();
         notificacaoService.criarNotificacao(remetente, paraUsuario, demanda, link);
 
-        String assinaturaParaPdf = (dto.getAssinaturaImagemBase64() != null && !dto.getAssinaturaImagemBase64().isBlank())
-                ? dto.getAssinaturaImagemBase64() : dto.getAssinatura();
-
-        // Atualiza/gera o PDF consolidado (sempre adiciona nova página)
-        atualizarPdfDespachoConsolidado(processoId, etapaSalva, remetente, assinaturaParaPdf, dto.isUsarAssinaturaTexto());
+        // Registra a nova página do consolidado; a renderização roda após o commit
+        despachoRenderService.solicitarRenderizacao(etapaSalva, remetente, dto.isUsarAssinaturaTexto(), false);
 
         // Salvar anexos enviados junto com a etapa (se houver)
         if (arquivos != null && !arquivos.isEmpty()) {
             for (MultipartFile file : arquivos) {
                 if (file != null && !file.isEmpty()) {
                     try {
-                        String caminho = fileStorageService.storeFile(file, processoId);
+                        ConteudoArquivoService.ConteudoArmazenado conteudo = conteudoArquivoService.armazenar(file, processoId);
                         Arquivo novoArquivo = new Arquivo();
                         novoArquivo.setProcesso(etapaSalva.getProcesso());
                         novoArquivo.setEtapa(etapaSalva);
                         novoArquivo.setNomeArquivo(file.getOriginalFilename());
-                        novoArquivo.setCaminhoArquivo(caminho);
+                        novoArquivo.setCaminhoArquivo(conteudo.caminho());
+                        novoArquivo.setHashConteudo(conteudo.hash());
                         novoArquivo.setTipo(file.getContentType());
                         novoArquivo.setEnviadoPor(remetente);
                         novoArquivo.setDataEnvio(LocalDateTime.now());
@@ -218,43 +188,83 @@ public class EtapaService {
         return etapas.stream().map(etapaMapper::toResponseDTO).collect(Collectors.toList());
     }
 
-    // Método utilitário centralizado para manter uma única fonte de verdade
-    private void atualizarPdfDespachoConsolidado(Long processoId, Etapa etapaSalva, Usuario remetente, String assinaturaBase64, boolean usarAssinaturaTexto) {
-        try {
-            // 1. Procura pelo PDF consolidado existente
-            Optional<Arquivo> ultimoPdfOpt = arquivoRepository.findTopByProcessoIdAndTipoAndNomeArquivoStartingWithOrderByIdDesc(
-                    processoId, "application/pdf", "despacho_processo_"
-            );
+    /**
+     * Responsável atual do processo: a coluna responsavel_atual_id ou, enquanto ela não foi preenchida
+     * (processos anteriores a ela, antes do backfill do schema.sql), o destinatário da última etapa.
+     * Vazio se o processo não existe ou não tem etapas.
+     */
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public Optional<Long> buscarResponsavelAtualId(Long processoId) {
+        Optional<Long> responsavel = processoRepository.findResponsavelAtualId(processoId);
+        return responsavel.isPresent() ? responsavel : destinatarioDaUltimaEtapa(processoId);
+    }
 
-            File pdfExistente = ultimoPdfOpt.map(a -> new File(a.getCaminhoArquivo())).orElse(null);
+    // Carrega o processo com trava de escrita e confere se o remetente é o responsável atual.
+    // Sem responsável gravado vale a última etapa; sem etapas (processo recém-criado), quem criou o processo
+    private Processo carregarParaEncaminhar(Long processoId, Usuario remetente) {
+        Processo processo = processoRepository.findByIdParaAtualizacao(processoId)
+                .orElseThrow(() -> new ResourceNotFoundException("Processo não encontrado com o ID: " + processoId));
+        Long responsavelId = processo.getResponsavelAtualId();
+        if (responsavelId == null) {
+            responsavelId = destinatarioDaUltimaEtapa(processoId)
+                    .orElse(processo.getCriadoPor() != null ? processo.getCriadoPor().getId() : null);
+        }
+        if (responsavelId == null || !responsavelId.equals(remetente.getId())) {
+            throw new AuthorizationException("Acesso negado. Você não é o responsável atual por este processo.");
+        }
+        return processo;
+    }
 
-            // 2. Gera um novo PDF com todas as páginas anteriores + a página nova
-            File pdfAtualizadoFile = pdfService.adicionarPaginaDeDespacho(pdfExistente, etapaSalva, assinaturaBase64, usarAssinaturaTexto);
+    // Mesma definição do backfill: o destinatário da etapa de maior id
+    private Optional<Long> destinatarioDaUltimaEtapa(Long processoId) {
+        return etapaRepository.findTopByProcessoIdOrderByIdDesc(processoId)
+                .map(Etapa::getParaUsuario)
+                .map(Usuario::getId);
+    }
 
-            // 3. Salva fisicamente no diretório do processo
-            String caminhoNovoPdf;
-            try (FileInputStream fis = new FileInputStream(pdfAtualizadoFile)) {
-                caminhoNovoPdf = fileStorageService.storeFile(fis, pdfAtualizadoFile.getName(), processoId);
-            }
+    // Upsert em participacoes_processo para remetente e destinatário. Roda com a linha do processo
+    // travada (carregarParaEncaminhar), então dois encaminhamentos do mesmo processo não disputam as linhas.
+    private void registrarParticipacoes(Processo processo, Usuario remetente, Usuario destinatario, LocalDateTime quando) {
+        Map<Long, ParticipacaoProcesso> existentes = participacaoProcessoRepository
+                .findByProcessoIdAndUsuarioIdIn(processo.getId(), List.of(remetente.getId(), destinatario.getId())).stream()
+                .collect(Collectors.toMap(ParticipacaoProcesso::getUsuarioId, pp -> pp));
 
-            // 4. Atualiza ou cria o registro no banco
-            Arquivo registroPdf = ultimoPdfOpt.orElseGet(Arquivo::new);
-            registroPdf.setProcesso(etapaSalva.getProcesso());
-            registroPdf.setEtapa(etapaSalva);
-            registroPdf.setNomeArquivo(pdfAtualizadoFile.getName());
-            registroPdf.setCaminhoArquivo(caminhoNovoPdf);
-            registroPdf.setTipo("application/pdf");
-            registroPdf.setEnviadoPor(remetente);
-            registroPdf.setDataEnvio(LocalDateTime.now());
-            arquivoRepository.save(registroPdf);
-
-            // 5. Limpa o arquivo temporário
-            if (!pdfAtualizadoFile.delete()) {
-                System.err.println("[WARN] Não foi possível excluir o arquivo temporário do PDF: " + pdfAtualizadoFile.getAbsolutePath());
-            }
+        registrarParticipacao(existentes, processo, remetente.getId(), ParticipacaoProcesso.PAPEL_REMETENTE, quando);
+        if (!destinatario.getId().equals(remetente.getId())) {
+            registrarParticipacao(existentes, processo, destinatario.getId(), ParticipacaoProcesso.PAPEL_DESTINATARIO, quando);
+        }
+    }
+
+    private void registrarParticipacao(Map<Long, ParticipacaoProcesso> existentes, Processo processo,
+                                       Long usuarioId, String papel, LocalDateTime quando) {
+        ParticipacaoProcesso participacao = existentes.get(usuarioId);
+        if (participacao == null) {
+            participacao = new ParticipacaoProcesso();
+            participacao.setUsuarioId(usuarioId);
+            participacao.setProcessoId(processo.getId());
+            participacao.setDataCriacaoProcesso(processo.getDataCriacao());
+            participacao.setPapel(papel);
+        } else if (ParticipacaoProcesso.PAPEL_REMETENTE.equals(papel)) {
+            // Quem já encaminhou continua REMETENTE mesmo que depois volte a receber
+            participacao.setPapel(papel);
+        }
+        participacao.setUltimaAcao(quando);
+        participacaoProcessoRepository.save(participacao);
+    }
 
-        } catch (IOException e) {
-            System.err.println("ERRO CRÍTICO ao atualizar o PDF de despacho: " + e.getMessage());
+    // Persiste o protocolo e, se mudou, enfileira o carimbo das páginas já geradas (antes da página da nova etapa)
+    private void atribuirProtocolo(Processo processo, String protocolo) {
+        if (protocolo.equals(processo.getProtocolo())) {
+            return;
         }
+        processo.setProtocolo(protocolo);
+        processoRepository.save(processo);
+        despachoRenderService.solicitarCarimboProtocolo(processo.getId());
+    }
+
+    // Seleciona assinatura para o PDF (preferindo a imagem Base64)
+    private String selecionarAssinatura(EtapaRequestDTO dto) {
+        return (dto.getAssinaturaImagemBase64() != null && !dto.getAssinaturaImagemBase64().isBlank())
+                ? dto.getAssinaturaImagemBase64() : dto.getAssinatura();
     }
 }
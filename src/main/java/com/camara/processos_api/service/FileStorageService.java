@@ -100,6 +100,44 @@ public class FileStorageService {
         }
     }
 
+    /**
+     * Salva conteúdo já gerado em memória no disco, em uma única escrita.
+     * @param conteudo bytes do arquivo (ex.: PDF gerado pelo iText)
+     * @param originalFileName nome do arquivo
+     * @param processoId subdiretório do processo
+     * @return caminho completo do arquivo salvo
+     */
+    public String storeFile(byte[] conteudo, String originalFileName, Long processoId) {
+        Path filePath = resolverCaminho(originalFileName, processoId);
+        try {
+            Files.write(filePath, conteudo);
+            return filePath.toString();
+        } catch (IOException ex) {
+            throw new FileStorageException("Não foi possível salvar o arquivo " + filePath.getFileName(), ex);
+        }
+    }
+
+    /**
+     * Resolve o caminho de um arquivo dentro do diretório do processo, sem gravar nada.
+     * Usado quando o conteúdo é escrito diretamente no destino (ex.: PDF consolidado incremental).
+     * @param originalFileName nome do arquivo
+     * @param processoId subdiretório do processo
+     * @return caminho completo do arquivo
+     */
+    public Path resolverCaminho(String originalFileName, Long processoId) {
+        String cleanedName = StringUtils.cleanPath(Objects.requireNonNull(originalFileName));
+        if (cleanedName.contains("..")) {
+            throw new FileStorageException("Nome de arquivo inválido: " + cleanedName);
+        }
+        Path targetLocation = this.fileStorageLocation.resolve(String.valueOf(processoId));
+        try {
+            Files.createDirectories(targetLocation);
+        } catch (IOException ex) {
+            throw new FileStorageException("Não foi possível criar o diretório para o processo " + processoId, ex);
+        }
+        return targetLocation.resolve(cleanedName);
+    }
+
     /**
      * Carrega um arquivo como um Resource para download.
      * @param filePath O caminho completo do arquivo no disco.
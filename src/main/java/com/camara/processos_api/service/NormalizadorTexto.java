@@ -0,0 +1,52 @@
+package com.camara.processos_api.service;
+
+import java.text.Normalizer;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Normalização usada tanto na indexação quanto na consulta da busca textual: remove acentos,
+ * converte para minúsculas, quebra em palavras e descarta stopwords do português.
+ */
+final class NormalizadorTexto {
+
+    static final int TAMANHO_MAXIMO_TERMO = 60;
+
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^a-z0-9]+");
+
+    // Já sem acento, pois são comparadas depois da normalização
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "o", "as", "os", "um", "uma", "uns", "umas", "de", "da", "do", "das", "dos",
+            "em", "no", "na", "nos", "nas", "num", "numa", "ao", "aos", "e", "ou", "que", "se",
+            "por", "pelo", "pela", "pelos", "pelas", "para", "pra", "com", "sem", "sob", "sobre",
+            "entre", "ate", "apos", "como", "mais", "menos", "muito", "ja", "nao", "sim", "seu",
+            "sua", "seus", "suas", "ele", "ela", "eles", "elas", "este", "esta", "esse", "essa",
+            "isto", "isso", "aquele", "aquela", "foi", "ser", "sao", "ha", "tem", "lhe");
+
+    private NormalizadorTexto() {}
+
+    /** Termos normalizados do texto com o número de ocorrências, na ordem em que aparecem. */
+    static Map<String, Integer> contarTermos(String texto) {
+        Map<String, Integer> termos = new LinkedHashMap<>();
+        if (texto == null || texto.isBlank()) {
+            return termos;
+        }
+        String semAcento = MARCAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        for (String palavra : SEPARADORES.split(semAcento.toLowerCase(Locale.ROOT))) {
+            if (palavra.isEmpty() || STOPWORDS.contains(palavra)) {
+                continue;
+            }
+            // Letra solta não ajuda a encontrar nada; números curtos (ex.: "2024", "5") sim
+            if (palavra.length() < 2 && !Character.isDigit(palavra.charAt(0))) {
+                continue;
+            }
+            String termo = palavra.length() > TAMANHO_MAXIMO_TERMO ? palavra.substring(0, TAMANHO_MAXIMO_TERMO) : palavra;
+            termos.merge(termo, 1, Integer::sum);
+        }
+        return termos;
+    }
+}
@@ -1,16 +1,36 @@
 package com.camara.processos_api.service;
 
+import com.camara.processos_api.config.DespachoPdfConfig;
+import com.camara.processos_api.model.AssinaturaImagem;
 import com.camara.processos_api.model.Etapa;
+import com.itextpdf.io.font.constants.StandardFonts;
+import com.itextpdf.io.image.ImageData;
 import com.itextpdf.io.image.ImageDataFactory;
+import com.itextpdf.kernel.font.PdfFont;
+import com.itextpdf.kernel.font.PdfFontFactory;
+import com.itextpdf.kernel.pdf.CompressionConstants;
+import com.itextpdf.kernel.pdf.PdfArray;
+import com.itextpdf.kernel.pdf.PdfDictionary;
 import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfName;
 import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.PdfPage;
+import com.itextpdf.kernel.pdf.PdfStream;
+import com.itextpdf.kernel.pdf.PdfString;
 import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.pdf.StampingProperties;
+import com.itextpdf.kernel.pdf.WriterProperties;
 import com.itextpdf.layout.Document;
+import com.itextpdf.kernel.pdf.xobject.PdfFormXObject;
+import com.itextpdf.kernel.pdf.xobject.PdfImageXObject;
+import com.itextpdf.layout.element.AreaBreak;
+import com.itextpdf.layout.element.Div;
 import com.itextpdf.layout.element.Image;
 import com.itextpdf.layout.element.Paragraph;
 import com.itextpdf.layout.element.Text;
 import com.itextpdf.layout.element.LineSeparator;
 import com.itextpdf.kernel.pdf.canvas.draw.SolidLine;
+import com.itextpdf.layout.properties.AreaBreakType;
 import com.itextpdf.layout.properties.TextAlignment;
 import com.itextpdf.layout.properties.UnitValue;
 import com.itextpdf.layout.properties.HorizontalAlignment;
@@ -19,178 +39,532 @@ import com.itextpdf.layout.element.Cell;
 import com.itextpdf.layout.borders.Border;
 import com.itextpdf.kernel.geom.Rectangle;
 import com.itextpdf.kernel.pdf.canvas.PdfCanvas;
+import com.itextpdf.kernel.pdf.layer.PdfLayer;
 import com.itextpdf.layout.Canvas;
 import com.itextpdf.kernel.colors.DeviceGray;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
-import java.io.File;
+import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.format.DateTimeFormatter;
-import java.util.Base64;
+import java.util.List;
 
 @Service
+@RequiredArgsConstructor
 public class PdfGenerationService {
 
+    private static final DateTimeFormatter FORMATO_DATA_HORA = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+    private static final DateTimeFormatter FORMATO_DATA_ASSINATURA = DateTimeFormatter.ofPattern("dd 'de' MMMM 'de' yyyy 'às' HH:mm:ss");
+
+    // Chaves do registro de recursos compartilhados no catálogo (versionar ao mudar o layout do cabeçalho)
+    private static final PdfName REGISTRO_RECURSOS = new PdfName("SicomRecursos");
+    private static final PdfName FONTE_DESPACHO = new PdfName("FonteDespacho");
+    private static final PdfName ASSINATURAS = new PdfName("Assinaturas");
+    private static final PdfName CABECALHO_DESPACHO = new PdfName("CabecalhoDespachoV1");
+    // Marca na própria página: o protocolo já aparece nela (carimbado ou impresso no corpo)
+    private static final PdfName PROTOCOLO_PAGINA = new PdfName("SicomProtocolo");
+    // Marca na própria página: id da etapa cujo despacho ela contém (torna a anexação repetível)
+    private static final PdfName ETAPA_PAGINA = new PdfName("SicomEtapa");
+    private static final String CAMADA_CARIMBO = "Carimbo de protocolo";
+
+    // Logo decodificado uma única vez; cada PDF guarda uma cópia só, dentro do XObject do cabeçalho
+    private static final ImageData LOGO_CABECALHO = carregarLogoCabecalho();
+
+    private final DespachoPdfConfig despachoPdfConfig;
+
     /**
      * Gera um PDF de uma única página com o conteúdo da etapa (para histórico individual).
+     * O documento é montado em memória; quem chama decide onde gravar os bytes.
      */
-    public File gerarPdfDeEtapa(Etapa etapa) throws IOException {
-        String nomeArquivo = "despacho_etapa_" + etapa.getId() + ".pdf";
-        File pdfFile = new File(System.getProperty("java.io.tmpdir"), nomeArquivo);
-
-        try (PdfDocument pdfDoc = new PdfDocument(new PdfWriter(pdfFile));
-             Document document = new Document(pdfDoc)) {
-            preencherPaginaDespacho(document, etapa, etapa.getAssinatura(), false);
-        }
-        return pdfFile;
+    public byte[] gerarPdfDeEtapa(Etapa etapa) throws IOException {
+        return gerarPdfDeEtapa(etapa, etapa.getAssinaturaImagem(), false);
     }
 
     /**
-     * Gera PDF da etapa usando assinatura fornecida (sem precisar persistir Base64)
+     * Gera PDF da etapa usando a assinatura fornecida
      */
-    public File gerarPdfDeEtapa(Etapa etapa, String assinaturaBase64) throws IOException {
+    public byte[] gerarPdfDeEtapa(Etapa etapa, AssinaturaImagem assinatura) throws IOException {
         // preserva compatibilidade chamando com usarAssinaturaTexto=false
-        return gerarPdfDeEtapa(etapa, assinaturaBase64, false);
+        return gerarPdfDeEtapa(etapa, assinatura, false);
     }
 
     // NOVO: versão com flag para assinatura padronizada em texto
-    public File gerarPdfDeEtapa(Etapa etapa, String assinaturaBase64, boolean usarAssinaturaTexto) throws IOException {
-        String nomeArquivo = "despacho_etapa_" + etapa.getId() + ".pdf";
-        File pdfFile = new File(System.getProperty("java.io.tmpdir"), nomeArquivo);
-        try (PdfDocument pdfDoc = new PdfDocument(new PdfWriter(pdfFile));
+    public byte[] gerarPdfDeEtapa(Etapa etapa, AssinaturaImagem assinatura, boolean usarAssinaturaTexto) throws IOException {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        try (PdfDocument pdfDoc = new PdfDocument(novoWriter(saida, false));
              Document document = new Document(pdfDoc)) {
-            preencherPaginaDespacho(document, etapa, assinaturaBase64, usarAssinaturaTexto);
+            preencherPaginaDespacho(document, etapa, assinatura, usarAssinaturaTexto);
         }
-        return pdfFile;
+        relatarTamanho("etapa " + etapa.getId(), 1, saida.size());
+        return saida.toByteArray();
     }
 
     /**
      * Adiciona uma nova página de despacho a um PDF existente, ou cria um novo se não houver.
-     * Assinatura (imagem base64) é obtida da própria etapa.
+     * Assinatura (imagem normalizada) é obtida da própria etapa.
      */
-    public File adicionarPaginaDeDespacho(File pdfExistente, Etapa etapa) throws IOException {
-        return adicionarPaginaDeDespacho(pdfExistente, etapa, etapa.getAssinatura(), false);
+    public byte[] adicionarPaginaDeDespacho(Path pdfExistente, Etapa etapa) throws IOException {
+        return adicionarPaginaDeDespacho(pdfExistente, etapa, etapa.getAssinaturaImagem(), false);
     }
 
     /**
      * Adiciona uma nova página de despacho a um PDF existente, ou cria um novo se não houver.
      * Compatibilidade com chamadas antigas: usarAssinaturaTexto=false por padrão.
      */
-    public File adicionarPaginaDeDespacho(File pdfExistente, Etapa etapa, String assinaturaBase64) throws IOException {
-        return adicionarPaginaDeDespacho(pdfExistente, etapa, assinaturaBase64, false);
+    public byte[] adicionarPaginaDeDespacho(Path pdfExistente, Etapa etapa, AssinaturaImagem assinatura) throws IOException {
+        return adicionarPaginaDeDespacho(pdfExistente, etapa, assinatura, false);
     }
 
     /**
      * Adiciona uma nova página de despacho a um PDF existente, ou cria um novo se não houver.
-     * @param pdfExistente O arquivo PDF anterior (pode ser nulo se for a primeira etapa).
+     * Modo legado (reconstrução completa): tudo acontece em memória, sem arquivos temporários.
+     * @param pdfExistente O PDF consolidado anterior (pode ser nulo se for a primeira etapa).
      * @param etapa A nova etapa com os dados a serem adicionados.
-     * @param assinaturaBase64 A imagem da assinatura desenhada, codificada em Base64 (pode ser null).
+     * @param assinatura A assinatura desenhada já normalizada (pode ser null).
      * @param usarAssinaturaTexto Se true, imprime bloco de assinatura padronizado em texto.
-     * @return Um novo arquivo File contendo o PDF atualizado.
+     * @return Os bytes do PDF atualizado, prontos para a gravação final.
      */
-    public File adicionarPaginaDeDespacho(File pdfExistente, Etapa etapa, String assinaturaBase64, boolean usarAssinaturaTexto) throws IOException {
-        // Alinha com padrão utilizado no projeto/BD: despacho_processo_{id}.pdf
-        String nomeArquivo = "despacho_processo_" + etapa.getProcesso().getId() + ".pdf";
-        File novoPdfFile = new File(System.getProperty("java.io.tmpdir"), nomeArquivo);
+    public byte[] adicionarPaginaDeDespacho(Path pdfExistente, Etapa etapa, AssinaturaImagem assinatura, boolean usarAssinaturaTexto) throws IOException {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
 
         // Cria/abre o documento de destino
-        try (PdfDocument destino = new PdfDocument(new PdfWriter(novoPdfFile))) {
+        int totalPaginas;
+        // Cópia de páginas: no modo compacto o smart mode reaproveita fontes, logo e assinaturas repetidos
+        try (PdfDocument destino = new PdfDocument(novoWriter(saida, true))) {
             // 1) Copia todas as páginas do PDF existente (se existir)
-            if (pdfExistente != null && pdfExistente.exists()) {
-                try (PdfDocument origemAntiga = new PdfDocument(new PdfReader(pdfExistente))) {
+            boolean jaAnexada = false;
+            if (pdfExistente != null && Files.exists(pdfExistente)) {
+                try (PdfDocument origemAntiga = new PdfDocument(new PdfReader(pdfExistente.toFile()))) {
                     if (origemAntiga.getNumberOfPages() > 0) {
+                        jaAnexada = ultimaPaginaEhDaEtapa(origemAntiga, etapa);
                         origemAntiga.copyPagesTo(1, origemAntiga.getNumberOfPages(), destino);
                     }
                 }
             }
             int oldPageCount = destino.getNumberOfPages();
 
-            // 2) Gera um PDF de 1 página para a nova etapa e copia essa(s) página(s)
-            File paginaNova = gerarPdfDeEtapa(etapa, assinaturaBase64, usarAssinaturaTexto);
-            try (PdfDocument origemNova = new PdfDocument(new PdfReader(paginaNova))) {
-                if (origemNova.getNumberOfPages() > 0) {
-                    origemNova.copyPagesTo(1, origemNova.getNumberOfPages(), destino);
+            // 2) Gera a página da nova etapa em memória e copia para o destino (a menos que uma
+            //    execução anterior do mesmo job já a tenha gravado)
+            if (!jaAnexada) {
+                byte[] paginaNova = gerarPdfDeEtapa(etapa, assinatura, usarAssinaturaTexto);
+                try (PdfDocument origemNova = new PdfDocument(new PdfReader(new ByteArrayInputStream(paginaNova)))) {
+                    if (origemNova.getNumberOfPages() > 0) {
+                        origemNova.copyPagesTo(1, origemNova.getNumberOfPages(), destino);
+                    }
                 }
-            } finally {
-                // Limpa o PDF temporário da página nova
-                //noinspection ResultOfMethodCallIgnored
-                paginaNova.delete();
             }
 
-            // 3) Se houver protocolo, carimba nas páginas antigas (1..oldPageCount)
+            // 3) Se houver protocolo, carimba as páginas antigas que ainda não o exibem
             String protocolo = etapa.getProcesso().getProtocolo();
             if (protocolo != null && !protocolo.isBlank() && oldPageCount > 0) {
-                String textoCarimbo = "Processo nº: " + protocolo;
-                for (int i = 1; i <= oldPageCount; i++) {
-                    var page = destino.getPage(i);
-                    Rectangle pageSize = page.getPageSize();
-                    float x = pageSize.getWidth() / 2f;
-                    float y = pageSize.getTop() - 24f; // 24pt da borda superior
-                    try (Canvas canvas = new Canvas(new PdfCanvas(page), pageSize)) {
-                        canvas.setFontSize(9f)
-                              .setFontColor(DeviceGray.BLACK)
-                              .showTextAligned(textoCarimbo, x, y, TextAlignment.CENTER);
-                    }
+                carimbarPaginasSemProtocolo(destino, protocolo, oldPageCount);
+            }
+            totalPaginas = destino.getNumberOfPages();
+        }
+
+        relatarTamanho("consolidado do processo " + etapa.getProcesso().getId(), totalPaginas, saida.size());
+        return saida.toByteArray();
+    }
+
+    /**
+     * Gera o PDF consolidado inteiro de uma vez, uma página por etapa, na ordem recebida.
+     * Usado na regeneração em lote: cabeçalho, fonte e assinaturas entram no registro de recursos
+     * desde a primeira página, como se o arquivo tivesse sido montado etapa a etapa.
+     */
+    public byte[] gerarPdfConsolidado(List<Etapa> etapas) throws IOException {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        try (PdfDocument pdfDoc = new PdfDocument(novoWriter(saida, false));
+             Document document = new Document(pdfDoc)) {
+            for (int i = 0; i < etapas.size(); i++) {
+                if (i > 0) {
+                    document.add(new AreaBreak(AreaBreakType.NEXT_PAGE));
+                }
+                Etapa etapa = etapas.get(i);
+                preencherPaginaDespacho(document, etapa, etapa.getAssinaturaImagem(), Boolean.TRUE.equals(etapa.getUsarAssinaturaTexto()));
+            }
+        }
+        if (!etapas.isEmpty()) {
+            relatarTamanho("consolidado do processo " + etapas.get(0).getProcesso().getId(), etapas.size(), saida.size());
+        }
+        return saida.toByteArray();
+    }
+
+    /**
+     * Acrescenta a página da etapa ao PDF consolidado como atualização incremental (append mode).
+     * As páginas anteriores não são copiadas nem reescritas: só os objetos novos (página, nó da
+     * árvore de páginas e xref) são gravados ao final do arquivo, então o custo não depende do histórico.
+     * Se o arquivo ainda não existir, cria o PDF com a primeira página. Se a última página já for a
+     * desta etapa (job repetido depois de anexar e antes de ser concluído), o arquivo não é alterado.
+     * @param consolidado Caminho do despacho_processo_{id}.pdf (alterado no próprio local).
+     * @param etapa A nova etapa com os dados a serem adicionados.
+     * @param assinatura A assinatura desenhada já normalizada (pode ser null).
+     * @param usarAssinaturaTexto Se true, imprime bloco de assinatura padronizado em texto.
+     */
+    public void anexarPaginaDeDespacho(Path consolidado, Etapa etapa, AssinaturaImagem assinatura, boolean usarAssinaturaTexto) throws IOException {
+        if (!Files.exists(consolidado) || Files.size(consolidado) == 0) {
+            // Primeira página: monta em memória e grava de uma vez
+            Files.write(consolidado, gerarPdfDeEtapa(etapa, assinatura, usarAssinaturaTexto));
+            return;
+        }
+
+        long tamanhoOriginal = Files.size(consolidado);
+        IncrementoOutputStream incremento = new IncrementoOutputStream(tamanhoOriginal);
+        boolean jaAnexada;
+        try (PdfDocument pdfDoc = new PdfDocument(new PdfReader(consolidado.toFile()), new PdfWriter(incremento),
+                new StampingProperties().useAppendMode())) {
+            jaAnexada = ultimaPaginaEhDaEtapa(pdfDoc, etapa);
+            if (!jaAnexada) {
+                // Sem isso o iText concatena "; modified using ..." ao Producer e o Info cresce a cada etapa
+                removerProducer(pdfDoc);
+                // immediateFlush=false: evita carregar/descarregar cada página antiga ao pular para o fim
+                try (Document document = new Document(pdfDoc, pdfDoc.getDefaultPageSize(), false)) {
+                    document.add(new AreaBreak(AreaBreakType.LAST_PAGE));
+                    document.add(new AreaBreak(AreaBreakType.NEXT_PAGE));
+                    preencherPaginaDespacho(document, etapa, assinatura, usarAssinaturaTexto);
                 }
             }
         }
 
-        return novoPdfFile;
+        if (jaAnexada) {
+            System.out.println("[INFO] Página da etapa " + etapa.getId() + " já está no consolidado do processo "
+                    + etapa.getProcesso().getId() + "; anexação ignorada");
+            return;
+        }
+        // Só grava depois de renderizar tudo: se algo falhar acima, o arquivo original fica intacto
+        if (Files.size(consolidado) != tamanhoOriginal) {
+            throw new IOException("O PDF consolidado foi alterado durante a anexação: " + consolidado);
+        }
+        byte[] bytesNovos = incremento.toByteArray();
+        Files.write(consolidado, bytesNovos, StandardOpenOption.APPEND);
+        if (despachoPdfConfig.isRelatorioTamanho()) {
+            System.out.println("[INFO] PDF consolidado do processo " + etapa.getProcesso().getId() + ": +"
+                    + bytesNovos.length + " bytes anexados (total " + (tamanhoOriginal + bytesNovos.length) + " bytes)");
+        }
+    }
+
+    /**
+     * Carimba "Processo nº: ..." nas páginas do consolidado que ainda não exibem o protocolo,
+     * como atualização incremental: só as páginas carimbadas (e o novo conteúdo) são gravadas.
+     * Páginas já marcadas não são tocadas, então repetir a chamada não acumula carimbos.
+     * @return Quantidade de páginas carimbadas (0 = arquivo inalterado).
+     */
+    public int carimbarProtocolo(Path consolidado, String protocolo) throws IOException {
+        if (protocolo == null || protocolo.isBlank() || !Files.exists(consolidado) || Files.size(consolidado) == 0) {
+            return 0;
+        }
+
+        long tamanhoOriginal = Files.size(consolidado);
+        IncrementoOutputStream incremento = new IncrementoOutputStream(tamanhoOriginal);
+        int carimbadas;
+        try (PdfDocument pdfDoc = new PdfDocument(new PdfReader(consolidado.toFile()), new PdfWriter(incremento),
+                new StampingProperties().useAppendMode())) {
+            removerProducer(pdfDoc);
+            carimbadas = carimbarPaginasSemProtocolo(pdfDoc, protocolo, pdfDoc.getNumberOfPages());
+        }
+
+        if (carimbadas == 0) {
+            return 0;
+        }
+        if (Files.size(consolidado) != tamanhoOriginal) {
+            throw new IOException("O PDF consolidado foi alterado durante o carimbo: " + consolidado);
+        }
+        Files.write(consolidado, incremento.toByteArray(), StandardOpenOption.APPEND);
+        return carimbadas;
+    }
+
+    /**
+     * Carimba o protocolo nas páginas 1..ultimaPagina ainda sem a marca {@code /SicomProtocolo}.
+     * O carimbo vai numa camada opcional (OCG) própria, criada uma vez por documento.
+     */
+    int carimbarPaginasSemProtocolo(PdfDocument pdfDoc, String protocolo, int ultimaPagina) {
+        String textoCarimbo = "Processo nº: " + protocolo;
+        PdfLayer camada = null;
+        int carimbadas = 0;
+        for (int i = 1; i <= ultimaPagina; i++) {
+            PdfPage page = pdfDoc.getPage(i);
+            if (page.getPdfObject().containsKey(PROTOCOLO_PAGINA)) {
+                continue;
+            }
+            if (camada == null) {
+                camada = obterCamadaCarimbo(pdfDoc);
+            }
+            Rectangle pageSize = page.getPageSize();
+            float x = pageSize.getWidth() / 2f;
+            float y = pageSize.getTop() - 24f; // 24pt da borda superior
+            PdfCanvas pdfCanvas = new PdfCanvas(page.newContentStreamAfter(), page.getResources(), pdfDoc);
+            pdfCanvas.beginLayer(camada);
+            try (Canvas canvas = new Canvas(pdfCanvas, pageSize)) {
+                canvas.setFontSize(9f)
+                      .setFontColor(DeviceGray.BLACK)
+                      .showTextAligned(textoCarimbo, x, y, TextAlignment.CENTER);
+            }
+            pdfCanvas.endLayer();
+            marcarProtocolo(page, protocolo);
+            carimbadas++;
+        }
+        return carimbadas;
+    }
+
+    // O /Info é opcional no trailer (ex.: consolidado substituído ou restaurado de backup)
+    private static void removerProducer(PdfDocument pdfDoc) {
+        PdfDictionary info = pdfDoc.getTrailer().getAsDictionary(PdfName.Info);
+        if (info != null) {
+            info.remove(PdfName.Producer);
+        }
+    }
+
+    // Páginas geradas antes da marca /SicomEtapa nunca casam: para elas a anexação segue como antes
+    private static boolean ultimaPaginaEhDaEtapa(PdfDocument pdfDoc, Etapa etapa) {
+        if (etapa.getId() == null || pdfDoc.getNumberOfPages() == 0) {
+            return false;
+        }
+        PdfString marca = pdfDoc.getLastPage().getPdfObject().getAsString(ETAPA_PAGINA);
+        return marca != null && String.valueOf(etapa.getId()).equals(marca.toUnicodeString());
+    }
+
+    private void marcarEtapa(PdfPage page, Etapa etapa) {
+        if (etapa.getId() != null) {
+            page.getPdfObject().put(ETAPA_PAGINA, new PdfString(String.valueOf(etapa.getId())));
+            page.setModified();
+        }
+    }
+
+    private void marcarProtocolo(PdfPage page, String protocolo) {
+        page.getPdfObject().put(PROTOCOLO_PAGINA, new PdfString(protocolo));
+        page.setModified();
+    }
+
+    // A camada do carimbo é registrada uma única vez nas propriedades de conteúdo opcional do documento
+    private PdfLayer obterCamadaCarimbo(PdfDocument pdfDoc) {
+        PdfDictionary catalogo = pdfDoc.getCatalog().getPdfObject();
+        if (catalogo.getAsDictionary(PdfName.OCProperties) == null) {
+            // Em append mode o iText espera um /OCProperties já presente no catálogo ao gravar as camadas
+            PdfDictionary propriedades = new PdfDictionary();
+            propriedades.put(PdfName.OCGs, new PdfArray());
+            propriedades.put(PdfName.D, new PdfDictionary());
+            catalogo.put(PdfName.OCProperties, propriedades);
+            catalogo.setModified();
+        }
+        for (PdfLayer camada : pdfDoc.getCatalog().getOCProperties(true).getLayers()) {
+            PdfString nome = camada.getPdfObject().getAsString(PdfName.Name);
+            if (nome != null && CAMADA_CARIMBO.equals(nome.toUnicodeString())) {
+                return camada;
+            }
+        }
+        return new PdfLayer(CAMADA_CARIMBO, pdfDoc);
+    }
+
+    /**
+     * Writer dos PDFs gerados do zero. No modo compacto usa compressão máxima e object streams
+     * (a tabela xref também vira stream); com copiaDePaginas liga o smart mode, que grava uma vez
+     * só os objetos idênticos vindos de páginas copiadas de outros documentos.
+     * Em append mode o iText segue o formato do arquivo original, então os anexos herdam o modo.
+     */
+    PdfWriter novoWriter(OutputStream saida, boolean copiaDePaginas) {
+        if (!despachoPdfConfig.isCompacto()) {
+            return new PdfWriter(saida);
+        }
+        PdfWriter writer = new PdfWriter(saida, new WriterProperties()
+                .setFullCompressionMode(true)
+                .setCompressionLevel(CompressionConstants.BEST_COMPRESSION));
+        writer.setSmartMode(copiaDePaginas);
+        return writer;
+    }
+
+    // Relatório de tamanho por documento gerado, para acompanhar o efeito do modo compacto no disco
+    void relatarTamanho(String descricao, int paginas, long bytes) {
+        if (!despachoPdfConfig.isRelatorioTamanho()) {
+            return;
+        }
+        System.out.println("[INFO] PDF " + descricao + ": " + paginas + " página(s), " + bytes + " bytes"
+                + (despachoPdfConfig.isCompacto() ? " (compacto)" : ""));
+    }
+
+    /**
+     * Em append mode o iText reescreve o arquivo original no início da saída antes do incremento.
+     * Este stream descarta esses bytes (já presentes no disco) e guarda apenas a atualização nova.
+     */
+    private static final class IncrementoOutputStream extends OutputStream {
+        private long bytesADescartar;
+        private final ByteArrayOutputStream incremento = new ByteArrayOutputStream();
+
+        IncrementoOutputStream(long bytesADescartar) {
+            this.bytesADescartar = bytesADescartar;
+        }
+
+        @Override
+        public void write(int b) {
+            if (bytesADescartar > 0) {
+                bytesADescartar--;
+                return;
+            }
+            incremento.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (bytesADescartar > 0) {
+                int pular = (int) Math.min(bytesADescartar, len);
+                bytesADescartar -= pular;
+                off += pular;
+                len -= pular;
+            }
+            if (len > 0) {
+                incremento.write(b, off, len);
+            }
+        }
+
+        byte[] toByteArray() {
+            return incremento.toByteArray();
+        }
     }
 
     // Tenta carregar o logo do classpath em /static/logo_prefeitura.png (fallback: /logo_prefeitura.png)
-    private Image carregarLogoCabecalho() {
+    private static ImageData carregarLogoCabecalho() {
         String[] caminhos = new String[]{"/static/logo_prefeitura.png", "/logo_prefeitura.png"};
         for (String path : caminhos) {
             try (InputStream is = PdfGenerationService.class.getResourceAsStream(path)) {
                 if (is != null) {
-                    byte[] bytes = is.readAllBytes();
-                    Image img = new Image(ImageDataFactory.create(bytes));
-                    img.scaleToFit(48, 48); // logo menor
-                    img.setHorizontalAlignment(HorizontalAlignment.LEFT);
-                    return img;
+                    return ImageDataFactory.create(is.readAllBytes());
                 }
             } catch (Exception ignored) {}
         }
         return null;
     }
 
-    private void preencherPaginaDespacho(Document document, Etapa etapa, String assinaturaBase64, boolean usarAssinaturaTexto) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+    /**
+     * Registro de recursos compartilhados gravado no catálogo do PDF. Guarda a fonte e o cabeçalho já
+     * renderizado, para que cada nova página (inclusive em append mode) referencie os mesmos objetos.
+     */
+    private PdfDictionary registroDeRecursos(PdfDocument pdfDoc) {
+        PdfDictionary catalogo = pdfDoc.getCatalog().getPdfObject();
+        PdfDictionary registro = catalogo.getAsDictionary(REGISTRO_RECURSOS);
+        if (registro == null) {
+            registro = new PdfDictionary();
+            registro.makeIndirect(pdfDoc);
+            catalogo.put(REGISTRO_RECURSOS, registro);
+            catalogo.setModified();
+        }
+        return registro;
+    }
+
+    private PdfFont obterFonte(PdfDocument pdfDoc) throws IOException {
+        PdfDictionary registro = registroDeRecursos(pdfDoc);
+        PdfDictionary existente = registro.getAsDictionary(FONTE_DESPACHO);
+        if (existente != null) {
+            // getFont reaproveita a fonte já criada neste documento (ex.: várias páginas no mesmo PDF)
+            return pdfDoc.getFont(existente);
+        }
+        PdfFont fonte = pdfDoc.addFont(PdfFontFactory.createFont(StandardFonts.HELVETICA));
+        fonte.makeIndirect(pdfDoc);
+        registro.put(FONTE_DESPACHO, fonte.getPdfObject());
+        registro.setModified();
+        return fonte;
+    }
 
-        Image logo = carregarLogoCabecalho();
-        if (logo != null) {
+    private PdfFormXObject obterCabecalho(PdfDocument pdfDoc, PdfFont fonte, float largura) {
+        PdfDictionary registro = registroDeRecursos(pdfDoc);
+        PdfStream existente = registro.getAsStream(CABECALHO_DESPACHO);
+        if (existente != null) {
+            return new PdfFormXObject(existente);
+        }
+        PdfFormXObject cabecalho = renderizarCabecalho(pdfDoc, fonte, largura);
+        registro.put(CABECALHO_DESPACHO, cabecalho.getPdfObject().makeIndirect(pdfDoc));
+        registro.setModified();
+        return cabecalho;
+    }
+
+    // Uma imagem por assinatura distinta no documento, indexada pelo hash do PNG normalizado
+    private PdfImageXObject obterAssinatura(PdfDocument pdfDoc, AssinaturaImagem assinatura) {
+        PdfDictionary registro = registroDeRecursos(pdfDoc);
+        PdfDictionary assinaturas = registro.getAsDictionary(ASSINATURAS);
+        if (assinaturas == null) {
+            assinaturas = new PdfDictionary();
+            assinaturas.makeIndirect(pdfDoc);
+            registro.put(ASSINATURAS, assinaturas);
+            registro.setModified();
+        }
+        PdfName chave = new PdfName(assinatura.getHash());
+        PdfStream existente = assinaturas.getAsStream(chave);
+        if (existente != null) {
+            return new PdfImageXObject(existente);
+        }
+        PdfImageXObject imagem = new PdfImageXObject(ImageDataFactory.create(assinatura.getConteudo()));
+        imagem.makeIndirect(pdfDoc);
+        assinaturas.put(chave, imagem.getPdfObject());
+        assinaturas.setModified();
+        return imagem;
+    }
+
+    // Cabeçalho fixo (logo, nome da Câmara e título) desenhado uma vez num form XObject
+    private PdfFormXObject renderizarCabecalho(PdfDocument pdfDoc, PdfFont fonte, float largura) {
+        Div bloco = new Div();
+        if (LOGO_CABECALHO != null) {
+            Image logo = new Image(LOGO_CABECALHO);
+            logo.scaleToFit(48, 48); // logo menor
+            logo.setHorizontalAlignment(HorizontalAlignment.LEFT);
             Table header = new Table(new float[]{1, 4});
             header.setWidth(UnitValue.createPercentValue(100));
             Cell cLogo = new Cell().setBorder(Border.NO_BORDER);
-            logo.setHorizontalAlignment(HorizontalAlignment.LEFT);
             cLogo.add(logo);
             Cell cTitulos = new Cell().setBorder(Border.NO_BORDER);
             cTitulos.add(new Paragraph("CÂMARA MUNICIPAL DE JACAREÍ").setBold().setTextAlignment(TextAlignment.LEFT));
             cTitulos.add(new Paragraph("PALÁCIO DA LIBERDADE").setBold().setTextAlignment(TextAlignment.LEFT));
             header.addCell(cLogo);
             header.addCell(cTitulos);
-            document.add(header);
+            bloco.add(header);
         } else {
-            document.add(new Paragraph("CÂMARA MUNICIPAL DE JACAREÍ").setTextAlignment(TextAlignment.CENTER).setBold());
-            document.add(new Paragraph("PALÁCIO DA LIBERDADE").setTextAlignment(TextAlignment.CENTER).setBold());
+            bloco.add(new Paragraph("CÂMARA MUNICIPAL DE JACAREÍ").setTextAlignment(TextAlignment.CENTER).setBold());
+            bloco.add(new Paragraph("PALÁCIO DA LIBERDADE").setTextAlignment(TextAlignment.CENTER).setBold());
         }
-        document.add(new Paragraph("\n"));
-
-        document.add(new Paragraph("DESPACHO DE TRAMITAÇÃO")
+        bloco.add(new Paragraph("\n"));
+        bloco.add(new Paragraph("DESPACHO DE TRAMITAÇÃO")
                 .setTextAlignment(TextAlignment.CENTER).setBold().setUnderline().setFontSize(14));
 
+        // Desenha numa área alta e depois recorta o BBox para a altura efetivamente ocupada
+        float alturaMaxima = 400f;
+        PdfFormXObject cabecalho = new PdfFormXObject(new Rectangle(largura, alturaMaxima));
+        float alturaOcupada;
+        try (Canvas canvas = new Canvas(cabecalho, pdfDoc)) {
+            canvas.setFont(fonte);
+            canvas.add(bloco);
+            alturaOcupada = alturaMaxima - canvas.getRenderer().getCurrentArea().getBBox().getHeight();
+        }
+        // O layout posiciona o XObject pela largura/altura do BBox, então a /Matrix leva o recorte para a origem
+        float deslocamento = alturaMaxima - alturaOcupada;
+        cabecalho.setBBox(new PdfArray(new Rectangle(0, deslocamento, largura, alturaOcupada)));
+        cabecalho.put(PdfName.Matrix, new PdfArray(new float[]{1, 0, 0, 1, 0, -deslocamento}));
+        return cabecalho;
+    }
+
+    private void preencherPaginaDespacho(Document document, Etapa etapa, AssinaturaImagem assinatura, boolean usarAssinaturaTexto) throws IOException {
+        PdfDocument pdfDoc = document.getPdfDocument();
+        PdfFont fonte = obterFonte(pdfDoc);
+        document.setFont(fonte);
+
+        float larguraUtil = pdfDoc.getDefaultPageSize().getWidth() - document.getLeftMargin() - document.getRightMargin();
+        document.add(new Image(obterCabecalho(pdfDoc, fonte, larguraUtil)));
+        marcarEtapa(pdfDoc.getLastPage(), etapa);
+
         // Mostrar o número do processo apenas se existir protocolo (sem fallback de ID)
         String protocolo = etapa.getProcesso().getProtocolo();
         if (protocolo != null && !protocolo.isBlank()) {
             document.add(new Paragraph("Processo nº: " + protocolo)
                     .setTextAlignment(TextAlignment.CENTER).setFontSize(10));
+            // A página já nasce com o protocolo: o carimbo nunca precisa passar por ela
+            marcarProtocolo(pdfDoc.getLastPage(), protocolo);
         }
         document.add(new Paragraph("\n\n"));
 
         document.add(new Paragraph().add(new Text("Ação: ").setBold()).add(etapa.getStatus()));
-        document.add(new Paragraph().add(new Text("Data/Hora: ").setBold()).add(etapa.getDataEnvio().format(formatter)));
+        document.add(new Paragraph().add(new Text("Data/Hora: ").setBold()).add(etapa.getDataEnvio().format(FORMATO_DATA_HORA)));
         document.add(new Paragraph().add(new Text("De: ").setBold()).add(etapa.getDeUsuario().getNome() + " (" + etapa.getDeDepartamento() + ")"));
         document.add(new Paragraph().add(new Text("Para: ").setBold()).add(etapa.getParaUsuario().getNome() + " (" + etapa.getParaDepartamento() + ")"));
         document.add(new Paragraph().add(new Text("Observação: ").setBold()).add(etapa.getObservacao() != null && !etapa.getObservacao().isEmpty() ? etapa.getObservacao() : "Nenhuma."));
@@ -198,17 +572,15 @@ public class PdfGenerationService {
         document.add(new Paragraph("\n\n\n"));
 
         boolean assinaturaDesenhada = false;
-        if (assinaturaBase64 != null && !assinaturaBase64.isEmpty()) {
+        if (assinatura != null) {
             try {
-                String base64Image = assinaturaBase64.contains(",") ? assinaturaBase64.split(",")[1] : assinaturaBase64;
-                byte[] imageBytes = Base64.getDecoder().decode(base64Image);
-                Image img = new Image(ImageDataFactory.create(imageBytes));
+                Image img = new Image(obterAssinatura(pdfDoc, assinatura));
                 img.scaleToFit(220, 110);
                 img.setHorizontalAlignment(HorizontalAlignment.CENTER);
                 document.add(img);
                 assinaturaDesenhada = true;
             } catch (Exception e) {
-                System.err.println("Erro ao decodificar/adicionar imagem da assinatura: " + e.getMessage());
+                System.err.println("Erro ao adicionar imagem da assinatura: " + e.getMessage());
             }
         }
 
@@ -220,7 +592,7 @@ public class PdfGenerationService {
                     .setTextAlignment(TextAlignment.CENTER).setBold());
             document.add(new Paragraph("Matrícula: " + (etapa.getDeUsuario().getMatricula() != null ? etapa.getDeUsuario().getMatricula() : ""))
                     .setTextAlignment(TextAlignment.CENTER).setFontSize(11));
-            document.add(new Paragraph("Data e hora da assinatura: " + etapa.getDataEnvio().format(DateTimeFormatter.ofPattern("dd 'de' MMMM 'de' yyyy 'às' HH:mm:ss")))
+            document.add(new Paragraph("Data e hora da assinatura: " + etapa.getDataEnvio().format(FORMATO_DATA_ASSINATURA))
                     .setTextAlignment(TextAlignment.CENTER).setFontSize(11));
         }
 
@@ -1,31 +1,41 @@
 package com.camara.processos_api.service;
 
+import com.camara.processos_api.config.DespachoPdfConfig;
+import com.camara.processos_api.dto.CursorPageDTO;
 import com.camara.processos_api.dto.EtapaRequestDTO;
 import com.camara.processos_api.dto.ProcessoRequestDTO;
 import com.camara.processos_api.dto.ProcessoResponseDTO;
+import com.camara.processos_api.dto.ProcessoResumoDTO;
 import com.camara.processos_api.dto.ProtocoloUpdateRequestDTO;
+import com.camara.processos_api.dto.SliceDTO;
 import com.camara.processos_api.exception.AuthorizationException;
 import com.camara.processos_api.exception.ResourceNotFoundException;
 import com.camara.processos_api.mapper.ProcessoMapper;
+import com.camara.processos_api.model.Arquivo;
 import com.camara.processos_api.model.Processo;
 import com.camara.processos_api.model.Usuario;
-import com.camara.processos_api.repository.EtapaRepository;
+import com.camara.processos_api.repository.ParticipacaoProcessoRepository;
 import com.camara.processos_api.repository.ProcessoRepository;
 import com.camara.processos_api.repository.UsuarioRepository;
 import com.camara.processos_api.repository.specs.ProcessoSpecification;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
+import java.util.Comparator;
 import java.util.List;
+import java.util.function.LongSupplier;
 
 @Service
 @RequiredArgsConstructor
@@ -36,18 +46,31 @@ public class ProcessoService {
     private final ProcessoMapper processoMapper;
     private final EtapaService etapaService;
     private final UsuarioRepository usuarioRepository;
-    private final EtapaRepository etapaRepository;
-    private final ZipService zipService;
+    private final ZipCacheService zipCacheService;
+    private final ConteudoArquivoService conteudoArquivoService;
+    private final DespachoRenderService despachoRenderService;
+    private final BuscaProcessoService buscaProcessoService;
+    private final ContagemAproximadaService contagemAproximadaService;
+    private final ParticipacaoProcessoRepository participacaoProcessoRepository;
+    private final CacheEntidadesService cacheEntidadesService;
+    private final DespachoPdfConfig despachoPdfConfig;
+
+    private static final int TAMANHO_MAXIMO_CURSOR = 100;
 
     // --- Helpers ---
     @Transactional(Transactional.TxType.SUPPORTS)
     private Page<ProcessoResponseDTO> carregarDetalhesDaPagina(Page<Processo> page) {
-        List<Processo> processos = page.getContent();
+        carregarColecoes(page.getContent());
+        return page.map(processoMapper::toResponseDTO);
+    }
+
+    // Etapas e arquivos de todos os processos da lista: uma query por coleção, qualquer que seja o
+    // tamanho da página (as linhas já vêm com o criador pelo grafo Processo.linha)
+    private void carregarColecoes(List<Processo> processos) {
         if (!processos.isEmpty()) {
-            // Carrega ARQUIVOS para todos os processos da página em uma única query
+            processoRepository.findWithEtapas(processos);
             processoRepository.findWithArquivos(processos);
         }
-        return page.map(processoMapper::toResponseDTO);
     }
 
     // --- MÉTODOS DE LEITURA ---
@@ -61,12 +84,15 @@ public class ProcessoService {
         switch (filtro.toLowerCase()) {
             case "para_mim":
                 // Evita empurrar Sort do Pageable para a native query (que causava p.dataCriacao)
-                Pageable semOrdenacao = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.unsorted());
-                processosPage = processoRepository.findProcessosParaMim(usuarioLogado.getId(), semOrdenacao);
+                processosPage = processoRepository.findProcessosParaMim(usuarioLogado.getId(), semOrdenacao(pageable));
                 break;
 
             case "meus_enviados":
-                processosPage = processoRepository.findProcessosEnviadosPorMim(usuarioLogado.getId(), pageable);
+                processosPage = processoRepository.findProcessosEnviadosPorMim(usuarioLogado.getId(), semOrdenacao(pageable));
+                break;
+
+            case "ja_passou_por_mim":
+                processosPage = processoRepository.findProcessosQuePassaramPorMim(usuarioLogado.getId(), semOrdenacao(pageable));
                 break;
 
             case "todos":
@@ -78,10 +104,150 @@ public class ProcessoService {
                 break;
         }
 
-        // Carrega arquivos para os processos desta página (duas consultas)
+        // Carrega etapas e arquivos para os processos desta página (página + count + duas consultas)
         return carregarDetalhesDaPagina(processosPage);
     }
 
+    /**
+     * Listagem resumida: mesmos filtros de buscarComFiltros, mas só com os campos de uma linha de
+     * lista (projeção). Etapas, arquivos e descrição ficam para o GET /api/processos/{id}.
+     */
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public Page<ProcessoResumoDTO> buscarResumos(
+            String filtro, Usuario usuarioLogado, String status,
+            String depto, String titulo, Pageable pageable) {
+
+        switch (filtro.toLowerCase()) {
+            case "para_mim":
+                return processoRepository.findResumosParaMim(usuarioLogado.getId(), pageable);
+
+            case "meus_enviados":
+                return processoRepository.findResumosEnviadosPorMim(usuarioLogado.getId(), semOrdenacao(pageable));
+
+            case "ja_passou_por_mim":
+                return processoRepository.findResumosPassaramPorMim(usuarioLogado.getId(), semOrdenacao(pageable));
+
+            case "todos":
+            default:
+                // Mesma semântica das Specifications: filtro em branco é ignorado; título por "contém"
+                return processoRepository.findResumos(
+                        vazioComoNulo(status),
+                        vazioComoNulo(depto),
+                        vazioComoNulo(titulo) != null ? "%" + titulo.toLowerCase() + "%" : null,
+                        pageable);
+        }
+    }
+
+    /**
+     * Listagem em modo slice: mesmos filtros e conteúdo de buscarComFiltros, mas sem count(*);
+     * só informa se há próxima página. Com comTotalAproximado, anexa o último total calculado em
+     * segundo plano para o usuário/filtro (scroll infinito não deve pedir).
+     */
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public SliceDTO<ProcessoResponseDTO> buscarEmSlice(
+            String filtro, Usuario usuarioLogado, String status,
+            String depto, String titulo, Pageable pageable, boolean comTotalAproximado) {
+
+        String tituloLike = vazioComoNulo(titulo) != null ? "%" + titulo.toLowerCase() + "%" : null;
+        Slice<Processo> slice;
+        String chaveContagem;
+        LongSupplier contagem;
+        switch (filtro.toLowerCase()) {
+            case "para_mim":
+                slice = processoRepository.findSliceParaMim(usuarioLogado.getId(), pageable);
+                chaveContagem = "para_mim:" + usuarioLogado.getId();
+                contagem = () -> processoRepository.countByResponsavelAtualId(usuarioLogado.getId());
+                break;
+
+            case "meus_enviados":
+                slice = processoRepository.findSliceEnviadosPorMim(usuarioLogado.getId(), semOrdenacao(pageable));
+                chaveContagem = "meus_enviados:" + usuarioLogado.getId();
+                contagem = () -> processoRepository.contarEnviadosPorMim(usuarioLogado.getId());
+                break;
+
+            case "ja_passou_por_mim":
+                slice = processoRepository.findSlicePassaramPorMim(usuarioLogado.getId(), semOrdenacao(pageable));
+                chaveContagem = "ja_passou_por_mim:" + usuarioLogado.getId();
+                contagem = () -> processoRepository.contarPassaramPorMim(usuarioLogado.getId());
+                break;
+
+            case "todos":
+            default:
+                String statusFiltro = vazioComoNulo(status);
+                String deptoFiltro = vazioComoNulo(depto);
+                slice = processoRepository.findSliceTodos(statusFiltro, deptoFiltro, tituloLike, pageable);
+                chaveContagem = "todos:" + statusFiltro + "|" + deptoFiltro + "|" + tituloLike;
+                contagem = () -> processoRepository.contarTodos(statusFiltro, deptoFiltro, tituloLike);
+                break;
+        }
+
+        List<Processo> processos = slice.getContent();
+        carregarColecoes(processos);
+        Long totalAproximado = comTotalAproximado ? contagemAproximadaService.obter(chaveContagem, contagem) : null;
+        return new SliceDTO<>(processos.stream().map(processoMapper::toResponseDTO).toList(),
+                slice.getNumber(), slice.getNumberOfElements(), slice.hasNext(), totalAproximado);
+    }
+
+    // Caixa de entrada e participações têm ordem fixa (a do índice); o Sort do cliente não se aplica
+    private static Pageable semOrdenacao(Pageable pageable) {
+        return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.unsorted());
+    }
+
+    private static String vazioComoNulo(String valor) {
+        return (valor == null || valor.isBlank()) ? null : valor;
+    }
+
+    /**
+     * Listagem por cursor (opt-in): mesmos filtros de buscarComFiltros, ordenados por
+     * (dataCriacao DESC, id DESC). Cada bloco é um seek a partir do token anterior, sem OFFSET
+     * nem count(*), então o custo por página não depende da profundidade.
+     * Busca um registro a mais que o tamanho só para saber se há próxima página.
+     */
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public CursorPageDTO<ProcessoResponseDTO> buscarComCursor(
+            String filtro, Usuario usuarioLogado, String status,
+            String depto, String titulo, String cursor, int tamanho) {
+
+        int limite = Math.max(1, Math.min(tamanho, TAMANHO_MAXIMO_CURSOR));
+        CursorProcesso posicao = (cursor == null || cursor.isBlank()) ? null : CursorProcesso.decodificar(cursor);
+        LocalDateTime data = posicao != null ? posicao.dataCriacao() : null;
+        Long id = posicao != null ? posicao.id() : null;
+
+        List<Processo> processos;
+        switch (filtro.toLowerCase()) {
+            case "para_mim":
+                processos = processoRepository.findParaMimAposCursor(usuarioLogado.getId(), data, id, Limit.of(limite + 1));
+                break;
+
+            case "meus_enviados":
+                processos = processoRepository.findEnviadosPorMimAposCursor(usuarioLogado.getId(), data, id, Limit.of(limite + 1));
+                break;
+
+            case "ja_passou_por_mim":
+                processos = processoRepository.findPassaramPorMimAposCursor(usuarioLogado.getId(), data, id, Limit.of(limite + 1));
+                break;
+
+            case "todos":
+            default:
+                Specification<Processo> spec = Specification.where(ProcessoSpecification.comStatus(status))
+                        .and(ProcessoSpecification.comDepartamento(depto))
+                        .and(ProcessoSpecification.comTituloContendo(titulo))
+                        .and(ProcessoSpecification.depoisDoCursor(data, id));
+                processos = processoRepository.findBy(spec, consulta -> consulta
+                        .project("criadoPor")
+                        .sortBy(Sort.by(Sort.Order.desc("dataCriacao"), Sort.Order.desc("id")))
+                        .limit(limite + 1)
+                        .all());
+                break;
+        }
+
+        boolean temMais = processos.size() > limite;
+        List<Processo> bloco = temMais ? processos.subList(0, limite) : processos;
+        carregarColecoes(bloco);
+        String proximoCursor = temMais ? CursorProcesso.depoisDe(bloco.get(bloco.size() - 1)).codificar() : null;
+        return new CursorPageDTO<>(bloco.stream().map(processoMapper::toResponseDTO).toList(), bloco.size(), temMais, proximoCursor);
+    }
+
     @Transactional(Transactional.TxType.SUPPORTS)
     public ProcessoResponseDTO buscarPorId(Long id) {
         // 1) Carrega processo + ETAPAS
@@ -93,11 +259,32 @@ public class ProcessoService {
     }
 
     @Transactional(Transactional.TxType.SUPPORTS)
-    public byte[] gerarZipArquivos(Long processoId) throws IOException {
-        Processo processo = processoRepository.findByIdWithEtapas(processoId)
+    public List<Arquivo> listarArquivosParaZip(Long processoId) {
+        // Só os arquivos: o ZIP não lê etapas nem usuários. A lista é carregada antes de a resposta
+        // começar, então processo inexistente ainda vira 404 em vez de um ZIP truncado
+        Processo processo = processoRepository.findParaZipById(processoId)
                 .orElseThrow(() -> new ResourceNotFoundException("Processo não encontrado"));
-        processoRepository.findWithArquivos(java.util.List.of(processo));
-        return zipService.criarZipDeArquivos(new java.util.LinkedHashSet<>(processo.getArquivos()));
+        // Ordem por id: a mesma versão sempre gera o mesmo ZIP. Sob demanda o consolidado não existe
+        // no disco (é montado no download); as páginas das etapas, que o compõem, já vão no ZIP
+        boolean sobDemanda = despachoPdfConfig.isMontagemSobDemanda();
+        return processo.getArquivos().stream()
+                .filter(a -> !sobDemanda || !ehConsolidado(a))
+                .sorted(Comparator.comparing(Arquivo::getId))
+                .toList();
+    }
+
+    private static boolean ehConsolidado(Arquivo arquivo) {
+        return arquivo.getNomeArquivo() != null && arquivo.getNomeArquivo().startsWith("despacho_processo_");
+    }
+
+    // Versão do conjunto de anexos: chave do cache de ZIP e ETag do download
+    public String versaoZipArquivos(List<Arquivo> arquivos) {
+        return zipCacheService.versao(arquivos);
+    }
+
+    // Roda fora da transação, na thread do StreamingResponseBody: só lê campos simples das entidades já carregadas
+    public void escreverZipArquivos(Long processoId, String versao, List<Arquivo> arquivos, OutputStream saida) throws IOException {
+        zipCacheService.escrever(processoId, versao, arquivos, saida);
     }
 
     // --- CRIAÇÃO SEM ARQUIVO ---
@@ -108,7 +295,11 @@ public class ProcessoService {
         processo.setCriadoPor(criadoPor);
         processo.setDepartamentoOrigem(criadoPor.getDepartamento());
         processo.setDataCriacao(LocalDateTime.now());
+        // Quem cria é o responsável até a primeira etapa (encaminhada logo abaixo, na mesma transação)
+        processo.setResponsavelAtualId(criadoPor.getId());
         Processo salvo = processoRepository.save(processo);
+        buscaProcessoService.indexarProcesso(salvo.getId(), salvo.getTitulo(), salvo.getDescricao());
+        cacheEntidadesService.invalidarProcessoAposCommit(salvo.getId());
 
         // 1ª etapa via service (gera PDF)
         Usuario secadm = usuarioRepository.findFirstByPerfil("secadm")
@@ -136,7 +327,10 @@ public class ProcessoService {
         novo.setCriadoPor(criadoPor);
         novo.setDepartamentoOrigem(criadoPor.getDepartamento());
         novo.setDataCriacao(LocalDateTime.now());
+        novo.setResponsavelAtualId(criadoPor.getId());
         Processo salvo = processoRepository.save(novo);
+        buscaProcessoService.indexarProcesso(salvo.getId(), salvo.getTitulo(), salvo.getDescricao());
+        cacheEntidadesService.invalidarProcessoAposCommit(salvo.getId());
 
         Usuario secadm = usuarioRepository.findFirstByPerfil("secadm")
                 .orElseThrow(() -> new IllegalStateException("Usuário 'secadm' não encontrado. Não é possível protocolar o processo."));
@@ -165,6 +359,8 @@ public class ProcessoService {
         existente.setDescricao(dto.getDescricao());
 
         Processo salvo = processoRepository.save(existente);
+        buscaProcessoService.indexarProcesso(salvo.getId(), salvo.getTitulo(), salvo.getDescricao());
+        cacheEntidadesService.invalidarProcessoAposCommit(salvo.getId());
         Processo completo = processoRepository.findByIdWithEtapas(salvo.getId()).orElse(salvo);
         processoRepository.findWithArquivos(java.util.List.of(completo));
         return processoMapper.toResponseDTO(completo);
@@ -176,13 +372,18 @@ public class ProcessoService {
         if (!processoRepository.existsById(id)) {
             throw new ResourceNotFoundException("Processo não encontrado com o ID: " + id);
         }
+        buscaProcessoService.removerProcesso(id);
+        participacaoProcessoRepository.deleteByProcessoId(id);
+        // Os anexos saem em cascata com o processo; os blobs perdem as referências
+        conteudoArquivoService.liberarDoProcesso(id);
+        cacheEntidadesService.invalidarProcessoAposCommit(id);
         processoRepository.deleteById(id);
     }
 
     public void verificarResponsavelPeloProcesso(Long processoId, Usuario usuario) {
-        var ultima = etapaRepository.findTopByProcessoIdOrderByDataEnvioDesc(processoId)
+        Long responsavelAtualId = etapaService.buscarResponsavelAtualId(processoId)
                 .orElseThrow(() -> new ResourceNotFoundException("O processo não possui etapas para determinar um responsável."));
-        if (!ultima.getParaUsuario().getId().equals(usuario.getId())) {
+        if (!responsavelAtualId.equals(usuario.getId())) {
             throw new AuthorizationException("Acesso negado. Você não é o responsável atual por este processo.");
         }
     }
@@ -197,8 +398,14 @@ public class ProcessoService {
 
         Processo processo = processoRepository.findById(processoId)
                 .orElseThrow(() -> new ResourceNotFoundException("Processo não encontrado com o ID: " + processoId));
+        boolean protocoloAlterado = !java.util.Objects.equals(processo.getProtocolo(), dto.getProtocolo());
         processo.setProtocolo(dto.getProtocolo());
         processoRepository.save(processo);
+        cacheEntidadesService.invalidarProcessoAposCommit(processoId);
+        if (protocoloAlterado) {
+            // Carimba de uma vez as páginas já geradas; a etapa criada abaixo já sai com o protocolo
+            despachoRenderService.solicitarCarimboProtocolo(processoId);
+        }
 
         EtapaRequestDTO novaEtapaDto = new EtapaRequestDTO();
         novaEtapaDto.setParaUsuarioId(dto.getProximoDestinatarioId());
@@ -0,0 +1,325 @@
+package com.camara.processos_api.service;
+
+import com.camara.processos_api.config.DespachoPdfConfig;
+import com.camara.processos_api.dto.RegeneracaoPdfStatusDTO;
+import com.camara.processos_api.exception.ResourceNotFoundException;
+import com.camara.processos_api.model.Arquivo;
+import com.camara.processos_api.model.Etapa;
+import com.camara.processos_api.model.RegeneracaoPdf;
+import com.camara.processos_api.repository.ArquivoRepository;
+import com.camara.processos_api.repository.EtapaRepository;
+import com.camara.processos_api.repository.PdfRenderJobRepository;
+import com.camara.processos_api.repository.ProcessoRepository;
+import com.camara.processos_api.repository.RegeneracaoPdfRepository;
+import com.camara.processos_api.repository.UsuarioRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Regeneração em lote de todos os PDFs de despacho (após mudança de layout/logo ou restauração de disco).
+ * Percorre os processos por cursor de id em lotes, renderiza cada processo em uma virtual thread
+ * (limitadas por um semáforo, pois o trabalho é de CPU) e, ao fim de cada lote, grava numa única
+ * transação os registros de arquivos_processo e o checkpoint. Uma execução interrompida é retomada
+ * do último lote gravado.
+ */
+@Service
+@RequiredArgsConstructor
+public class RegeneracaoPdfService {
+
+    private static final String PREFIXO_ETAPA = "despacho_etapa_";
+    private static final String PREFIXO_CONSOLIDADO = "despacho_processo_";
+
+    private final ProcessoRepository processoRepository;
+    private final EtapaRepository etapaRepository;
+    private final ArquivoRepository arquivoRepository;
+    private final UsuarioRepository usuarioRepository;
+    private final PdfRenderJobRepository jobRepository;
+    private final RegeneracaoPdfRepository regeneracaoRepository;
+    private final PdfGenerationService pdfService;
+    private final FileStorageService fileStorageService;
+    private final DespachoRenderService despachoRenderService;
+    private final DespachoMontagemService despachoMontagemService;
+    private final DespachoPdfConfig despachoPdfConfig;
+    private final PlatformTransactionManager transactionManager;
+
+    private final AtomicBoolean emExecucao = new AtomicBoolean(false);
+
+    // Progresso em memória da execução corrente (base para páginas/s e ETA)
+    private volatile Progresso progresso;
+
+    private static final class Progresso {
+        final Long execucaoId;
+        final long inicioNanos = System.nanoTime();
+        final long paginasPrevistas;
+        final AtomicLong paginas = new AtomicLong();
+
+        Progresso(Long execucaoId, long paginasPrevistas) {
+            this.execucaoId = execucaoId;
+            this.paginasPrevistas = paginasPrevistas;
+        }
+    }
+
+    // O que foi gravado em disco para um processo; aplicado em arquivos_processo ao fim do lote
+    private record Resultado(Long processoId, List<PaginaGravada> etapasComPdfIndividual, Long ultimaEtapaId,
+                             Long remetenteUltimaEtapaId, boolean consolidadoGravado, int paginas) {}
+
+    // Página despacho_etapa_{id}.pdf gravada; o remetente é o enviadoPor do registro, se ele ainda não existir
+    private record PaginaGravada(Long etapaId, Long remetenteId) {}
+
+    /**
+     * Inicia a regeneração em segundo plano. Se a última execução não terminou (queda, erro),
+     * ela é retomada a partir do checkpoint em vez de começar do zero.
+     */
+    public RegeneracaoPdfStatusDTO iniciar() {
+        if (!emExecucao.compareAndSet(false, true)) {
+            throw new IllegalStateException("Já existe uma regeneração de PDFs em andamento.");
+        }
+        try {
+            RegeneracaoPdf execucao = regeneracaoRepository.findFirstByOrderByIdDesc()
+                    .filter(r -> !RegeneracaoPdf.STATUS_CONCLUIDA.equals(r.getStatus()))
+                    .orElseGet(() -> {
+                        RegeneracaoPdf nova = new RegeneracaoPdf();
+                        nova.setDataInicio(LocalDateTime.now());
+                        return nova;
+                    });
+            execucao.setStatus(RegeneracaoPdf.STATUS_EM_ANDAMENTO);
+            execucao.setErro(null);
+            execucao.setDataAtualizacao(LocalDateTime.now());
+            RegeneracaoPdf salva = regeneracaoRepository.save(execucao);
+
+            progresso = new Progresso(salva.getId(), etapaRepository.countByProcessoIdGreaterThan(salva.getUltimoProcessoId()));
+            Thread.ofVirtual().name("regeneracao-pdf-" + salva.getId()).start(() -> executar(salva.getId()));
+            System.out.println("[INFO] Regeneração de PDFs #" + salva.getId() + " iniciada a partir do processo " + salva.getUltimoProcessoId());
+            return status();
+        } catch (RuntimeException e) {
+            emExecucao.set(false);
+            throw e;
+        }
+    }
+
+    public RegeneracaoPdfStatusDTO status() {
+        RegeneracaoPdf execucao = regeneracaoRepository.findFirstByOrderByIdDesc()
+                .orElseThrow(() -> new ResourceNotFoundException("Nenhuma regeneração de PDFs registrada."));
+
+        RegeneracaoPdfStatusDTO dto = new RegeneracaoPdfStatusDTO();
+        dto.setId(execucao.getId());
+        dto.setStatus(execucao.getStatus());
+        dto.setUltimoProcessoId(execucao.getUltimoProcessoId());
+        dto.setProcessosProcessados(execucao.getProcessosProcessados());
+        dto.setProcessosComErro(execucao.getProcessosComErro());
+        dto.setPaginasGeradas(execucao.getPaginasGeradas());
+        dto.setErro(execucao.getErro());
+        dto.setDataInicio(execucao.getDataInicio());
+        dto.setDataAtualizacao(execucao.getDataAtualizacao());
+        dto.setDataFim(execucao.getDataFim());
+
+        Progresso atual = progresso;
+        boolean rodando = emExecucao.get() && atual != null && atual.execucaoId.equals(execucao.getId());
+        dto.setEmExecucao(rodando);
+        if (rodando) {
+            long paginas = atual.paginas.get();
+            double segundos = Duration.ofNanos(System.nanoTime() - atual.inicioNanos).toMillis() / 1000.0;
+            long restantes = Math.max(0, atual.paginasPrevistas - paginas);
+            dto.setPaginasRestantes(restantes);
+            if (paginas > 0 && segundos > 0) {
+                double porSegundo = paginas / segundos;
+                dto.setPaginasPorSegundo(Math.round(porSegundo * 10) / 10.0);
+                dto.setEtaSegundos(Math.round(restantes / porSegundo));
+            }
+        }
+        return dto;
+    }
+
+    private void executar(Long execucaoId) {
+        TransactionTemplate transacao = new TransactionTemplate(transactionManager);
+        Semaphore vagas = new Semaphore(Math.max(1, despachoPdfConfig.getRegeneracaoParalelismo()));
+        PageRequest lote = PageRequest.of(0, Math.max(1, despachoPdfConfig.getRegeneracaoLote()));
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Long cursor = regeneracaoRepository.findById(execucaoId).orElseThrow().getUltimoProcessoId();
+            List<Long> processoIds;
+            while (!(processoIds = processoRepository.findIdsAposId(cursor, lote)).isEmpty()) {
+                Map<Long, List<Etapa>> etapasPorProcesso = etapaRepository.findParaRenderizacaoByProcessoIds(processoIds).stream()
+                        .collect(Collectors.groupingBy(e -> e.getProcesso().getId(), LinkedHashMap::new, Collectors.toList()));
+                Set<String> despachosExistentes = arquivoRepository.findDespachosByProcessoIds(processoIds).stream()
+                        .map(Arquivo::getNomeArquivo)
+                        .collect(Collectors.toSet());
+
+                List<Future<Resultado>> futuros = new ArrayList<>();
+                for (Map.Entry<Long, List<Etapa>> entrada : etapasPorProcesso.entrySet()) {
+                    futuros.add(executor.submit(() -> {
+                        vagas.acquire();
+                        try {
+                            return regenerarProcesso(entrada.getKey(), entrada.getValue(), despachosExistentes);
+                        } finally {
+                            vagas.release();
+                        }
+                    }));
+                }
+
+                List<Resultado> resultados = new ArrayList<>();
+                int erros = 0;
+                for (Future<Resultado> futuro : futuros) {
+                    try {
+                        resultados.add(futuro.get());
+                    } catch (ExecutionException e) {
+                        erros++;
+                        System.err.println("[WARN] Falha ao regenerar PDFs de um processo: " + e.getCause().getMessage());
+                    }
+                }
+
+                Long ultimoDoLote = processoIds.get(processoIds.size() - 1);
+                int processadosNoLote = processoIds.size();
+                int errosNoLote = erros;
+                transacao.executeWithoutResult(status -> gravarLote(execucaoId, resultados, ultimoDoLote, processadosNoLote, errosNoLote));
+                cursor = ultimoDoLote;
+            }
+
+            finalizar(execucaoId, RegeneracaoPdf.STATUS_CONCLUIDA, null);
+            System.out.println("[INFO] Regeneração de PDFs #" + execucaoId + " concluída.");
+        } catch (Exception e) {
+            System.err.println("ERRO na regeneração de PDFs #" + execucaoId + ": " + e.getMessage());
+            finalizar(execucaoId, RegeneracaoPdf.STATUS_FALHOU, e.getMessage());
+        } finally {
+            emExecucao.set(false);
+        }
+    }
+
+    // Renderiza e grava os PDFs de um processo; roda com a trava do worker para não concorrer com jobs
+    private Resultado regenerarProcesso(Long processoId, List<Etapa> etapas, Set<String> despachosExistentes) throws Exception {
+        return despachoRenderService.executarComTrava(processoId, () -> {
+            boolean sobDemanda = despachoPdfConfig.isMontagemSobDemanda();
+            List<PaginaGravada> comPdfIndividual = new ArrayList<>();
+            int semAssinaturaRegistrada = 0;
+            for (Etapa etapa : etapas) {
+                if (!assinaturaRegistrada(etapa)) {
+                    // A assinatura desta etapa só existe nos PDFs já gerados: a página dela não é regravada
+                    semAssinaturaRegistrada++;
+                    continue;
+                }
+                String nome = PREFIXO_ETAPA + etapa.getId() + ".pdf";
+                // Sob demanda toda etapa precisa da sua página; senão, só as que já tinham PDF individual
+                if (sobDemanda || despachosExistentes.contains(nome)) {
+                    byte[] pdf = pdfService.gerarPdfDeEtapa(etapa, etapa.getAssinaturaImagem(), Boolean.TRUE.equals(etapa.getUsarAssinaturaTexto()));
+                    fileStorageService.storeFile(pdf, nome, processoId);
+                    comPdfIndividual.add(new PaginaGravada(etapa.getId(), etapa.getDeUsuario().getId()));
+                }
+            }
+
+            // O consolidado só é refeito se todas as páginas puderem ser refeitas; senão o arquivo
+            // existente fica como está e os jobs pendentes seguem para o worker
+            boolean completo = semAssinaturaRegistrada == 0;
+            if (!completo) {
+                System.out.println("[INFO] Processo " + processoId + ": " + semAssinaturaRegistrada
+                        + " etapa(s) sem assinatura registrada; páginas e consolidado existentes mantidos.");
+            }
+            if (sobDemanda) {
+                despachoMontagemService.invalidar(processoId);
+            } else if (completo) {
+                fileStorageService.storeFile(pdfService.gerarPdfConsolidado(etapas), PREFIXO_CONSOLIDADO + processoId + ".pdf", processoId);
+            }
+
+            Etapa ultima = etapas.get(etapas.size() - 1);
+            if (completo) {
+                // Jobs ainda pendentes destas etapas já estão cobertos: evita página duplicada no consolidado
+                jobRepository.concluirPendentesAte(processoId, ultima.getId(), LocalDateTime.now());
+            }
+            progresso.paginas.addAndGet(etapas.size());
+
+            boolean consolidadoGravado = !sobDemanda && completo;
+            return new Resultado(processoId, comPdfIndividual, ultima.getId(), ultima.getDeUsuario().getId(),
+                    consolidadoGravado, consolidadoGravado ? etapas.size() : comPdfIndividual.size());
+        });
+    }
+
+    // usar_assinatura_texto é gravado (true/false) em toda etapa desde que a assinatura passou a ser guardada
+    // (assinaturas_imagem); nulo = etapa anterior, cuja assinatura não está no banco
+    private static boolean assinaturaRegistrada(Etapa etapa) {
+        return etapa.getUsarAssinaturaTexto() != null;
+    }
+
+    // Atualiza arquivos_processo do lote inteiro e o checkpoint (chamado dentro de uma transação)
+    private void gravarLote(Long execucaoId, List<Resultado> resultados, Long ultimoProcessoId, int processados, int erros) {
+        List<Long> ids = resultados.stream().map(Resultado::processoId).toList();
+        Map<String, Arquivo> despachos = ids.isEmpty() ? Map.of() : arquivoRepository.findDespachosByProcessoIds(ids).stream()
+                .collect(Collectors.toMap(Arquivo::getNomeArquivo, a -> a, (a, b) -> a.getId() > b.getId() ? a : b));
+
+        long paginas = 0;
+        for (Resultado r : resultados) {
+            paginas += r.paginas();
+            for (PaginaGravada pagina : r.etapasComPdfIndividual()) {
+                String nome = PREFIXO_ETAPA + pagina.etapaId() + ".pdf";
+                Arquivo arquivo = despachos.get(nome);
+                if (arquivo == null) {
+                    // Sob demanda toda página é gravada: a que não tinha registro passa a ter (listagem, ZIP, exclusão)
+                    arquivo = new Arquivo();
+                    arquivo.setProcesso(processoRepository.getReferenceById(r.processoId()));
+                    arquivo.setEtapa(etapaRepository.getReferenceById(pagina.etapaId()));
+                    arquivo.setNomeArquivo(nome);
+                    arquivo.setTipo("application/pdf");
+                    arquivo.setEnviadoPor(usuarioRepository.getReferenceById(pagina.remetenteId()));
+                    arquivo.setDataEnvio(LocalDateTime.now());
+                }
+                arquivo.setCaminhoArquivo(fileStorageService.resolverCaminho(nome, r.processoId()).toString());
+                arquivo.setStatusRenderizacao(Arquivo.RENDER_PRONTO);
+                arquivoRepository.save(arquivo);
+            }
+
+            if (!r.consolidadoGravado() && !despachoPdfConfig.isMontagemSobDemanda()) {
+                // Consolidado mantido: o registro continua apontando para o arquivo existente
+                continue;
+            }
+            String nomeConsolidado = PREFIXO_CONSOLIDADO + r.processoId() + ".pdf";
+            Arquivo consolidado = despachos.get(nomeConsolidado);
+            if (consolidado == null) {
+                consolidado = new Arquivo();
+                consolidado.setProcesso(processoRepository.getReferenceById(r.processoId()));
+                consolidado.setNomeArquivo(nomeConsolidado);
+                consolidado.setTipo("application/pdf");
+                consolidado.setEnviadoPor(usuarioRepository.getReferenceById(r.remetenteUltimaEtapaId()));
+                consolidado.setDataEnvio(LocalDateTime.now());
+            }
+            consolidado.setEtapa(etapaRepository.getReferenceById(r.ultimaEtapaId()));
+            consolidado.setCaminhoArquivo(fileStorageService.resolverCaminho(nomeConsolidado, r.processoId()).toString());
+            consolidado.setStatusRenderizacao(Arquivo.RENDER_PRONTO);
+            arquivoRepository.save(consolidado);
+        }
+
+        RegeneracaoPdf execucao = regeneracaoRepository.findById(execucaoId).orElseThrow();
+        execucao.setUltimoProcessoId(ultimoProcessoId);
+        execucao.setProcessosProcessados(execucao.getProcessosProcessados() + processados);
+        execucao.setProcessosComErro(execucao.getProcessosComErro() + erros);
+        execucao.setPaginasGeradas(execucao.getPaginasGeradas() + paginas);
+        execucao.setDataAtualizacao(LocalDateTime.now());
+    }
+
+    private void finalizar(Long execucaoId, String status, String erro) {
+        regeneracaoRepository.findById(execucaoId).ifPresent(execucao -> {
+            execucao.setStatus(status);
+            execucao.setErro(erro != null && erro.length() > 1000 ? erro.substring(0, 1000) : erro);
+            execucao.setDataAtualizacao(LocalDateTime.now());
+            if (RegeneracaoPdf.STATUS_CONCLUIDA.equals(status)) {
+                execucao.setDataFim(LocalDateTime.now());
+            }
+            regeneracaoRepository.save(execucao);
+        });
+    }
+}
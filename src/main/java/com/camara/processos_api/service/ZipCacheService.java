@@ -0,0 +1,219 @@
+package com.camara.processos_api.service;
+
+import com.camara.processos_api.config.FileStorageConfig;
+import com.camara.processos_api.config.ZipConfig;
+import com.camara.processos_api.model.Arquivo;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Cache em disco do ZIP "todos os anexos" de cada processo.
+ * A chave é a versão do conjunto de anexos: hash de id, nome, tipo, caminho, tamanho e data de
+ * modificação de cada linha de arquivos_processo. Qualquer mudança gera uma versão nova, então um
+ * arquivo em cache nunca é servido desatualizado; a invalidação explícita só libera o disco.
+ * A mesma versão é o ETag do download. O total em disco é limitado (processos.zip.cache-max-bytes),
+ * removendo os ZIPs acessados há mais tempo.
+ */
+@Service
+@RequiredArgsConstructor
+public class ZipCacheService {
+
+    // Muda quando o conteúdo gerado pelo ZipService mudar de formato (invalida os ZIPs já em cache)
+    private static final String FORMATO = "zip-v2";
+    private static final String EXTENSAO = ".zip";
+    private static final String EXTENSAO_PARCIAL = ".parcial";
+
+    private final ZipService zipService;
+    private final ZipConfig zipConfig;
+    private final FileStorageConfig fileStorageConfig;
+
+    private Path diretorio;
+
+    @PostConstruct
+    void prepararDiretorio() throws IOException {
+        if (!habilitado()) {
+            return;
+        }
+        String configurado = zipConfig.getCacheDiretorio();
+        diretorio = (configurado == null || configurado.isBlank()
+                ? Paths.get(fileStorageConfig.getUploadDir()).resolve(".zip-cache")
+                : Paths.get(configurado)).toAbsolutePath().normalize();
+        Files.createDirectories(diretorio);
+
+        // ZIPs pela metade de uma execução anterior (queda no meio do download)
+        try (DirectoryStream<Path> parciais = Files.newDirectoryStream(diretorio, "*" + EXTENSAO_PARCIAL)) {
+            for (Path parcial : parciais) {
+                Files.deleteIfExists(parcial);
+            }
+        }
+    }
+
+    /** Versão do conjunto de anexos (hex), usada como chave do cache e ETag do download. */
+    public String versao(List<Arquivo> arquivos) {
+        MessageDigest digest = sha256();
+        digest.update(FORMATO.getBytes(StandardCharsets.UTF_8));
+        for (Arquivo arquivo : arquivos) {
+            long tamanho = -1;
+            long modificadoEm = -1;
+            try {
+                BasicFileAttributes atributos = Files.readAttributes(Paths.get(arquivo.getCaminhoArquivo()), BasicFileAttributes.class);
+                tamanho = atributos.size();
+                modificadoEm = atributos.lastModifiedTime().toMillis();
+            } catch (IOException ausente) {
+                // Arquivo fora do disco: entra na versão como ausente (e some do ZIP)
+            }
+            String linha = arquivo.getId() + "|" + arquivo.getNomeArquivo() + "|" + arquivo.getTipo() + "|"
+                    + arquivo.getCaminhoArquivo() + "|" + tamanho + "|" + modificadoEm + "\n";
+            digest.update(linha.getBytes(StandardCharsets.UTF_8));
+        }
+        return HexFormat.of().formatHex(digest.digest(), 0, 16);
+    }
+
+    /**
+     * Escreve o ZIP na saída: do cache, se a versão já foi montada; senão monta com o ZipService,
+     * gravando ao mesmo tempo a cópia que vai para o cache (o cliente não espera a montagem terminar).
+     */
+    public void escrever(Long processoId, String versao, List<Arquivo> arquivos, OutputStream saida) throws IOException {
+        if (!habilitado()) {
+            zipService.escreverZip(arquivos, saida);
+            return;
+        }
+
+        Path emCache = diretorio.resolve(processoId + "-" + versao + EXTENSAO);
+        try (InputStream in = Files.newInputStream(emCache)) {
+            // Data de modificação = último acesso, usada na remoção dos mais antigos
+            Files.setLastModifiedTime(emCache, FileTime.fromMillis(System.currentTimeMillis()));
+            in.transferTo(saida);
+            return;
+        } catch (NoSuchFileException naoEstaEmCache) {
+            // Monta abaixo
+        }
+
+        Path parcial = Files.createTempFile(diretorio, processoId + "-", EXTENSAO_PARCIAL);
+        boolean completo = false;
+        try (OutputStream copia = Files.newOutputStream(parcial)) {
+            zipService.escreverZip(arquivos, new SaidaDupla(saida, copia));
+            completo = true;
+        } finally {
+            if (!completo) {
+                Files.deleteIfExists(parcial);
+            }
+        }
+        guardar(parcial, emCache);
+    }
+
+    /** Remove os ZIPs em cache do processo (anexos ou etapas mudaram). */
+    public void invalidar(Long processoId) {
+        if (!habilitado() || processoId == null) {
+            return;
+        }
+        try (DirectoryStream<Path> zips = Files.newDirectoryStream(diretorio, processoId + "-*" + EXTENSAO)) {
+            for (Path zip : zips) {
+                Files.deleteIfExists(zip);
+            }
+        } catch (IOException e) {
+            System.err.println("[WARN] Falha ao invalidar o cache de ZIP do processo " + processoId + ": " + e.getMessage());
+        }
+    }
+
+    private boolean habilitado() {
+        return zipConfig.getCacheMaxBytes() > 0;
+    }
+
+    private synchronized void guardar(Path parcial, Path destino) throws IOException {
+        long limite = zipConfig.getCacheMaxBytes();
+        if (Files.size(parcial) > limite) {
+            Files.deleteIfExists(parcial);
+            return;
+        }
+        Files.move(parcial, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        // Remove os acessados há mais tempo até caber no limite
+        List<Path> zips = new ArrayList<>();
+        long total = 0;
+        try (DirectoryStream<Path> todos = Files.newDirectoryStream(diretorio, "*" + EXTENSAO)) {
+            for (Path zip : todos) {
+                zips.add(zip);
+                total += Files.size(zip);
+            }
+        }
+        if (total <= limite) {
+            return;
+        }
+        zips.sort(Comparator.comparing(ZipCacheService::ultimoAcesso));
+        for (Path zip : zips) {
+            if (total <= limite) {
+                break;
+            }
+            if (!zip.equals(destino)) {
+                total -= Files.size(zip);
+                Files.deleteIfExists(zip);
+            }
+        }
+    }
+
+    private static FileTime ultimoAcesso(Path zip) {
+        try {
+            return Files.getLastModifiedTime(zip);
+        } catch (IOException removido) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Escreve em duas saídas: a resposta e a cópia para o cache
+    private static final class SaidaDupla extends OutputStream {
+        private final OutputStream principal;
+        private final OutputStream copia;
+
+        SaidaDupla(OutputStream principal, OutputStream copia) {
+            this.principal = principal;
+            this.copia = copia;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            principal.write(b);
+            copia.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            principal.write(b, off, len);
+            copia.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            principal.flush();
+            copia.flush();
+        }
+    }
+}
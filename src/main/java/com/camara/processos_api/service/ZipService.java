@@ -1,64 +1,275 @@
 package com.camara.processos_api.service;
 
+import com.camara.processos_api.config.ZipConfig;
 import com.camara.processos_api.model.Arquivo;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
-import java.io.ByteArrayOutputStream;
-import java.io.File;
-import java.io.FileInputStream;
+
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
 import java.util.Set;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 
+/**
+ * ZIP dos anexos de um processo, escrito direto na saída.
+ * Cada entrada é STORED ou DEFLATED conforme o tipo (PDF, imagens e formatos já compactados não
+ * ganham nada com deflate). As entradas comprimidas são preparadas no pool, em paralelo, em arquivos
+ * temporários; a thread do download só copia os bytes prontos para o ZIP, na ordem original.
+ */
 @Service
+@RequiredArgsConstructor
 public class ZipService {
 
-    public byte[] criarZipDeArquivos(Collection<Arquivo> arquivos) throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    // Buffer de leitura dos anexos e de escrita na saída: a memória por download fica em poucas
+    // centenas de KB (os buffers + o estado de um Deflater por thread do pool), qualquer que seja o tamanho do ZIP
+    private static final int TAMANHO_BUFFER = 64 * 1024;
 
-        // NOVO: Usamos um Set para controlar os nomes de arquivos já adicionados ao zip.
-        Set<String> nomesAdicionados = new HashSet<>();
+    private final ZipConfig zipConfig;
 
-        try (ZipOutputStream zos = new ZipOutputStream(baos)) {
-            for (Arquivo arquivo : arquivos) {
-                String nomeOriginal = arquivo.getNomeArquivo();
-                String nomeFinal = nomeOriginal;
-                int contador = 1;
-
-                // LÓGICA DE VERIFICAÇÃO DE DUPLICIDADE:
-                // Enquanto o nome final já existir no zip, tenta um novo nome.
-                while (nomesAdicionados.contains(nomeFinal)) {
-                    // Pega o nome sem a extensão
-                    String nomeBase = nomeOriginal.substring(0, nomeOriginal.lastIndexOf('.'));
-                    // Pega a extensão
-                    String extensao = nomeOriginal.substring(nomeOriginal.lastIndexOf('.'));
-                    // Cria um novo nome: "nome (1).txt"
-                    nomeFinal = String.format("%s (%d)%s", nomeBase, contador++, extensao);
-                }
+    // Pool próprio, como o do renderizador de PDF; não é exposto como bean
+    private ThreadPoolTaskExecutor compressores;
 
-                // Adiciona o nome final (e único) ao controle e ao zip.
-                nomesAdicionados.add(nomeFinal);
-                ZipEntry entry = new ZipEntry(nomeFinal);
-                zos.putNextEntry(entry);
+    // Entrada já decidida (nome único no ZIP e método) aguardando preparo
+    private record EntradaPlanejada(String nome, Path origem, boolean comprimir) {}
 
-                File file = new File(arquivo.getCaminhoArquivo());
-                if (!file.exists()) {
-                    System.err.println("[WARN] Arquivo ausente no disco, ignorando no ZIP: " + arquivo.getCaminhoArquivo());
-                    continue;
+    // Entrada pronta para gravação: dados já no formato do ZIP (o próprio anexo, se STORED, ou o temporário deflate)
+    private record EntradaPreparada(String nome, int metodo, long crc, long tamanho, long tamanhoComprimido,
+                                    long modificadoEm, Path dados, boolean temporario) {
+        void descartar() {
+            if (temporario) {
+                try {
+                    Files.deleteIfExists(dados);
+                } catch (IOException e) {
+                    System.err.println("[WARN] Não foi possível apagar o temporário do ZIP " + dados + ": " + e.getMessage());
                 }
+            }
+        }
+    }
+
+    @PostConstruct
+    void iniciarCompressores() {
+        compressores = new ThreadPoolTaskExecutor();
+        compressores.setCorePoolSize(Math.max(1, zipConfig.getThreads()));
+        compressores.setMaxPoolSize(Math.max(1, zipConfig.getThreads()));
+        compressores.setThreadNamePrefix("zip-");
+        compressores.initialize();
+    }
+
+    @PreDestroy
+    void pararCompressores() {
+        compressores.shutdown();
+    }
+
+    /**
+     * Escreve o ZIP dos arquivos direto na saída (ex.: o corpo da resposta HTTP), à medida que cada
+     * entrada fica pronta. Não fecha a saída recebida.
+     */
+    public void escreverZip(Collection<Arquivo> arquivos, OutputStream saida) throws IOException {
+        List<EntradaPlanejada> entradas = planejar(arquivos);
+        int adiantadas = Math.max(1, zipConfig.getEntradasAdiantadas());
 
-                try (FileInputStream fis = new FileInputStream(file)) {
-                    byte[] buffer = new byte[8192];
-                    int len;
-                    while ((len = fis.read(buffer)) > 0) {
-                        zos.write(buffer, 0, len);
+        // Sinaliza às tarefas ainda no pool que o download acabou (ex.: cliente desconectou)
+        AtomicBoolean cancelado = new AtomicBoolean();
+        Deque<Future<EntradaPreparada>> pendentes = new ArrayDeque<>();
+        Iterator<EntradaPlanejada> proximas = entradas.iterator();
+
+        ZipArchiveOutputStream zos = new ZipArchiveOutputStream(new BufferedOutputStream(saida, TAMANHO_BUFFER));
+        try {
+            while (true) {
+                while (pendentes.size() < adiantadas && proximas.hasNext()) {
+                    EntradaPlanejada entrada = proximas.next();
+                    pendentes.add(compressores.submit(() -> preparar(entrada, cancelado)));
+                }
+                if (pendentes.isEmpty()) {
+                    break;
+                }
+                EntradaPreparada pronta = aguardar(pendentes.poll());
+                if (pronta != null) {
+                    try {
+                        gravar(zos, pronta);
+                    } finally {
+                        pronta.descartar();
                     }
                 }
-                zos.closeEntry();
             }
+            // finish() grava o diretório central e descarrega o buffer sem fechar a saída do container
+            zos.finish();
+            zos.flush();
+        } finally {
+            cancelado.set(true);
+            descartarPendentes(pendentes);
+        }
+    }
+
+    // Nomes únicos no ZIP ("nome (1).ext") e método de cada entrada, na ordem recebida
+    private List<EntradaPlanejada> planejar(Collection<Arquivo> arquivos) {
+        Set<String> nomesAdicionados = new HashSet<>();
+        List<EntradaPlanejada> entradas = new ArrayList<>(arquivos.size());
+        for (Arquivo arquivo : arquivos) {
+            String nomeOriginal = arquivo.getNomeArquivo();
+            int ponto = nomeOriginal.lastIndexOf('.');
+            String nomeBase = ponto > 0 ? nomeOriginal.substring(0, ponto) : nomeOriginal;
+            String extensao = ponto > 0 ? nomeOriginal.substring(ponto) : "";
+
+            String nomeFinal = nomeOriginal;
+            int contador = 1;
+            while (nomesAdicionados.contains(nomeFinal)) {
+                nomeFinal = String.format("%s (%d)%s", nomeBase, contador++, extensao);
+            }
+            nomesAdicionados.add(nomeFinal);
+            entradas.add(new EntradaPlanejada(nomeFinal, Paths.get(arquivo.getCaminhoArquivo()), comprimivel(arquivo)));
+        }
+        return entradas;
+    }
+
+    private boolean comprimivel(Arquivo arquivo) {
+        String tipo = arquivo.getTipo() == null ? "" : arquivo.getTipo().toLowerCase(Locale.ROOT);
+        int parametros = tipo.indexOf(';');
+        if (parametros >= 0) {
+            tipo = tipo.substring(0, parametros).trim();
+        }
+        if (tipo.isEmpty() || tipo.equals("application/octet-stream")) {
+            String nome = arquivo.getNomeArquivo().toLowerCase(Locale.ROOT);
+            String extensao = nome.substring(nome.lastIndexOf('.') + 1);
+            return !zipConfig.getExtensoesSemCompressao().contains(extensao);
+        }
+        for (String semCompressao : zipConfig.getTiposSemCompressao()) {
+            boolean prefixo = semCompressao.endsWith("/") || semCompressao.endsWith(".");
+            if (prefixo ? tipo.startsWith(semCompressao) : tipo.equals(semCompressao)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Roda no pool: calcula o CRC (STORED) ou comprime para um temporário (DEFLATED)
+    private EntradaPreparada preparar(EntradaPlanejada entrada, AtomicBoolean cancelado) throws IOException {
+        Path origem = entrada.origem();
+        if (!Files.isRegularFile(origem)) {
+            System.err.println("[WARN] Arquivo ausente no disco, ignorando no ZIP: " + origem);
+            return null;
+        }
+        long modificadoEm = Files.getLastModifiedTime(origem).toMillis();
+        byte[] buffer = new byte[TAMANHO_BUFFER];
+        CRC32 crc = new CRC32();
+
+        if (!entrada.comprimir()) {
+            long tamanho = 0;
+            try (InputStream in = Files.newInputStream(origem)) {
+                int len;
+                while ((len = in.read(buffer)) > 0) {
+                    interromperSeCancelado(cancelado);
+                    crc.update(buffer, 0, len);
+                    tamanho += len;
+                }
+            }
+            return new EntradaPreparada(entrada.nome(), ZipArchiveEntry.STORED, crc.getValue(), tamanho, tamanho,
+                    modificadoEm, origem, false);
+        }
+
+        Path temporario = Files.createTempFile("zip-entrada-", ".deflate");
+        Deflater deflater = new Deflater(zipConfig.getNivelCompressao(), true);
+        long tamanho = 0;
+        try {
+            try (InputStream in = Files.newInputStream(origem);
+                 DeflaterOutputStream out = new DeflaterOutputStream(Files.newOutputStream(temporario), deflater, TAMANHO_BUFFER)) {
+                int len;
+                while ((len = in.read(buffer)) > 0) {
+                    interromperSeCancelado(cancelado);
+                    crc.update(buffer, 0, len);
+                    out.write(buffer, 0, len);
+                    tamanho += len;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporario);
+            throw e;
+        } finally {
+            deflater.end();
+        }
+
+        long comprimido = Files.size(temporario);
+        if (comprimido >= tamanho) {
+            // O tipo prometia compressão, mas o conteúdo não comprimiu: grava o original
+            Files.deleteIfExists(temporario);
+            return new EntradaPreparada(entrada.nome(), ZipArchiveEntry.STORED, crc.getValue(), tamanho, tamanho,
+                    modificadoEm, origem, false);
+        }
+        return new EntradaPreparada(entrada.nome(), ZipArchiveEntry.DEFLATED, crc.getValue(), tamanho, comprimido,
+                modificadoEm, temporario, true);
+    }
+
+    private void gravar(ZipArchiveOutputStream zos, EntradaPreparada pronta) throws IOException {
+        ZipArchiveEntry entry = new ZipArchiveEntry(pronta.nome());
+        entry.setMethod(pronta.metodo());
+        entry.setCrc(pronta.crc());
+        entry.setSize(pronta.tamanho());
+        entry.setCompressedSize(pronta.tamanhoComprimido());
+        entry.setTime(pronta.modificadoEm());
+        try (InputStream dados = Files.newInputStream(pronta.dados())) {
+            zos.addRawArchiveEntry(entry, dados);
+        }
+    }
+
+    private EntradaPreparada aguardar(Future<EntradaPreparada> futuro) throws IOException {
+        try {
+            return futuro.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Geração do ZIP interrompida");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Falha ao preparar entrada do ZIP", e.getCause());
+        }
+    }
+
+    // Download interrompido: espera as tarefas já enviadas (param no próximo bloco) e apaga os temporários
+    private void descartarPendentes(Deque<Future<EntradaPreparada>> pendentes) {
+        for (Future<EntradaPreparada> futuro : pendentes) {
+            try {
+                EntradaPreparada pronta = futuro.get();
+                if (pronta != null) {
+                    pronta.descartar();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException ignorada) {
+                // A tarefa já apagou o próprio temporário
+            }
+        }
+        pendentes.clear();
+    }
+
+    private static void interromperSeCancelado(AtomicBoolean cancelado) throws IOException {
+        if (cancelado.get()) {
+            throw new InterruptedIOException("Download do ZIP cancelado");
         }
-        return baos.toByteArray();
     }
-}
\ No newline at end of file
+}
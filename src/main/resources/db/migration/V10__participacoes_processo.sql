@@ -0,0 +1,29 @@
+-- Uma linha por (usuario, processo) por onde o processo ja passou. "Meus enviados" e "Ja passou por mim"
+-- viram varreduras do indice (id_usuario[, papel], data_criacao_processo), sem DISTINCT sobre etapas_processo
+CREATE TABLE IF NOT EXISTS participacoes_processo (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    id_usuario BIGINT NOT NULL,
+    id_processo BIGINT NOT NULL,
+    papel VARCHAR(20) NOT NULL,
+    ultima_acao DATETIME(6) NOT NULL,
+    data_criacao_processo DATETIME(6) NULL,
+    CONSTRAINT uk_participacoes_usuario_processo UNIQUE (id_usuario, id_processo)
+);
+
+CREATE INDEX idx_participacoes_usuario_papel_data ON participacoes_processo (id_usuario, papel, data_criacao_processo, id_processo);
+CREATE INDEX idx_participacoes_usuario_data ON participacoes_processo (id_usuario, data_criacao_processo, id_processo);
+CREATE INDEX idx_participacoes_processo ON participacoes_processo (id_processo);
+
+-- Backfill a partir das etapas: REMETENTE se o usuario encaminhou o processo alguma vez, senao DESTINATARIO
+INSERT INTO participacoes_processo (id_usuario, id_processo, papel, ultima_acao, data_criacao_processo)
+SELECT x.id_usuario,
+       x.id_processo,
+       CASE WHEN MAX(x.enviou) = 1 THEN 'REMETENTE' ELSE 'DESTINATARIO' END,
+       COALESCE(MAX(x.data_envio), p.data_criacao, CURRENT_TIMESTAMP(6)),
+       p.data_criacao
+FROM (SELECT e.de_usuario AS id_usuario, e.id_processo, 1 AS enviou, e.data_envio FROM etapas_processo e
+      UNION ALL
+      SELECT e.para_usuario, e.id_processo, 0, e.data_envio FROM etapas_processo e) x
+    JOIN processos_tramitacao p ON p.id = x.id_processo
+WHERE x.id_usuario IS NOT NULL
+GROUP BY x.id_usuario, x.id_processo, p.data_criacao;
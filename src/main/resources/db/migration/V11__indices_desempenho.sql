@@ -0,0 +1,75 @@
+-- Indices das consultas quentes, espelhando o @Table(indexes) das entidades (com ddl-auto=update
+-- nada garante que existam em bancos ja criados). O VerificadorIndices confere na inicializacao.
+-- Os nomes sao os mesmos das entidades: um banco que ja rodou com ddl-auto=update pode ter parte deles,
+-- e o MySQL nao tem CREATE INDEX IF NOT EXISTS. Cada indice so e criado se o nome ainda nao existe na tabela
+
+-- etapas_processo: historico/paginas/ultima etapa por processo (ordem por id ou por data de envio)
+-- e busca pelas colunas de usuario (backfill de participacoes, exclusao de usuario)
+SET @ddl = IF(EXISTS(SELECT 1 FROM information_schema.statistics
+                     WHERE table_schema = DATABASE() AND table_name = 'etapas_processo' AND index_name = 'idx_etapas_processo_id'),
+              'DO 0', 'CREATE INDEX idx_etapas_processo_id ON etapas_processo (id_processo, id)');
+PREPARE criar_indice FROM @ddl;
+EXECUTE criar_indice;
+DEALLOCATE PREPARE criar_indice;
+SET @ddl = IF(EXISTS(SELECT 1 FROM information_schema.statistics
+                     WHERE table_schema = DATABASE() AND table_name = 'etapas_processo' AND index_name = 'idx_etapas_processo_data_envio'),
+              'DO 0', 'CREATE INDEX idx_etapas_processo_data_envio ON etapas_processo (id_processo, data_envio)');
+PREPARE criar_indice FROM @ddl;
+EXECUTE criar_indice;
+DEALLOCATE PREPARE criar_indice;
+SET @ddl = IF(EXISTS(SELECT 1 FROM information_schema.statistics
+                     WHERE table_schema = DATABASE() AND table_name = 'etapas_processo' AND index_name = 'idx_etapas_para_usuario'),
+              'DO 0', 'CREATE INDEX idx_etapas_para_usuario ON etapas_processo (para_usuario)');
+PREPARE criar_indice FROM @ddl;
+EXECUTE criar_indice;
+DEALLOCATE PREPARE criar_indice;
+SET @ddl = IF(EXISTS(SELECT 1 FROM information_schema.statistics
+                     WHERE table_schema = DATABASE() AND table_name = 'etapas_processo' AND index_name = 'idx_etapas_de_usuario'),
+              'DO 0', 'CREATE INDEX idx_etapas_de_usuario ON etapas_processo (de_usuario)');
+PREPARE criar_indice FROM @ddl;
+EXECUTE criar_indice;
+DEALLOCATE PREPARE criar_indice;
+
+-- arquivos_processo: consolidado do despacho (processo + tipo + prefixo do nome, maior id)
+-- e PDF da etapa (etapa + nome)
+SET @ddl = IF(EXISTS(SELECT 1 FROM information_schema.statistics
+                     WHERE table_schema = DATABASE() AND table_name = 'arquivos_processo' AND index_name = 'idx_arquivos_processo_tipo_nome'),
+              'DO 0', 'CREATE INDEX idx_arquivos_processo_tipo_nome ON arquivos_processo (id_processo, tipo, nome_arquivo)');
+PREPARE criar_indice FROM @ddl;
+EXECUTE criar_indice;
+DEALLOCATE PREPARE criar_indice;
+SET @ddl = IF(EXISTS(SELECT 1 FROM information_schema.statistics
+                     WHERE table_schema = DATABASE() AND table_name = 'arquivos_processo' AND index_name = 'idx_arquivos_etapa_nome'),
+              'DO 0', 'CREATE INDEX idx_arquivos_etapa_nome ON arquivos_processo (id_etapa, nome_arquivo)');
+PREPARE criar_indice FROM @ddl;
+EXECUTE criar_indice;
+DEALLOCATE PREPARE criar_indice;
+
+-- usuario: login por matricula e busca do secadm por perfil
+SET @ddl = IF(EXISTS(SELECT 1 FROM information_schema.statistics
+                     WHERE table_schema = DATABASE() AND table_name = 'usuario' AND index_name = 'idx_usuario_matricula'),
+              'DO 0', 'CREATE INDEX idx_usuario_matricula ON usuario (matricula)');
+PREPARE criar_indice FROM @ddl;
+EXECUTE criar_indice;
+DEALLOCATE PREPARE criar_indice;
+SET @ddl = IF(EXISTS(SELECT 1 FROM information_schema.statistics
+                     WHERE table_schema = DATABASE() AND table_name = 'usuario' AND index_name = 'idx_usuario_perfil'),
+              'DO 0', 'CREATE INDEX idx_usuario_perfil ON usuario (perfil)');
+PREPARE criar_indice FROM @ddl;
+EXECUTE criar_indice;
+DEALLOCATE PREPARE criar_indice;
+
+-- processos_tramitacao: filtros de status e departamento da listagem "todos", ja na ordem por data
+-- (data_criacao sozinha e coberta por idx_processos_data_criacao, da V8)
+SET @ddl = IF(EXISTS(SELECT 1 FROM information_schema.statistics
+                     WHERE table_schema = DATABASE() AND table_name = 'processos_tramitacao' AND index_name = 'idx_processos_status_data'),
+              'DO 0', 'CREATE INDEX idx_processos_status_data ON processos_tramitacao (status, data_criacao)');
+PREPARE criar_indice FROM @ddl;
+EXECUTE criar_indice;
+DEALLOCATE PREPARE criar_indice;
+SET @ddl = IF(EXISTS(SELECT 1 FROM information_schema.statistics
+                     WHERE table_schema = DATABASE() AND table_name = 'processos_tramitacao' AND index_name = 'idx_processos_departamento_data'),
+              'DO 0', 'CREATE INDEX idx_processos_departamento_data ON processos_tramitacao (departamento_origem, data_criacao)');
+PREPARE criar_indice FROM @ddl;
+EXECUTE criar_indice;
+DEALLOCATE PREPARE criar_indice;
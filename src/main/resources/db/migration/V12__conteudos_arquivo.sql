@@ -0,0 +1,14 @@
+-- Armazenamento dos anexos por conteudo: um blob por SHA-256 em {upload-dir}/blobs/ab/cd/{hash},
+-- com uma referencia por linha de arquivos_processo. Blobs com zero referencias sao apagados pela varredura
+CREATE TABLE IF NOT EXISTS conteudos_arquivo (
+    hash VARCHAR(64) NOT NULL PRIMARY KEY,
+    tamanho BIGINT NOT NULL,
+    referencias INT NOT NULL,
+    atualizado_em DATETIME(6) NOT NULL
+);
+
+CREATE INDEX idx_conteudos_referencias_atualizado ON conteudos_arquivo (referencias, atualizado_em);
+
+-- Nulo nos anexos anteriores (continuam em {upload-dir}/{processoId}/{nome}) e nos PDFs de despacho
+ALTER TABLE arquivos_processo
+    ADD COLUMN hash_conteudo VARCHAR(64) NULL;
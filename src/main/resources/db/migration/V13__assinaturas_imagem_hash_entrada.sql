@@ -0,0 +1,5 @@
+-- SHA-256 do Base64 recebido, antes da normalizacao: uma assinatura ja conhecida e achada sem decodificar
+-- a imagem de novo. Nulo nas assinaturas anteriores (sao encontradas pelo hash do PNG normalizado)
+ALTER TABLE assinaturas_imagem
+    ADD COLUMN hash_entrada VARCHAR(64) NULL,
+    ADD CONSTRAINT uk_assinaturas_imagem_hash_entrada UNIQUE (hash_entrada);
@@ -0,0 +1,19 @@
+-- Outbox da renderizacao dos PDFs de despacho (consumida pelo worker em segundo plano)
+CREATE TABLE IF NOT EXISTS pdf_render_jobs (
+    id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    id_processo BIGINT NOT NULL,
+    id_etapa BIGINT NOT NULL,
+    assinatura LONGTEXT NULL,
+    usar_assinatura_texto BIT NOT NULL,
+    gerar_pdf_etapa BIT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    tentativas INT NOT NULL,
+    erro VARCHAR(1000) NULL,
+    data_criacao DATETIME(6) NULL,
+    data_atualizacao DATETIME(6) NULL,
+    INDEX idx_pdf_render_jobs_status_processo (status, id_processo)
+);
+
+-- Situacao da geracao de cada PDF de despacho (nulo = anexo enviado pelo usuario)
+ALTER TABLE arquivos_processo
+    ADD COLUMN status_renderizacao VARCHAR(20) NULL;
@@ -0,0 +1,18 @@
+-- Assinaturas desenhadas normalizadas (PNG reduzido), deduplicadas pelo SHA-256 do conteudo
+CREATE TABLE IF NOT EXISTS assinaturas_imagem (
+    id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    hash VARCHAR(64) NOT NULL,
+    conteudo MEDIUMBLOB NOT NULL,
+    largura INT NOT NULL,
+    altura INT NOT NULL,
+    data_criacao DATETIME(6) NULL,
+    CONSTRAINT uk_assinaturas_imagem_hash UNIQUE (hash)
+);
+
+ALTER TABLE etapas_processo
+    ADD COLUMN id_assinatura_imagem BIGINT NULL,
+    ADD CONSTRAINT fk_etapas_assinatura_imagem FOREIGN KEY (id_assinatura_imagem) REFERENCES assinaturas_imagem (id);
+
+-- A assinatura nao trafega mais em Base64 pelo job de renderizacao
+ALTER TABLE pdf_render_jobs
+    DROP COLUMN assinatura;
@@ -0,0 +1,17 @@
+-- Execucoes da regeneracao em lote dos PDFs de despacho; ultimo_processo_id e o checkpoint do cursor
+CREATE TABLE IF NOT EXISTS regeneracoes_pdf (
+    id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    status VARCHAR(20) NOT NULL,
+    ultimo_processo_id BIGINT NOT NULL DEFAULT 0,
+    processos_processados BIGINT NOT NULL DEFAULT 0,
+    processos_com_erro BIGINT NOT NULL DEFAULT 0,
+    paginas_geradas BIGINT NOT NULL DEFAULT 0,
+    erro VARCHAR(1000) NULL,
+    data_inicio DATETIME(6) NULL,
+    data_atualizacao DATETIME(6) NULL,
+    data_fim DATETIME(6) NULL
+);
+
+-- A regeneracao precisa saber como cada etapa foi assinada (texto ou imagem)
+ALTER TABLE etapas_processo
+    ADD COLUMN usar_assinatura_texto BIT(1) NULL;
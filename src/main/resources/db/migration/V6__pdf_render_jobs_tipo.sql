@@ -0,0 +1,3 @@
+-- Jobs de carimbo do protocolo (aplicado uma unica vez em cada pagina do consolidado)
+ALTER TABLE pdf_render_jobs
+    ADD COLUMN tipo VARCHAR(20) NOT NULL DEFAULT 'PAGINA';
@@ -0,0 +1,16 @@
+-- Etapa mais recente e responsavel atual desnormalizados no processo (caixa "para mim" e autorizacao
+-- passam a ser buscas diretas no indice, sem o MAX(id) correlacionado em etapas_processo)
+ALTER TABLE processos_tramitacao
+    ADD COLUMN ultima_etapa_id BIGINT NULL,
+    ADD COLUMN responsavel_atual_id BIGINT NULL;
+
+-- Backfill: a etapa de maior id de cada processo e o seu destinatario
+UPDATE processos_tramitacao p
+    JOIN (SELECT id_processo, MAX(id) AS ultima_id FROM etapas_processo GROUP BY id_processo) u
+        ON u.id_processo = p.id
+    JOIN etapas_processo e ON e.id = u.ultima_id
+SET p.ultima_etapa_id = e.id,
+    p.responsavel_atual_id = e.para_usuario;
+
+CREATE INDEX idx_processos_responsavel_atual ON processos_tramitacao (responsavel_atual_id, data_criacao);
+CREATE INDEX idx_processos_ultima_etapa ON processos_tramitacao (ultima_etapa_id);
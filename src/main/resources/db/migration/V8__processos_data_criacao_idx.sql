@@ -0,0 +1,11 @@
+-- Ordem da listagem por cursor (data_criacao DESC, id DESC): o seek comeca direto na posicao do token.
+-- O mesmo nome esta no @Table(indexes) de Processo: num banco que ja rodou com ddl-auto=update o indice
+-- pode existir, e o MySQL nao tem CREATE INDEX IF NOT EXISTS. So cria se o nome ainda nao existe na tabela
+SET @ddl = IF(EXISTS(SELECT 1 FROM information_schema.statistics
+                     WHERE table_schema = DATABASE() AND table_name = 'processos_tramitacao'
+                       AND index_name = 'idx_processos_data_criacao'),
+              'DO 0',
+              'CREATE INDEX idx_processos_data_criacao ON processos_tramitacao (data_criacao, id)');
+PREPARE criar_indice FROM @ddl;
+EXECUTE criar_indice;
+DEALLOCATE PREPARE criar_indice;
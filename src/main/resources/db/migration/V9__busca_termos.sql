@@ -0,0 +1,12 @@
+-- Indice invertido da busca textual (titulo, descricao e observacoes das etapas).
+-- O preenchimento inicial e feito pela aplicacao: POST /api/admin/busca/reindexacao
+CREATE TABLE IF NOT EXISTS busca_termos (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    termo VARCHAR(60) NOT NULL,
+    id_processo BIGINT NOT NULL,
+    id_etapa BIGINT NULL,
+    peso INT NOT NULL
+);
+
+CREATE INDEX idx_busca_termos_termo ON busca_termos (termo, id_processo, peso);
+CREATE INDEX idx_busca_termos_processo ON busca_termos (id_processo, id_etapa);
@@ -8,3 +8,32 @@ ALTER TABLE etapas_processo
     MODIFY COLUMN observacao LONGTEXT,
     MODIFY COLUMN assinatura LONGTEXT;
 
+
+-- Responsavel atual desnormalizado (ultima_etapa_id / responsavel_atual_id): preenche os processos
+-- anteriores as colunas. Idempotente: so toca linhas ainda nulas que ja tem etapas
+UPDATE processos_tramitacao p
+SET ultima_etapa_id = (SELECT MAX(e.id) FROM etapas_processo e WHERE e.id_processo = p.id)
+WHERE p.ultima_etapa_id IS NULL;
+
+UPDATE processos_tramitacao p
+SET responsavel_atual_id = (SELECT e.para_usuario FROM etapas_processo e WHERE e.id = p.ultima_etapa_id)
+WHERE p.responsavel_atual_id IS NULL
+  AND p.ultima_etapa_id IS NOT NULL;
+
+-- Participacoes por usuario ("meus enviados" / "ja passou por mim"): gera, a partir das etapas, os pares
+-- (usuario, processo) que ainda nao tem linha. REMETENTE se o usuario encaminhou o processo alguma vez.
+-- Idempotente: pares ja registrados (inclusive pelos encaminhamentos novos) ficam como estao
+INSERT INTO participacoes_processo (id_usuario, id_processo, papel, ultima_acao, data_criacao_processo)
+SELECT x.id_usuario,
+       x.id_processo,
+       CASE WHEN MAX(x.enviou) = 1 THEN 'REMETENTE' ELSE 'DESTINATARIO' END,
+       COALESCE(MAX(x.data_envio), p.data_criacao, CURRENT_TIMESTAMP(6)),
+       p.data_criacao
+FROM (SELECT e.de_usuario AS id_usuario, e.id_processo, 1 AS enviou, e.data_envio FROM etapas_processo e
+      UNION ALL
+      SELECT e.para_usuario, e.id_processo, 0, e.data_envio FROM etapas_processo e) x
+    JOIN processos_tramitacao p ON p.id = x.id_processo
+    LEFT JOIN participacoes_processo pp ON pp.id_processo = x.id_processo AND pp.id_usuario = x.id_usuario
+WHERE x.id_usuario IS NOT NULL
+  AND pp.id IS NULL
+GROUP BY x.id_usuario, x.id_processo, p.data_criacao;
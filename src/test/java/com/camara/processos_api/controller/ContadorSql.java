@@ -0,0 +1,129 @@
+package com.camara.processos_api.controller;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.stat.Statistics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Contagem de SQL por requisição para o ContagemSqlEndpointsTest.
+ * Registrado como StatementInspector do Hibernate (guarda o texto de cada statement preparado);
+ * os números vêm das Statistics do Hibernate. Cada endpoint tem um orçamento em
+ * src/test/resources/contagem-sql/{nome}.sql: a linha "-- statements=N entidades=N colecoes=N"
+ * e, em seguida, o SQL esperado (um statement por linha), usado no diff quando o orçamento estoura.
+ * Com -Dcontagem-sql.atualizar=true os arquivos são regravados com a medição atual.
+ */
+public class ContadorSql implements StatementInspector {
+
+    static final Path DIRETORIO_ORCAMENTOS = Paths.get("src", "test", "resources", "contagem-sql");
+    private static final String PREFIXO_ORCAMENTO = "-- statements=";
+
+    private static final List<String> capturados = new CopyOnWriteArrayList<>();
+
+    record Medicao(long statements, long entidades, long colecoes, List<String> sql) {
+        String resumo() {
+            return "statements=" + statements + " entidades=" + entidades + " colecoes=" + colecoes;
+        }
+    }
+
+    @Override
+    public String inspect(String sql) {
+        capturados.add(sql.replaceAll("\\s+", " ").trim());
+        return sql;
+    }
+
+    static void iniciar(SessionFactory sessionFactory) {
+        sessionFactory.getStatistics().clear();
+        capturados.clear();
+    }
+
+    static Medicao finalizar(SessionFactory sessionFactory) {
+        Statistics stats = sessionFactory.getStatistics();
+        return new Medicao(stats.getPrepareStatementCount(), stats.getEntityLoadCount(),
+                stats.getCollectionFetchCount(), List.copyOf(capturados));
+    }
+
+    /**
+     * Compara a medição com o orçamento do endpoint. Retorna null se estiver dentro do orçamento,
+     * ou a mensagem de falha com o diff das consultas.
+     */
+    static String verificar(String nome, String descricao, Medicao atual) throws IOException {
+        Path arquivo = DIRETORIO_ORCAMENTOS.resolve(nome + ".sql");
+        if (Boolean.getBoolean("contagem-sql.atualizar")) {
+            gravar(arquivo, descricao, atual);
+            return null;
+        }
+        if (!Files.exists(arquivo)) {
+            return nome + " (" + descricao + "): sem orçamento em " + arquivo
+                    + "; medido " + atual.resumo() + ". Rode com -Dcontagem-sql.atualizar=true para gravá-lo.";
+        }
+
+        List<String> linhas = Files.readAllLines(arquivo, StandardCharsets.UTF_8);
+        Medicao orcamento = ler(linhas);
+        if (atual.statements() <= orcamento.statements() && atual.entidades() <= orcamento.entidades()
+                && atual.colecoes() <= orcamento.colecoes()) {
+            if (!atual.resumo().equals(orcamento.resumo())) {
+                System.out.println("[INFO] " + nome + " abaixo do orçamento (" + atual.resumo() + " < " + orcamento.resumo()
+                        + "); rode com -Dcontagem-sql.atualizar=true para apertá-lo.");
+            }
+            return null;
+        }
+        return nome + " (" + descricao + "): acima do orçamento\n"
+                + "  orçamento: " + orcamento.resumo() + "\n"
+                + "  medido:    " + atual.resumo() + "\n"
+                + diff(orcamento.sql(), atual.sql());
+    }
+
+    private static Medicao ler(List<String> linhas) {
+        String cabecalho = linhas.stream().filter(l -> l.startsWith(PREFIXO_ORCAMENTO)).findFirst()
+                .orElseThrow(() -> new IllegalStateException("Orçamento sem a linha '" + PREFIXO_ORCAMENTO + "...'"));
+        Map<String, Long> valores = new TreeMap<>();
+        for (String par : cabecalho.substring(3).trim().split("\\s+")) {
+            String[] kv = par.split("=");
+            valores.put(kv[0], Long.parseLong(kv[1]));
+        }
+        List<String> sql = linhas.stream().filter(l -> !l.isBlank() && !l.startsWith("--")).toList();
+        return new Medicao(valores.get("statements"), valores.get("entidades"), valores.get("colecoes"), sql);
+    }
+
+    private static void gravar(Path arquivo, String descricao, Medicao medicao) throws IOException {
+        Files.createDirectories(arquivo.getParent());
+        List<String> linhas = new ArrayList<>();
+        linhas.add("-- " + descricao);
+        linhas.add(PREFIXO_ORCAMENTO + medicao.statements() + " entidades=" + medicao.entidades() + " colecoes=" + medicao.colecoes());
+        linhas.addAll(medicao.sql());
+        Files.write(arquivo, linhas, StandardCharsets.UTF_8);
+    }
+
+    // Diff por multiconjunto: a ordem das consultas pode mudar sem que isso seja regressão
+    private static String diff(List<String> esperado, List<String> atual) {
+        Map<String, Long> antes = esperado.stream().collect(Collectors.groupingBy(Function.identity(), TreeMap::new, Collectors.counting()));
+        Map<String, Long> depois = atual.stream().collect(Collectors.groupingBy(Function.identity(), TreeMap::new, Collectors.counting()));
+        StringBuilder sb = new StringBuilder("  consultas (+ a mais, - a menos que o orçamento):\n");
+        depois.forEach((sql, n) -> {
+            long extra = n - antes.getOrDefault(sql, 0L);
+            if (extra > 0) {
+                sb.append("  + ").append(extra > 1 ? extra + "x " : "").append(sql).append('\n');
+            }
+        });
+        antes.forEach((sql, n) -> {
+            long falta = n - depois.getOrDefault(sql, 0L);
+            if (falta > 0) {
+                sb.append("  - ").append(falta > 1 ? falta + "x " : "").append(sql).append('\n');
+            }
+        });
+        return sb.toString();
+    }
+}
@@ -0,0 +1,362 @@
+package com.camara.processos_api.controller;
+
+import com.camara.processos_api.model.Arquivo;
+import com.camara.processos_api.model.Etapa;
+import com.camara.processos_api.model.ParticipacaoProcesso;
+import com.camara.processos_api.model.Processo;
+import com.camara.processos_api.model.Usuario;
+import com.camara.processos_api.repository.ArquivoRepository;
+import com.camara.processos_api.repository.EtapaRepository;
+import com.camara.processos_api.repository.ParticipacaoProcessoRepository;
+import com.camara.processos_api.repository.ProcessoRepository;
+import com.camara.processos_api.repository.UsuarioRepository;
+import com.camara.processos_api.service.BuscaProcessoService;
+import com.camara.processos_api.service.CacheEntidadesService;
+import com.camara.processos_api.service.DespachoRenderService;
+import com.camara.processos_api.service.FileStorageService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doNothing;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+/**
+ * Orçamento de SQL por endpoint (regressões N+1). Cada requisição roda com o cache de segundo nível
+ * vazio contra uma massa fixa no H2; statements, entidades carregadas e coleções buscadas não podem
+ * passar do orçamento em src/test/resources/contagem-sql (ver ContadorSql).
+ * O worker de PDF fica desligado: a renderização roda em outra thread e somaria às estatísticas.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.camara.processos_api.controller.ContadorSql",
+        "despacho.pdf.intervalo-varredura-ms=3600000"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ContagemSqlEndpointsTest {
+
+    // Massa da listagem: datas no futuro, acima de tudo que os testes de escrita criam
+    private static final int PROCESSOS_SEMEADOS = 12;
+    private static final LocalDateTime BASE = LocalDateTime.of(2100, 1, 1, 0, 0);
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired private CacheEntidadesService cacheEntidadesService;
+    @Autowired private UsuarioRepository usuarioRepository;
+    @Autowired private ProcessoRepository processoRepository;
+    @Autowired private EtapaRepository etapaRepository;
+    @Autowired private ArquivoRepository arquivoRepository;
+    @Autowired private ParticipacaoProcessoRepository participacaoProcessoRepository;
+    @Autowired private BuscaProcessoService buscaProcessoService;
+    @Autowired private FileStorageService fileStorageService;
+    @SpyBean private DespachoRenderService despachoRenderService;
+
+    private SessionFactory sessionFactory;
+    private Usuario leitor;
+    private Usuario admin;
+    private Usuario secadm;
+    private Usuario destino;
+    private Long processoSemeadoId;
+    private Long arquivoSemeadoId;
+    private final List<String> falhas = new ArrayList<>();
+
+    @BeforeAll
+    void semear() {
+        sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+
+        leitor = usuario("sql-leitor", "secjur");
+        admin = usuario("sql-admin", "admin");
+        secadm = usuario("sql-secadm", "secadm");
+        destino = usuario("sql-destino", "secleg");
+
+        for (int i = 0; i < PROCESSOS_SEMEADOS; i++) {
+            Processo processo = novoProcesso("Orcamento anual " + i, i % 2 == 0 ? admin : secadm, BASE.minusHours(i));
+            // admin -> leitor -> secadm -> leitor: o leitor tem o processo na caixa e já o encaminhou
+            etapa(processo, admin, leitor);
+            etapa(processo, leitor, secadm);
+            etapa(processo, secadm, leitor);
+            arquivo(processo, "anexo-a.txt");
+            Arquivo anexo = arquivo(processo, "anexo-b.txt");
+            if (i == 0) {
+                processoSemeadoId = processo.getId();
+                arquivoSemeadoId = anexo.getId();
+            }
+        }
+    }
+
+    // O @SpyBean é resetado depois de cada teste
+    @BeforeEach
+    void desligarWorkerDePdf() {
+        doNothing().when(despachoRenderService).aoConfirmarEtapa(any());
+    }
+
+    @AfterEach
+    void conferirOrcamentos() {
+        List<String> estouros = new ArrayList<>(falhas);
+        falhas.clear();
+        if (!estouros.isEmpty()) {
+            fail("Orçamento de SQL estourado em " + estouros.size() + " endpoint(s):\n\n" + String.join("\n", estouros));
+        }
+    }
+
+    // --- ProcessoController ---
+    @Test
+    void processoLeitura() throws Exception {
+        medir("processo-detalhe", "GET /api/processos/{id}",
+                get("/api/processos/{id}", processoSemeadoId).with(como(leitor)), 200);
+        medir("processo-zip", "GET /api/processos/{id}/arquivos/download-zip",
+                get("/api/processos/{id}/arquivos/download-zip", processoSemeadoId).with(como(leitor)), 200);
+        medir("processo-rar", "GET /api/processos/{id}/arquivos/download-rar",
+                get("/api/processos/{id}/arquivos/download-rar", processoSemeadoId).with(como(leitor)), 302);
+
+        for (String filtro : List.of("todos", "para_mim", "meus_enviados", "ja_passou_por_mim")) {
+            medir("processo-lista-" + filtro, "GET /api/processos?filtro=" + filtro + "&size=10",
+                    get("/api/processos").param("filtro", filtro).param("size", "10").with(como(leitor)), 200);
+            medir("processo-slice-" + filtro, "GET /api/processos/slice?filtro=" + filtro + "&size=10",
+                    get("/api/processos/slice").param("filtro", filtro).param("size", "10").with(como(leitor)), 200);
+            medir("processo-resumo-" + filtro, "GET /api/processos/resumo?filtro=" + filtro + "&size=10",
+                    get("/api/processos/resumo").param("filtro", filtro).param("size", "10").with(como(leitor)), 200);
+            medir("processo-cursor-" + filtro, "GET /api/processos/cursor?filtro=" + filtro + "&tamanho=10",
+                    get("/api/processos/cursor").param("filtro", filtro).param("tamanho", "10").with(como(leitor)), 200);
+        }
+        medir("processo-busca", "GET /api/processos/busca?q=orcamento anual",
+                get("/api/processos/busca").param("q", "orcamento anual").param("size", "10").with(como(leitor)), 200);
+    }
+
+    @Test
+    void processoEscrita() throws Exception {
+        medir("processo-criar", "POST /api/processos",
+                post("/api/processos").contentType(MediaType.APPLICATION_JSON)
+                        .content(processoJson("Processo criado no teste")).with(como(admin)), 201);
+
+        medir("processo-criar-com-arquivo", "POST /api/processos/com-arquivo (1 anexo)",
+                multipart("/api/processos/com-arquivo")
+                        .file(new MockMultipartFile("processo", "", MediaType.APPLICATION_JSON_VALUE,
+                                processoJson("Processo com anexo no teste").getBytes(StandardCharsets.UTF_8)))
+                        .file(anexo("arquivos"))
+                        .with(como(admin)), 201);
+
+        Processo paraAtualizar = processoComHistorico(admin);
+        medir("processo-atualizar", "PUT /api/processos/{id}",
+                put("/api/processos/{id}", paraAtualizar.getId()).contentType(MediaType.APPLICATION_JSON)
+                        .content(processoJson("Processo atualizado no teste")).with(como(admin)), 200);
+
+        Processo paraExcluir = processoComHistorico(admin);
+        medir("processo-excluir", "DELETE /api/processos/{id}",
+                delete("/api/processos/{id}", paraExcluir.getId()).with(como(admin)), 204);
+
+        Processo paraProtocolar = processoComHistorico(secadm);
+        medir("processo-protocolar", "PATCH /api/processos/{id}/protocolar",
+                patch("/api/processos/{id}/protocolar", paraProtocolar.getId()).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"protocolo\":\"PROT-" + paraProtocolar.getId() + "\",\"proximoDestinatarioId\":" + destino.getId()
+                                + ",\"statusNovaEtapa\":\"EM_ANDAMENTO\"}")
+                        .with(como(secadm)), 200);
+    }
+
+    // --- EtapaController ---
+    @Test
+    void etapa() throws Exception {
+        Processo processo = processoComHistorico(admin);
+        medir("etapa-criar", "POST /api/processos/{id}/etapas (1 anexo)",
+                multipart("/api/processos/{id}/etapas", processo.getId())
+                        .file(new MockMultipartFile("etapa", "", MediaType.APPLICATION_JSON_VALUE,
+                                ("{\"paraUsuarioId\":" + destino.getId() + ",\"paraDepartamento\":\"SECLEG\","
+                                        + "\"status\":\"EM_ANDAMENTO\",\"observacao\":\"Encaminhado no teste\","
+                                        + "\"usarAssinaturaTexto\":true}").getBytes(StandardCharsets.UTF_8)))
+                        .file(anexo("arquivos"))
+                        .with(como(admin)), 201);
+    }
+
+    // --- ArquivoController ---
+    @Test
+    void arquivo() throws Exception {
+        Processo processo = processoComHistorico(admin);
+        medir("arquivo-upload-processo", "POST /api/processos/{id}/arquivos",
+                multipart("/api/processos/{id}/arquivos", processo.getId()).file(anexo("arquivo"))
+                        .param("usuarioId", admin.getId().toString()).with(como(admin)), 200);
+
+        Long etapaId = processo.getUltimaEtapaId();
+        medir("arquivo-upload-etapa", "POST /api/etapas/{id}/arquivos",
+                multipart("/api/etapas/{id}/arquivos", etapaId).file(anexo("arquivo"))
+                        .param("usuarioId", admin.getId().toString()).with(como(admin)), 200);
+
+        medir("arquivo-metadados", "GET /api/arquivos/{id}",
+                get("/api/arquivos/{id}", arquivoSemeadoId).with(como(leitor)), 200);
+        medir("arquivo-download", "GET /api/download/{id}",
+                get("/api/download/{id}", arquivoSemeadoId).with(como(leitor)), 200);
+
+        Arquivo paraExcluir = emTransacao(() -> arquivo(processo, "excluir.txt"));
+        medir("arquivo-excluir", "DELETE /api/arquivos/{id}",
+                delete("/api/arquivos/{id}", paraExcluir.getId()).with(como(admin)), 204);
+    }
+
+    // --- UsuarioController ---
+    @Test
+    void usuario() throws Exception {
+        medir("usuario-lista", "GET /api/usuarios",
+                get("/api/usuarios").with(como(leitor)), 200);
+        medir("usuario-lista-responsaveis", "GET /api/usuarios?apenasResponsaveis=true",
+                get("/api/usuarios").param("apenasResponsaveis", "true").with(como(leitor)), 200);
+        medir("usuario-responsaveis", "GET /api/usuarios/responsaveis",
+                get("/api/usuarios/responsaveis").with(como(leitor)), 200);
+    }
+
+    // --- Medição ---
+    private void medir(String nome, String descricao, MockHttpServletRequestBuilder requisicao, int statusEsperado) throws Exception {
+        cacheEntidadesService.invalidarTudo();
+        ContadorSql.iniciar(sessionFactory);
+        MvcResult resultado = mockMvc.perform(requisicao).andReturn();
+        // Respostas em streaming (ex.: ZIP) só escrevem o corpo no dispatch assíncrono: ele entra na conta
+        if (resultado.getRequest().isAsyncStarted()) {
+            resultado = mockMvc.perform(asyncDispatch(resultado)).andReturn();
+        }
+        assertEquals(statusEsperado, resultado.getResponse().getStatus(), descricao);
+        String falha = ContadorSql.verificar(nome, descricao, ContadorSql.finalizar(sessionFactory));
+        if (falha != null) {
+            falhas.add(falha);
+        }
+    }
+
+    // Autenticação como o JwtAuthFilter deixaria: o próprio Usuario como principal
+    private static RequestPostProcessor como(Usuario usuario) {
+        return requisicao -> {
+            SecurityContext contexto = SecurityContextHolder.createEmptyContext();
+            contexto.setAuthentication(new UsernamePasswordAuthenticationToken(usuario, null, usuario.getAuthorities()));
+            requisicao.setAttribute(RequestAttributeSecurityContextRepository.DEFAULT_REQUEST_ATTR_NAME, contexto);
+            return requisicao;
+        };
+    }
+
+    // --- Massa de dados ---
+    private Usuario usuario(String matricula, String perfil) {
+        Usuario usuario = new Usuario();
+        usuario.setMatricula(matricula);
+        usuario.setNome("Usuário " + matricula);
+        usuario.setPerfil(perfil);
+        usuario.setDepartamento(perfil);
+        return usuarioRepository.save(usuario);
+    }
+
+    // Processo com duas etapas (admin -> responsavel) e dois anexos, pronto para ser alterado pelo responsável
+    private Processo processoComHistorico(Usuario responsavel) {
+        return emTransacao(() -> {
+            Processo processo = novoProcesso("Processo de escrita", admin, LocalDateTime.now());
+            etapa(processo, admin, destino);
+            etapa(processo, destino, responsavel);
+            arquivo(processo, "historico-a.txt");
+            arquivo(processo, "historico-b.txt");
+            return processo;
+        });
+    }
+
+    private Processo novoProcesso(String titulo, Usuario criador, LocalDateTime dataCriacao) {
+        return emTransacao(() -> {
+            Processo processo = new Processo();
+            processo.setTitulo(titulo);
+            processo.setDescricao("Descrição de " + titulo);
+            processo.setStatus("EM_ANDAMENTO");
+            processo.setDepartamentoOrigem(criador.getDepartamento());
+            processo.setDataCriacao(dataCriacao);
+            processo.setCriadoPor(criador);
+            Processo salvo = processoRepository.save(processo);
+            buscaProcessoService.indexarProcesso(salvo.getId(), salvo.getTitulo(), salvo.getDescricao());
+            return salvo;
+        });
+    }
+
+    private void etapa(Processo processo, Usuario de, Usuario para) {
+        emTransacao(() -> {
+            Etapa etapa = new Etapa();
+            etapa.setProcesso(processo);
+            etapa.setDeUsuario(de);
+            etapa.setDeDepartamento(de.getDepartamento());
+            etapa.setParaUsuario(para);
+            etapa.setParaDepartamento(para.getDepartamento());
+            etapa.setStatus("EM_ANDAMENTO");
+            etapa.setObservacao("Encaminhamento de " + de.getMatricula());
+            etapa.setDataEnvio(LocalDateTime.now());
+            Etapa salva = etapaRepository.save(etapa);
+
+            processo.setUltimaEtapaId(salva.getId());
+            processo.setResponsavelAtualId(para.getId());
+            processoRepository.save(processo);
+            participacao(processo, de, ParticipacaoProcesso.PAPEL_REMETENTE);
+            participacao(processo, para, ParticipacaoProcesso.PAPEL_DESTINATARIO);
+            return salva;
+        });
+    }
+
+    private void participacao(Processo processo, Usuario usuario, String papel) {
+        ParticipacaoProcesso participacao = participacaoProcessoRepository
+                .findByProcessoIdAndUsuarioIdIn(processo.getId(), List.of(usuario.getId())).stream().findFirst()
+                .orElseGet(ParticipacaoProcesso::new);
+        if (participacao.getId() == null || ParticipacaoProcesso.PAPEL_REMETENTE.equals(papel)) {
+            participacao.setPapel(papel);
+        }
+        participacao.setUsuarioId(usuario.getId());
+        participacao.setProcessoId(processo.getId());
+        participacao.setDataCriacaoProcesso(processo.getDataCriacao());
+        participacao.setUltimaAcao(LocalDateTime.now());
+        participacaoProcessoRepository.save(participacao);
+    }
+
+    private Arquivo arquivo(Processo processo, String nome) {
+        Arquivo arquivo = new Arquivo();
+        arquivo.setProcesso(processo);
+        arquivo.setNomeArquivo(nome);
+        arquivo.setCaminhoArquivo(fileStorageService.storeFile(("conteúdo de " + nome).getBytes(StandardCharsets.UTF_8), nome, processo.getId()));
+        arquivo.setTipo(MediaType.TEXT_PLAIN_VALUE);
+        arquivo.setEnviadoPor(processo.getCriadoPor());
+        arquivo.setDataEnvio(LocalDateTime.now());
+        return arquivoRepository.save(arquivo);
+    }
+
+    private static MockMultipartFile anexo(String parametro) {
+        return new MockMultipartFile(parametro, "anexo.txt", MediaType.TEXT_PLAIN_VALUE, "anexo".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String processoJson(String titulo) {
+        return "{\"titulo\":\"" + titulo + "\",\"descricao\":\"Descrição de " + titulo + "\"}";
+    }
+
+    private <T> T emTransacao(java.util.function.Supplier<T> acao) {
+        return new TransactionTemplate(transactionManager).execute(status -> acao.get());
+    }
+}
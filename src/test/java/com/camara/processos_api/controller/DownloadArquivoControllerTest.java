@@ -0,0 +1,199 @@
+package com.camara.processos_api.controller;
+
+import com.camara.processos_api.model.Arquivo;
+import com.camara.processos_api.model.Processo;
+import com.camara.processos_api.model.Usuario;
+import com.camara.processos_api.repository.ArquivoRepository;
+import com.camara.processos_api.repository.ProcessoRepository;
+import com.camara.processos_api.repository.UsuarioRepository;
+import com.camara.processos_api.service.DownloadArquivoService;
+import com.camara.processos_api.service.FileStorageService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.head;
+
+/**
+ * Download de anexos com pedidos parciais e condicionais. O MockMvc não tem o sendfile do Tomcat:
+ * o corpo sai pelo transferTo do DownloadArquivoService, que é o que se confere aqui.
+ */
+@SpringBootTest(properties = "despacho.pdf.intervalo-varredura-ms=3600000")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class DownloadArquivoControllerTest {
+
+    private static final byte[] CONTEUDO = "0123456789abcdefghij".getBytes(StandardCharsets.UTF_8);
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private DownloadArquivoService downloadArquivoService;
+    @Autowired private FileStorageService fileStorageService;
+    @Autowired private UsuarioRepository usuarioRepository;
+    @Autowired private ProcessoRepository processoRepository;
+    @Autowired private ArquivoRepository arquivoRepository;
+
+    private Long arquivoId;
+
+    @BeforeAll
+    void semear() {
+        Usuario usuario = new Usuario();
+        usuario.setMatricula("download-teste");
+        usuario.setNome("Usuário download-teste");
+        usuario.setPerfil("secjur");
+        usuario.setDepartamento("secjur");
+        usuario = usuarioRepository.save(usuario);
+
+        Processo processo = new Processo();
+        processo.setTitulo("Processo do download");
+        processo.setDescricao("Descrição do processo do download");
+        processo.setStatus("EM_ANDAMENTO");
+        processo.setDepartamentoOrigem(usuario.getDepartamento());
+        processo.setDataCriacao(LocalDateTime.now());
+        processo.setCriadoPor(usuario);
+        processo = processoRepository.save(processo);
+
+        Arquivo arquivo = new Arquivo();
+        arquivo.setProcesso(processo);
+        arquivo.setNomeArquivo("faixas.txt");
+        arquivo.setCaminhoArquivo(fileStorageService.storeFile(CONTEUDO, "faixas.txt", processo.getId()));
+        arquivo.setTipo(MediaType.TEXT_PLAIN_VALUE);
+        arquivo.setEnviadoPor(usuario);
+        arquivo.setDataEnvio(LocalDateTime.now());
+        arquivoId = arquivoRepository.save(arquivo).getId();
+    }
+
+    @Test
+    void semRangeRespondeOArquivoInteiroComValidadores() throws Exception {
+        MvcResult resultado = mockMvc.perform(get("/api/download/{id}", arquivoId)).andReturn();
+
+        assertEquals(200, resultado.getResponse().getStatus());
+        assertArrayEquals(CONTEUDO, resultado.getResponse().getContentAsByteArray());
+        assertNotNull(resultado.getResponse().getHeader(HttpHeaders.ETAG));
+        assertNotNull(resultado.getResponse().getHeader(HttpHeaders.LAST_MODIFIED));
+        assertEquals("bytes", resultado.getResponse().getHeader(HttpHeaders.ACCEPT_RANGES));
+    }
+
+    @Test
+    void rangeRespondeParcialComContentRange() throws Exception {
+        MvcResult resultado = mockMvc.perform(get("/api/download/{id}", arquivoId)
+                .header(HttpHeaders.RANGE, "bytes=5-9")).andReturn();
+
+        assertEquals(206, resultado.getResponse().getStatus());
+        assertEquals("bytes 5-9/" + CONTEUDO.length, resultado.getResponse().getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(5, resultado.getResponse().getContentLength());
+        assertEquals("56789", resultado.getResponse().getContentAsString());
+    }
+
+    @Test
+    void rangeForaDoArquivoResponde416() throws Exception {
+        MvcResult resultado = mockMvc.perform(get("/api/download/{id}", arquivoId)
+                .header(HttpHeaders.RANGE, "bytes=100-200")).andReturn();
+
+        assertEquals(416, resultado.getResponse().getStatus());
+        assertEquals("bytes */" + CONTEUDO.length, resultado.getResponse().getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(0, resultado.getResponse().getContentAsByteArray().length);
+    }
+
+    @Test
+    void ifRangeDeOutraVersaoIgnoraORange() throws Exception {
+        String etag = etagAtual();
+
+        MvcResult mesmaVersao = mockMvc.perform(get("/api/download/{id}", arquivoId)
+                .header(HttpHeaders.RANGE, "bytes=0-3")
+                .header(HttpHeaders.IF_RANGE, etag)).andReturn();
+        assertEquals(206, mesmaVersao.getResponse().getStatus());
+        assertEquals("0123", mesmaVersao.getResponse().getContentAsString());
+
+        MvcResult outraVersao = mockMvc.perform(get("/api/download/{id}", arquivoId)
+                .header(HttpHeaders.RANGE, "bytes=0-3")
+                .header(HttpHeaders.IF_RANGE, "\"outra-versao\"")).andReturn();
+        assertEquals(200, outraVersao.getResponse().getStatus());
+        assertNull(outraVersao.getResponse().getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(CONTEUDO, outraVersao.getResponse().getContentAsByteArray());
+    }
+
+    @Test
+    void ifNoneMatchTemPrecedenciaSobreIfModifiedSince() throws Exception {
+        String etag = etagAtual();
+        // Data no futuro: sozinha daria 304, mas a ETag diferente manda o arquivo
+        long futuro = System.currentTimeMillis() + 86_400_000L;
+
+        MvcResult etagDiferente = mockMvc.perform(get("/api/download/{id}", arquivoId)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"outra-versao\"")
+                .header(HttpHeaders.IF_MODIFIED_SINCE, futuro)).andReturn();
+        assertEquals(200, etagDiferente.getResponse().getStatus());
+        assertArrayEquals(CONTEUDO, etagDiferente.getResponse().getContentAsByteArray());
+
+        // Data antiga: sozinha daria 200, mas a ETag igual responde 304 (mesmo com Range)
+        MvcResult etagIgual = mockMvc.perform(get("/api/download/{id}", arquivoId)
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .header(HttpHeaders.IF_MODIFIED_SINCE, 0L)
+                .header(HttpHeaders.RANGE, "bytes=0-3")).andReturn();
+        assertEquals(304, etagIgual.getResponse().getStatus());
+        assertEquals(0, etagIgual.getResponse().getContentAsByteArray().length);
+    }
+
+    @Test
+    void headRespondeSoOsCabecalhos() throws Exception {
+        MvcResult resultado = mockMvc.perform(head("/api/download/{id}", arquivoId)
+                .header(HttpHeaders.RANGE, "bytes=0-3")).andReturn();
+
+        // Range só vale para GET: o HEAD descreve a resposta completa
+        assertEquals(200, resultado.getResponse().getStatus());
+        assertEquals(CONTEUDO.length, resultado.getResponse().getContentLength());
+        assertEquals(etagAtual(), resultado.getResponse().getHeader(HttpHeaders.ETAG));
+        assertEquals(0, resultado.getResponse().getContentAsByteArray().length);
+    }
+
+    @Test
+    void arquivoInexistenteResponde404() throws Exception {
+        MvcResult resultado = mockMvc.perform(get("/api/download/{id}", Long.MAX_VALUE)).andReturn();
+
+        assertEquals(404, resultado.getResponse().getStatus());
+    }
+
+    @Test
+    void conteudoEmMemoriaSegueAsMesmasRegras() throws Exception {
+        ContentDisposition disposicao = ContentDisposition.inline().filename("consolidado.pdf").build();
+
+        MockHttpServletRequest parcial = new MockHttpServletRequest("GET", "/api/download/1");
+        parcial.addHeader(HttpHeaders.RANGE, "bytes=-4");
+        MockHttpServletResponse respostaParcial = new MockHttpServletResponse();
+        downloadArquivoService.enviar(CONTEUDO, MediaType.APPLICATION_PDF, disposicao, parcial, respostaParcial);
+        assertEquals(206, respostaParcial.getStatus());
+        assertEquals("ghij", respostaParcial.getContentAsString());
+        assertNull(respostaParcial.getHeader(HttpHeaders.LAST_MODIFIED));
+
+        MockHttpServletRequest condicional = new MockHttpServletRequest("GET", "/api/download/1");
+        condicional.addHeader(HttpHeaders.IF_NONE_MATCH, respostaParcial.getHeader(HttpHeaders.ETAG));
+        MockHttpServletResponse respostaCondicional = new MockHttpServletResponse();
+        downloadArquivoService.enviar(CONTEUDO, MediaType.APPLICATION_PDF, disposicao, condicional, respostaCondicional);
+        assertEquals(304, respostaCondicional.getStatus());
+        assertEquals(0, respostaCondicional.getContentAsByteArray().length);
+    }
+
+    private String etagAtual() throws Exception {
+        return mockMvc.perform(head("/api/download/{id}", arquivoId)).andReturn()
+                .getResponse().getHeader(HttpHeaders.ETAG);
+    }
+}
@@ -0,0 +1,67 @@
+package com.camara.processos_api.service;
+
+import com.camara.processos_api.model.AssinaturaImagem;
+import com.camara.processos_api.repository.AssinaturaImagemRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.Base64;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AssinaturaServiceTest {
+
+    private final AssinaturaImagemRepository repository = mock(AssinaturaImagemRepository.class);
+    private final AssinaturaService assinaturaService = new AssinaturaService(repository, mock(PlatformTransactionManager.class));
+
+    @BeforeEach
+    void prepararTransacao() {
+        assinaturaService.prepararTransacao();
+    }
+
+    @Test
+    void mesmaEntradaReaproveitaORegistroSemDecodificar() {
+        AssinaturaImagem conhecida = new AssinaturaImagem();
+        when(repository.findByHashEntrada(anyString())).thenReturn(Optional.of(conhecida));
+
+        // Se a imagem fosse decodificada, este Base64 inválido seria descartado (null)
+        assertSame(conhecida, assinaturaService.registrar("data:image/png;base64,bm8gaW1hZ2U="));
+        verify(repository, never()).findByHash(anyString());
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    void insertConcorrenteDevolveORegistroGravadoPelaOutraRequisicao() throws Exception {
+        AssinaturaImagem gravadaPelaOutra = new AssinaturaImagem();
+        when(repository.findByHashEntrada(anyString())).thenReturn(Optional.empty());
+        when(repository.findByHash(anyString())).thenReturn(Optional.empty(), Optional.of(gravadaPelaOutra));
+        when(repository.save(any())).thenThrow(new DataIntegrityViolationException("uk_assinaturas_imagem_hash"));
+
+        assertSame(gravadaPelaOutra, assinaturaService.registrar(assinaturaDeTeste()));
+    }
+
+    private String assinaturaDeTeste() throws Exception {
+        BufferedImage imagem = new BufferedImage(200, 100, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = imagem.createGraphics();
+        g.setColor(Color.BLUE);
+        g.drawLine(10, 90, 190, 10);
+        g.dispose();
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(imagem, "png", png);
+        return "data:image/png;base64," + Base64.getEncoder().encodeToString(png.toByteArray());
+    }
+}
@@ -0,0 +1,89 @@
+package com.camara.processos_api.service;
+
+import com.camara.processos_api.config.ListagemConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContagemAproximadaServiceTest {
+
+    private ContagemAproximadaService servico;
+
+    @AfterEach
+    void parar() {
+        servico.parar();
+    }
+
+    @Test
+    void umRecalculoPorChaveDeCadaVez() throws Exception {
+        servico = novoServico(2, 10);
+        CountDownLatch liberar = new CountDownLatch(1);
+        AtomicInteger chamadas = new AtomicInteger();
+        LongSupplier contar = () -> {
+            chamadas.incrementAndGet();
+            aguardar(liberar);
+            return 7L;
+        };
+
+        assertNull(servico.obter("todos:null|null|null", contar));
+        assertNull(servico.obter("todos:null|null|null", contar));
+        liberar.countDown();
+
+        assertEquals(7L, aguardarValor("todos:null|null|null", contar));
+        assertEquals(1, chamadas.get());
+    }
+
+    @Test
+    void filaCheiaPulaORecalculoSemPerderAChave() throws Exception {
+        servico = novoServico(1, 0);
+        CountDownLatch liberar = new CountDownLatch(1);
+        servico.obter("para_mim:1", () -> {
+            aguardar(liberar);
+            return 1L;
+        });
+
+        // O único worker está ocupado e não há fila: o recálculo desta chave é pulado
+        AtomicInteger chamadas = new AtomicInteger();
+        assertNull(servico.obter("para_mim:2", () -> chamadas.incrementAndGet()));
+        liberar.countDown();
+        assertEquals(0, chamadas.get());
+
+        // A chave não ficou presa como "em atualização": as leituras seguintes voltam a agendar
+        assertEquals(5L, aguardarValor("para_mim:2", () -> 5L));
+    }
+
+    private ContagemAproximadaService novoServico(int threads, int fila) {
+        ListagemConfig config = new ListagemConfig();
+        config.setContagemThreads(threads);
+        config.setContagemCapacidadeFila(fila);
+        ContagemAproximadaService novo = new ContagemAproximadaService(config);
+        novo.iniciar();
+        return novo;
+    }
+
+    private long aguardarValor(String chave, LongSupplier contar) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 10_000;
+        Long valor;
+        while ((valor = servico.obter(chave, contar)) == null) {
+            assertTrue(System.currentTimeMillis() < limite, "contagem '" + chave + "' não foi calculada");
+            Thread.sleep(10);
+        }
+        return valor;
+    }
+
+    private static void aguardar(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
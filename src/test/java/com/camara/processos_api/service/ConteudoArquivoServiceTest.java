@@ -0,0 +1,149 @@
+package com.camara.processos_api.service;
+
+import com.camara.processos_api.dto.ArquivoResponseDTO;
+import com.camara.processos_api.model.Arquivo;
+import com.camara.processos_api.model.ConteudoArquivo;
+import com.camara.processos_api.model.Processo;
+import com.camara.processos_api.model.Usuario;
+import com.camara.processos_api.repository.ArquivoRepository;
+import com.camara.processos_api.repository.ConteudoArquivoRepository;
+import com.camara.processos_api.repository.ProcessoRepository;
+import com.camara.processos_api.repository.UsuarioRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Uploads endereçados por conteúdo: o mesmo conteúdo duas vezes numa transação não pode esperar pela
+ * própria linha de conteudos_arquivo, e um upload desfeito deixa o blob registrado para a varredura.
+ */
+@SpringBootTest(properties = "despacho.pdf.intervalo-varredura-ms=3600000")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ConteudoArquivoServiceTest {
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private ConteudoArquivoService conteudoArquivoService;
+    @Autowired private ArquivoService arquivoService;
+    @Autowired private UsuarioRepository usuarioRepository;
+    @Autowired private ProcessoRepository processoRepository;
+    @Autowired private ArquivoRepository arquivoRepository;
+    @Autowired private ConteudoArquivoRepository conteudoArquivoRepository;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    @Test
+    void mesmoAnexoDuasVezesNoMesmoMultipart() throws Exception {
+        Usuario remetente = usuario("conteudo-remetente");
+        Usuario destino = usuario("conteudo-destino");
+        Processo processo = processo(remetente);
+        byte[] conteudo = conteudoUnico();
+
+        mockMvc.perform(multipart("/api/processos/{id}/etapas", processo.getId())
+                        .file(new MockMultipartFile("etapa", "", MediaType.APPLICATION_JSON_VALUE,
+                                ("{\"paraUsuarioId\":" + destino.getId() + ",\"paraDepartamento\":\"SECLEG\","
+                                        + "\"status\":\"EM_ANDAMENTO\",\"observacao\":\"Dois anexos iguais\","
+                                        + "\"usarAssinaturaTexto\":true}").getBytes(StandardCharsets.UTF_8)))
+                        .file(new MockMultipartFile("arquivos", "copia-1.txt", MediaType.TEXT_PLAIN_VALUE, conteudo))
+                        .file(new MockMultipartFile("arquivos", "copia-2.txt", MediaType.TEXT_PLAIN_VALUE, conteudo))
+                        .with(como(remetente)))
+                .andExpect(status().isCreated());
+
+        List<Arquivo> anexos = anexosDoConteudo(conteudo);
+        assertEquals(2, anexos.size());
+        assertEquals(2, referencias(anexos.get(0).getHashConteudo()));
+        assertTrue(Files.exists(Path.of(anexos.get(0).getCaminhoArquivo())));
+
+        // O destinatário anexa o mesmo conteúdo mais duas vezes à etapa, numa chamada só
+        Long etapaId = anexos.get(0).getEtapa().getId();
+        List<ArquivoResponseDTO> salvos = arquivoService.salvarArquivosParaEtapa(etapaId, List.of(
+                new MockMultipartFile("arquivos", "copia-3.txt", MediaType.TEXT_PLAIN_VALUE, conteudo),
+                new MockMultipartFile("arquivos", "copia-4.txt", MediaType.TEXT_PLAIN_VALUE, conteudo)), destino);
+
+        assertEquals(2, salvos.size());
+        assertEquals(4, referencias(anexos.get(0).getHashConteudo()));
+    }
+
+    @Test
+    void uploadDesfeitoDeixaOBlobParaAVarredura() {
+        Processo processo = processo(usuario("conteudo-desfeito"));
+        MockMultipartFile arquivo = new MockMultipartFile("arquivo", "desfeito.txt", MediaType.TEXT_PLAIN_VALUE, conteudoUnico());
+
+        ConteudoArquivoService.ConteudoArmazenado armazenado = new TransactionTemplate(transactionManager).execute(status -> {
+            status.setRollbackOnly();
+            return conteudoArquivoService.armazenar(arquivo, processo.getId());
+        });
+
+        assertTrue(Files.exists(Path.of(armazenado.caminho())));
+        assertEquals(0, referencias(armazenado.hash()));
+    }
+
+    private List<Arquivo> anexosDoConteudo(byte[] conteudo) throws Exception {
+        String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(conteudo));
+        return arquivoRepository.findAll().stream()
+                .filter(arquivo -> hash.equals(arquivo.getHashConteudo()))
+                .toList();
+    }
+
+    private int referencias(String hash) {
+        return conteudoArquivoRepository.findById(hash).map(ConteudoArquivo::getReferencias).orElse(-1);
+    }
+
+    private static byte[] conteudoUnico() {
+        return ("anexo repetido " + System.nanoTime()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static RequestPostProcessor como(Usuario usuario) {
+        return requisicao -> {
+            SecurityContext contexto = SecurityContextHolder.createEmptyContext();
+            contexto.setAuthentication(new UsernamePasswordAuthenticationToken(usuario, null, usuario.getAuthorities()));
+            requisicao.setAttribute(RequestAttributeSecurityContextRepository.DEFAULT_REQUEST_ATTR_NAME, contexto);
+            return requisicao;
+        };
+    }
+
+    private Usuario usuario(String matricula) {
+        Usuario usuario = new Usuario();
+        usuario.setMatricula(matricula + "-" + System.nanoTime());
+        usuario.setNome("Usuário " + matricula);
+        usuario.setPerfil("secjur");
+        usuario.setDepartamento("secjur");
+        return usuarioRepository.save(usuario);
+    }
+
+    private Processo processo(Usuario criador) {
+        Processo processo = new Processo();
+        processo.setTitulo("Processo com anexos repetidos");
+        processo.setDescricao("Descrição do processo com anexos repetidos");
+        processo.setStatus("EM_ANDAMENTO");
+        processo.setDepartamentoOrigem(criador.getDepartamento());
+        processo.setDataCriacao(LocalDateTime.now());
+        processo.setCriadoPor(criador);
+        processo.setResponsavelAtualId(criador.getId());
+        return processoRepository.save(processo);
+    }
+}
@@ -0,0 +1,133 @@
+package com.camara.processos_api.service;
+
+import com.camara.processos_api.dto.CursorPageDTO;
+import com.camara.processos_api.dto.ProcessoResponseDTO;
+import com.camara.processos_api.model.ParticipacaoProcesso;
+import com.camara.processos_api.model.Processo;
+import com.camara.processos_api.model.Usuario;
+import com.camara.processos_api.repository.ParticipacaoProcessoRepository;
+import com.camara.processos_api.repository.ProcessoRepository;
+import com.camara.processos_api.repository.UsuarioRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Paginação por cursor com processos legados sem data_criacao: eles vêm depois dos datados, em
+ * ordem de id, e o token gerado sobre eles continua válido até o fim da listagem.
+ */
+@SpringBootTest(properties = "despacho.pdf.intervalo-varredura-ms=3600000")
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class CursorProcessoTest {
+
+    private static final String TITULO = "Processo cursor-nulo";
+    private static final LocalDateTime BASE = LocalDateTime.of(2099, 6, 1, 12, 0);
+
+    @Autowired private ProcessoService processoService;
+    @Autowired private UsuarioRepository usuarioRepository;
+    @Autowired private ProcessoRepository processoRepository;
+    @Autowired private ParticipacaoProcessoRepository participacaoProcessoRepository;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    private Usuario usuario;
+    private final List<Long> ordemEsperada = new ArrayList<>();
+
+    @BeforeAll
+    void semear() {
+        usuario = new Usuario();
+        usuario.setMatricula("cursor-nulo");
+        usuario.setNome("Usuário cursor-nulo");
+        usuario.setPerfil("secjur");
+        usuario.setDepartamento("secjur");
+        usuario = usuarioRepository.save(usuario);
+
+        // Intercalados na criação para a ordem não coincidir com a de inserção
+        Processo legado1 = processo(null);
+        Processo antigo = processo(BASE.minusDays(1));
+        Processo legado2 = processo(null);
+        Processo empate1 = processo(BASE);
+        Processo empate2 = processo(BASE);
+        Processo legado3 = processo(null);
+
+        // dataCriacao DESC (empate por id DESC) e, no fim, os sem data por id DESC
+        ordemEsperada.addAll(List.of(empate2.getId(), empate1.getId(), antigo.getId(),
+                legado3.getId(), legado2.getId(), legado1.getId()));
+    }
+
+    @Test
+    void todosPercorreOsProcessosSemData() {
+        assertEquals(ordemEsperada, percorrer("todos"));
+    }
+
+    @Test
+    void paraMimPercorreOsProcessosSemData() {
+        assertEquals(ordemEsperada, percorrer("para_mim"));
+    }
+
+    @Test
+    void meusEnviadosPercorreOsProcessosSemData() {
+        assertEquals(ordemEsperada, percorrer("meus_enviados"));
+    }
+
+    @Test
+    void tokenSemDataIdaEVolta() {
+        CursorProcesso cursor = CursorProcesso.decodificar(new CursorProcesso(null, 42L).codificar());
+
+        assertNull(cursor.dataCriacao());
+        assertEquals(42L, cursor.id());
+    }
+
+    // Blocos de 2: os cursores caem num processo datado, na fronteira com os sem data e entre eles
+    private List<Long> percorrer(String filtro) {
+        // Transação por bloco, como o open-in-view faz na requisição
+        TransactionTemplate transacao = new TransactionTemplate(transactionManager);
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        for (int bloco = 0; bloco < 10; bloco++) {
+            String posicao = cursor;
+            CursorPageDTO<ProcessoResponseDTO> pagina = transacao.execute(status ->
+                    processoService.buscarComCursor(filtro, usuario, null, null, TITULO, posicao, 2));
+            pagina.getConteudo().forEach(processo -> ids.add(processo.getId()));
+            if (!pagina.isTemMais()) {
+                return ids;
+            }
+            cursor = pagina.getProximoCursor();
+        }
+        return fail("a listagem por cursor não terminou");
+    }
+
+    private Processo processo(LocalDateTime dataCriacao) {
+        Processo processo = new Processo();
+        processo.setTitulo(TITULO);
+        processo.setDescricao("Descrição de " + TITULO);
+        processo.setStatus("EM_ANDAMENTO");
+        processo.setDepartamentoOrigem(usuario.getDepartamento());
+        processo.setDataCriacao(dataCriacao);
+        processo.setCriadoPor(usuario);
+        processo.setResponsavelAtualId(usuario.getId());
+        processo = processoRepository.save(processo);
+
+        ParticipacaoProcesso participacao = new ParticipacaoProcesso();
+        participacao.setUsuarioId(usuario.getId());
+        participacao.setProcessoId(processo.getId());
+        participacao.setPapel(ParticipacaoProcesso.PAPEL_REMETENTE);
+        participacao.setUltimaAcao(LocalDateTime.now());
+        participacao.setDataCriacaoProcesso(dataCriacao);
+        participacaoProcessoRepository.save(participacao);
+        return processo;
+    }
+}
@@ -0,0 +1,149 @@
+package com.camara.processos_api.service;
+
+import com.camara.processos_api.model.Arquivo;
+import com.camara.processos_api.model.Etapa;
+import com.camara.processos_api.model.Processo;
+import com.camara.processos_api.model.Usuario;
+import com.camara.processos_api.repository.ArquivoRepository;
+import com.camara.processos_api.repository.EtapaRepository;
+import com.camara.processos_api.repository.ProcessoRepository;
+import com.camara.processos_api.repository.UsuarioRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Montagem sob demanda: as páginas por etapa são os arquivos reais do disco e têm registro próprio;
+ * o registro do consolidado não aponta para um arquivo e fica fora do ZIP.
+ */
+@SpringBootTest(properties = {
+        "despacho.pdf.montagem-sob-demanda=true",
+        "despacho.pdf.intervalo-varredura-ms=3600000"
+})
+@ActiveProfiles("test")
+class DespachoMontagemSobDemandaTest {
+
+    @Autowired private DespachoRenderService despachoRenderService;
+    @Autowired private RegeneracaoPdfService regeneracaoPdfService;
+    @Autowired private ProcessoService processoService;
+    @Autowired private ZipService zipService;
+    @Autowired private UsuarioRepository usuarioRepository;
+    @Autowired private ProcessoRepository processoRepository;
+    @Autowired private EtapaRepository etapaRepository;
+    @Autowired private ArquivoRepository arquivoRepository;
+
+    @Test
+    void paginaDaEtapaTemRegistroEConsolidadoFicaForaDoZip() throws Exception {
+        Usuario remetente = usuario("sob-demanda-remetente");
+        Usuario destino = usuario("sob-demanda-destino");
+        Processo processo = processo(remetente);
+        Etapa etapa = etapa(processo, remetente, destino);
+
+        // Sem PDF individual pedido: sob demanda a página é gravada mesmo assim
+        despachoRenderService.solicitarRenderizacao(etapa, remetente, false, false);
+
+        Arquivo pagina = aguardarPagina(etapa);
+        assertTrue(Files.isRegularFile(Path.of(pagina.getCaminhoArquivo())));
+
+        List<Arquivo> paraZip = processoService.listarArquivosParaZip(processo.getId());
+        assertEquals(List.of(pagina.getNomeArquivo()), paraZip.stream().map(Arquivo::getNomeArquivo).toList());
+
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        zipService.escreverZip(paraZip, zip);
+        assertEquals(List.of(pagina.getNomeArquivo()), entradas(zip.toByteArray()));
+    }
+
+    @Test
+    void regeneracaoRegistraAsPaginasGravadas() throws Exception {
+        Usuario remetente = usuario("sob-demanda-regen-remetente");
+        Usuario destino = usuario("sob-demanda-regen-destino");
+        Etapa etapa = etapa(processo(remetente), remetente, destino);
+
+        regeneracaoPdfService.iniciar();
+        long limite = System.currentTimeMillis() + 60_000;
+        while (regeneracaoPdfService.status().isEmExecucao()) {
+            assertTrue(System.currentTimeMillis() < limite, "regeneração não terminou");
+            Thread.sleep(100);
+        }
+
+        Arquivo pagina = arquivoRepository.findFirstByEtapaIdAndNomeArquivo(etapa.getId(), nomePagina(etapa)).orElseThrow();
+        assertEquals(Arquivo.RENDER_PRONTO, pagina.getStatusRenderizacao());
+        assertTrue(Files.isRegularFile(Path.of(pagina.getCaminhoArquivo())));
+    }
+
+    private Arquivo aguardarPagina(Etapa etapa) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 60_000;
+        while (true) {
+            Optional<Arquivo> pagina = arquivoRepository.findFirstByEtapaIdAndNomeArquivo(etapa.getId(), nomePagina(etapa));
+            if (pagina.isPresent() && Arquivo.RENDER_PRONTO.equals(pagina.get().getStatusRenderizacao())) {
+                return pagina.get();
+            }
+            assertTrue(System.currentTimeMillis() < limite, "página da etapa não ficou pronta");
+            Thread.sleep(100);
+        }
+    }
+
+    private static String nomePagina(Etapa etapa) {
+        return "despacho_etapa_" + etapa.getId() + ".pdf";
+    }
+
+    private static List<String> entradas(byte[] zip) throws Exception {
+        List<String> nomes = new ArrayList<>();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            ZipEntry entrada;
+            while ((entrada = in.getNextEntry()) != null) {
+                nomes.add(entrada.getName());
+            }
+        }
+        return nomes;
+    }
+
+    private Usuario usuario(String matricula) {
+        Usuario usuario = new Usuario();
+        usuario.setMatricula(matricula);
+        usuario.setNome("Usuário " + matricula);
+        usuario.setPerfil("secjur");
+        usuario.setDepartamento("secjur");
+        return usuarioRepository.save(usuario);
+    }
+
+    private Processo processo(Usuario criador) {
+        Processo processo = new Processo();
+        processo.setTitulo("Processo sob demanda");
+        processo.setDescricao("Despacho montado no download");
+        processo.setStatus("EM_ANDAMENTO");
+        processo.setDepartamentoOrigem(criador.getDepartamento());
+        processo.setDataCriacao(LocalDateTime.now());
+        processo.setCriadoPor(criador);
+        return processoRepository.save(processo);
+    }
+
+    private Etapa etapa(Processo processo, Usuario de, Usuario para) {
+        Etapa etapa = new Etapa();
+        etapa.setProcesso(processo);
+        etapa.setDeUsuario(de);
+        etapa.setDeDepartamento(de.getDepartamento());
+        etapa.setParaUsuario(para);
+        etapa.setParaDepartamento(para.getDepartamento());
+        etapa.setStatus("EM_ANDAMENTO");
+        etapa.setObservacao("Encaminhamento de " + de.getMatricula());
+        etapa.setUsarAssinaturaTexto(false);
+        etapa.setDataEnvio(LocalDateTime.now());
+        return etapaRepository.save(etapa);
+    }
+}
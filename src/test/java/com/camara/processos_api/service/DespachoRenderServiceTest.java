@@ -0,0 +1,150 @@
+package com.camara.processos_api.service;
+
+import com.camara.processos_api.config.DespachoPdfConfig;
+import com.camara.processos_api.model.Arquivo;
+import com.camara.processos_api.model.Etapa;
+import com.camara.processos_api.model.PdfRenderJob;
+import com.camara.processos_api.model.Processo;
+import com.camara.processos_api.model.Usuario;
+import com.camara.processos_api.repository.ArquivoRepository;
+import com.camara.processos_api.repository.EtapaRepository;
+import com.camara.processos_api.repository.PdfRenderJobRepository;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Repetição de um job de página: se a anexação ao consolidado deu certo mas o job não chegou a
+ * ser gravado como concluído, a próxima varredura não pode acrescentar a mesma página de novo.
+ */
+class DespachoRenderServiceTest {
+
+    private static final Long PROCESSO_ID = 1L;
+
+    private final PdfRenderJobRepository jobRepository = mock(PdfRenderJobRepository.class);
+    private final EtapaRepository etapaRepository = mock(EtapaRepository.class);
+    private final ArquivoRepository arquivoRepository = mock(ArquivoRepository.class);
+    private final PdfGenerationService pdfService = new PdfGenerationService(new DespachoPdfConfig());
+    private final DespachoRenderService renderService = new DespachoRenderService(jobRepository, etapaRepository,
+            arquivoRepository, pdfService, mock(FileStorageService.class), mock(DespachoMontagemService.class),
+            new DespachoPdfConfig(), mock(ApplicationEventPublisher.class));
+
+    // Estado do job como está no banco (o que a próxima varredura enxerga)
+    private final PdfRenderJob gravado = new PdfRenderJob();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void jobRepetidoDepoisDaAnexacaoNaoDuplicaAPagina() throws Exception {
+        Path consolidado = tempDir.resolve("despacho_processo_1.pdf");
+        pdfService.anexarPaginaDeDespacho(consolidado, novaEtapa(1L), null, true);
+        prepararJob(consolidado, novaEtapa(2L));
+
+        // 1ª execução: a página é anexada, mas o banco cai antes de o job ser gravado como concluído
+        AtomicInteger falhasRestantes = new AtomicInteger(2);
+        when(jobRepository.save(any(PdfRenderJob.class))).thenAnswer(inv -> {
+            if (falhasRestantes.getAndDecrement() > 0) {
+                throw new DataAccessResourceFailureException("conexão perdida");
+            }
+            PdfRenderJob job = inv.getArgument(0);
+            copiar(job, gravado);
+            return job;
+        });
+        assertThrows(DataAccessResourceFailureException.class, () -> renderService.processarPendentes(PROCESSO_ID));
+        assertEquals(PdfRenderJob.STATUS_PENDENTE, gravado.getStatus());
+        assertEquals(2, contarPaginas(consolidado));
+
+        // 2ª execução (próxima varredura): o mesmo job é repetido e concluído sem outra página
+        renderService.processarPendentes(PROCESSO_ID);
+
+        assertEquals(PdfRenderJob.STATUS_CONCLUIDO, gravado.getStatus());
+        assertEquals(2, contarPaginas(consolidado));
+    }
+
+    private void prepararJob(Path consolidado, Etapa etapa) {
+        gravado.setId(20L);
+        gravado.setProcessoId(PROCESSO_ID);
+        gravado.setEtapaId(etapa.getId());
+        gravado.setUsarAssinaturaTexto(true);
+        gravado.setDataCriacao(LocalDateTime.now());
+        // Cada leitura devolve uma instância nova, como o repositório faria
+        when(jobRepository.findFirstByProcessoIdAndStatusOrderByIdAsc(PROCESSO_ID, PdfRenderJob.STATUS_PENDENTE))
+                .thenAnswer(inv -> {
+                    if (!PdfRenderJob.STATUS_PENDENTE.equals(gravado.getStatus())) {
+                        return Optional.empty();
+                    }
+                    PdfRenderJob lido = new PdfRenderJob();
+                    copiar(gravado, lido);
+                    return Optional.of(lido);
+                });
+        when(etapaRepository.findByIdComProcesso(etapa.getId())).thenReturn(Optional.of(etapa));
+
+        Arquivo arquivo = new Arquivo();
+        arquivo.setId(10L);
+        arquivo.setNomeArquivo(consolidado.getFileName().toString());
+        arquivo.setCaminhoArquivo(consolidado.toString());
+        when(arquivoRepository.findTopByProcessoIdAndTipoAndNomeArquivoStartingWithOrderByIdDesc(
+                eq(PROCESSO_ID), anyString(), anyString())).thenReturn(Optional.of(arquivo));
+    }
+
+    private static void copiar(PdfRenderJob de, PdfRenderJob para) {
+        para.setId(de.getId());
+        para.setProcessoId(de.getProcessoId());
+        para.setTipo(de.getTipo());
+        para.setEtapaId(de.getEtapaId());
+        para.setUsarAssinaturaTexto(de.isUsarAssinaturaTexto());
+        para.setGerarPdfEtapa(de.isGerarPdfEtapa());
+        para.setStatus(de.getStatus());
+        para.setTentativas(de.getTentativas());
+        para.setErro(de.getErro());
+        para.setDataCriacao(de.getDataCriacao());
+        para.setDataAtualizacao(de.getDataAtualizacao());
+    }
+
+    private int contarPaginas(Path pdf) throws Exception {
+        try (PdfDocument doc = new PdfDocument(new PdfReader(pdf.toFile()))) {
+            return doc.getNumberOfPages();
+        }
+    }
+
+    private Etapa novaEtapa(Long id) {
+        Usuario usuario = new Usuario();
+        usuario.setId(1L);
+        usuario.setNome("Usuário Teste");
+        usuario.setMatricula("123");
+        usuario.setDepartamento("SECADM");
+
+        Processo processo = new Processo();
+        processo.setId(PROCESSO_ID);
+        processo.setTitulo("Processo de teste");
+
+        Etapa etapa = new Etapa();
+        etapa.setId(id);
+        etapa.setProcesso(processo);
+        etapa.setDeUsuario(usuario);
+        etapa.setParaUsuario(usuario);
+        etapa.setDeDepartamento("SECADM");
+        etapa.setParaDepartamento("SECADM");
+        etapa.setStatus("Encaminhado");
+        etapa.setObservacao("Etapa " + id);
+        etapa.setDataEnvio(LocalDateTime.of(2024, 1, 1, 10, 0));
+        return etapa;
+    }
+}
@@ -0,0 +1,286 @@
+package com.camara.processos_api.service;
+
+import com.camara.processos_api.config.DespachoPdfConfig;
+import com.camara.processos_api.model.AssinaturaImagem;
+import com.camara.processos_api.model.Etapa;
+import com.camara.processos_api.model.Processo;
+import com.camara.processos_api.model.Usuario;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfName;
+import com.itextpdf.kernel.pdf.PdfObject;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.PdfStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PdfGenerationServiceTest {
+
+    private final PdfGenerationService pdfService = new PdfGenerationService(new DespachoPdfConfig());
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void anexarPaginaDeDespachoPreservaBytesAnterioresEAcrescentaUmaPagina() throws Exception {
+        Path consolidado = tempDir.resolve("despacho_processo_1.pdf");
+
+        pdfService.anexarPaginaDeDespacho(consolidado, novaEtapa(1L), null, true);
+        byte[] antes = Files.readAllBytes(consolidado);
+
+        pdfService.anexarPaginaDeDespacho(consolidado, novaEtapa(2L), null, true);
+        byte[] depois = Files.readAllBytes(consolidado);
+
+        // Atualização incremental: o arquivo anterior continua intacto como prefixo do novo
+        assertTrue(depois.length > antes.length);
+        assertArrayEquals(antes, Arrays.copyOf(depois, antes.length));
+        assertEquals(2, contarPaginas(consolidado));
+    }
+
+    @Test
+    void anexarAMesmaEtapaDeNovoNaoDuplicaAPagina() throws Exception {
+        Path consolidado = tempDir.resolve("despacho_processo_8.pdf");
+        pdfService.anexarPaginaDeDespacho(consolidado, novaEtapa(1L), null, true);
+        pdfService.anexarPaginaDeDespacho(consolidado, novaEtapa(2L), null, true);
+        byte[] anexado = Files.readAllBytes(consolidado);
+
+        // Job repetido (a página foi gravada, mas o job não chegou a ser concluído)
+        pdfService.anexarPaginaDeDespacho(consolidado, novaEtapa(2L), null, true);
+
+        assertArrayEquals(anexado, Files.readAllBytes(consolidado));
+        assertEquals(2, contarPaginas(consolidado));
+    }
+
+    @Test
+    void anexarEmConsolidadoSemInfoNoTrailer() throws Exception {
+        // Consolidado substituído por um PDF de outra origem, sem dicionário /Info
+        Path consolidado = tempDir.resolve("despacho_processo_9.pdf");
+        Files.write(consolidado, pdfSemInfo());
+
+        pdfService.anexarPaginaDeDespacho(consolidado, novaEtapa(1L), null, true);
+        pdfService.carimbarProtocolo(consolidado, "2026/0001");
+
+        assertEquals(2, contarPaginas(consolidado));
+    }
+
+    @Test
+    void adicionarAMesmaEtapaDeNovoNaoDuplicaAPagina() throws Exception {
+        Path consolidado = tempDir.resolve("despacho_processo_9.pdf");
+        Files.write(consolidado, pdfService.gerarPdfDeEtapa(novaEtapa(1L), null, true));
+        Files.write(consolidado, pdfService.adicionarPaginaDeDespacho(consolidado, novaEtapa(2L), null, true));
+
+        Files.write(consolidado, pdfService.adicionarPaginaDeDespacho(consolidado, novaEtapa(2L), null, true));
+
+        assertEquals(2, contarPaginas(consolidado));
+        // Uma etapa diferente continua sendo acrescentada normalmente
+        Files.write(consolidado, pdfService.adicionarPaginaDeDespacho(consolidado, novaEtapa(3L), null, true));
+        assertEquals(3, contarPaginas(consolidado));
+    }
+
+    @Test
+    void incrementoNaoCresceComOHistorico() throws Exception {
+        Path consolidado = tempDir.resolve("despacho_processo_2.pdf");
+        pdfService.anexarPaginaDeDespacho(consolidado, novaEtapa(1L), null, true);
+
+        long incrementoInicial = anexarEMedir(consolidado, 2L);
+        for (long i = 3; i < 60; i++) {
+            pdfService.anexarPaginaDeDespacho(consolidado, novaEtapa(i), null, true);
+        }
+        long incrementoFinal = anexarEMedir(consolidado, 60L);
+
+        assertEquals(60, contarPaginas(consolidado));
+        // Só a página nova e a árvore de páginas alterada são gravadas, independente do total
+        assertTrue(incrementoFinal < incrementoInicial * 2,
+                "incremento inicial=" + incrementoInicial + " final=" + incrementoFinal);
+    }
+
+    @Test
+    void adicionarPaginaDeDespachoReconstroiEmMemoria() throws Exception {
+        Path consolidado = tempDir.resolve("despacho_processo_3.pdf");
+        Files.write(consolidado, pdfService.gerarPdfDeEtapa(novaEtapa(1L), null, true));
+
+        byte[] atualizado = pdfService.adicionarPaginaDeDespacho(consolidado, novaEtapa(2L), null, true);
+
+        try (PdfDocument doc = new PdfDocument(new PdfReader(new ByteArrayInputStream(atualizado)))) {
+            assertEquals(2, doc.getNumberOfPages());
+        }
+        // Nada é gravado no disco pelo serviço: o arquivo de origem continua com uma página
+        assertEquals(1, contarPaginas(consolidado));
+    }
+
+    @Test
+    void modoCompactoCompartilhaRecursosAoReconstruirOConsolidado() throws Exception {
+        DespachoPdfConfig semCompactar = new DespachoPdfConfig();
+        semCompactar.setCompacto(false);
+        long padrao = reconstruirComPaginas(new PdfGenerationService(semCompactar), tempDir.resolve("padrao.pdf"), 6);
+        long compacto = reconstruirComPaginas(pdfService, tempDir.resolve("compacto.pdf"), 6);
+
+        // Sem smart mode cada página copiada traz o próprio logo; no compacto ele é gravado uma vez
+        assertTrue(compacto * 3 < padrao, "padrao=" + padrao + " compacto=" + compacto);
+        Path umaPagina = tempDir.resolve("uma_pagina.pdf");
+        Files.write(umaPagina, pdfService.gerarPdfDeEtapa(novaEtapa(1L), null, true));
+        assertEquals(contarImagens(umaPagina), contarImagens(tempDir.resolve("compacto.pdf")));
+    }
+
+    @Test
+    void assinaturaRepetidaViraUmaUnicaImagemNoConsolidado() throws Exception {
+        AssinaturaImagem assinatura = new AssinaturaService(null, null).normalizar(assinaturaDeTeste(1200, 600));
+        assertTrue(assinatura.getLargura() <= AssinaturaService.LARGURA_MAXIMA);
+        assertTrue(assinatura.getAltura() <= AssinaturaService.ALTURA_MAXIMA);
+
+        Path umaPagina = tempDir.resolve("despacho_processo_4.pdf");
+        Etapa primeira = novaEtapa(1L);
+        primeira.setAssinaturaImagem(assinatura);
+        pdfService.anexarPaginaDeDespacho(umaPagina, primeira, assinatura, false);
+        int imagensComUmaPagina = contarImagens(umaPagina);
+
+        Path semAssinatura = tempDir.resolve("despacho_processo_6.pdf");
+        pdfService.anexarPaginaDeDespacho(semAssinatura, novaEtapa(1L), null, false);
+        assertTrue(imagensComUmaPagina > contarImagens(semAssinatura));
+
+        Path variasPaginas = tempDir.resolve("despacho_processo_5.pdf");
+        for (long i = 1; i <= 5; i++) {
+            pdfService.anexarPaginaDeDespacho(variasPaginas, novaEtapa(i), assinatura, false);
+        }
+
+        assertEquals(5, contarPaginas(variasPaginas));
+        assertEquals(imagensComUmaPagina, contarImagens(variasPaginas));
+    }
+
+    @Test
+    void protocoloECarimbadoUmaVezPorPaginaNumaCamadaPropria() throws Exception {
+        Path consolidado = tempDir.resolve("despacho_processo_7.pdf");
+        for (long i = 1; i <= 3; i++) {
+            pdfService.anexarPaginaDeDespacho(consolidado, novaEtapa(i), null, true);
+        }
+
+        assertEquals(3, pdfService.carimbarProtocolo(consolidado, "2024/001"));
+        byte[] carimbado = Files.readAllBytes(consolidado);
+
+        // Páginas já marcadas não são tocadas: nada é gravado na segunda vez
+        assertEquals(0, pdfService.carimbarProtocolo(consolidado, "2024/001"));
+        assertArrayEquals(carimbado, Files.readAllBytes(consolidado));
+
+        // A etapa seguinte já nasce com o protocolo e o anexo não regrava as páginas anteriores
+        Etapa comProtocolo = novaEtapa(4L);
+        comProtocolo.getProcesso().setProtocolo("2024/001");
+        pdfService.anexarPaginaDeDespacho(consolidado, comProtocolo, null, true);
+        assertArrayEquals(carimbado, Arrays.copyOf(Files.readAllBytes(consolidado), carimbado.length));
+        assertEquals(0, pdfService.carimbarProtocolo(consolidado, "2024/001"));
+
+        try (PdfDocument doc = new PdfDocument(new PdfReader(consolidado.toFile()))) {
+            assertEquals(4, doc.getNumberOfPages());
+            assertEquals(1, doc.getCatalog().getOCProperties(false).getLayers().size());
+        }
+    }
+
+    private long reconstruirComPaginas(PdfGenerationService servico, Path consolidado, int paginas) throws Exception {
+        Files.write(consolidado, servico.gerarPdfDeEtapa(novaEtapa(1L), null, true));
+        for (long i = 2; i <= paginas; i++) {
+            Files.write(consolidado, servico.adicionarPaginaDeDespacho(consolidado, novaEtapa(i), null, true));
+        }
+        assertEquals(paginas, contarPaginas(consolidado));
+        return Files.size(consolidado);
+    }
+
+    private long anexarEMedir(Path consolidado, Long etapaId) throws Exception {
+        long tamanhoAntes = Files.size(consolidado);
+        pdfService.anexarPaginaDeDespacho(consolidado, novaEtapa(etapaId), null, true);
+        return Files.size(consolidado) - tamanhoAntes;
+    }
+
+    private int contarPaginas(Path pdf) throws Exception {
+        try (PdfDocument doc = new PdfDocument(new PdfReader(pdf.toFile()))) {
+            return doc.getNumberOfPages();
+        }
+    }
+
+    // PDF mínimo de uma página, escrito à mão: o iText sempre grava um /Info no trailer
+    private static byte[] pdfSemInfo() {
+        String[] objetos = {
+                "<< /Type /Catalog /Pages 2 0 R >>",
+                "<< /Type /Pages /Kids [3 0 R] /Count 1 >>",
+                "<< /Type /Page /Parent 2 0 R /MediaBox [0 0 595 842] >>"
+        };
+        StringBuilder pdf = new StringBuilder("%PDF-1.7\n");
+        int[] posicoes = new int[objetos.length];
+        for (int i = 0; i < objetos.length; i++) {
+            posicoes[i] = pdf.length();
+            pdf.append(i + 1).append(" 0 obj\n").append(objetos[i]).append("\nendobj\n");
+        }
+        int xref = pdf.length();
+        pdf.append("xref\n0 ").append(objetos.length + 1).append("\n0000000000 65535 f \n");
+        for (int posicao : posicoes) {
+            pdf.append(String.format("%010d 00000 n \n", posicao));
+        }
+        pdf.append("trailer\n<< /Size ").append(objetos.length + 1).append(" /Root 1 0 R >>\n")
+                .append("startxref\n").append(xref).append("\n%%EOF\n");
+        return pdf.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private int contarImagens(Path pdf) throws Exception {
+        int imagens = 0;
+        try (PdfDocument doc = new PdfDocument(new PdfReader(pdf.toFile()))) {
+            for (int i = 1; i < doc.getNumberOfPdfObjects(); i++) {
+                PdfObject objeto = doc.getPdfObject(i);
+                if (objeto instanceof PdfStream stream && PdfName.Image.equals(stream.getAsName(PdfName.Subtype))) {
+                    imagens++;
+                }
+            }
+        }
+        return imagens;
+    }
+
+    private String assinaturaDeTeste(int largura, int altura) throws Exception {
+        BufferedImage imagem = new BufferedImage(largura, altura, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = imagem.createGraphics();
+        g.setColor(Color.BLUE);
+        g.setStroke(new BasicStroke(8f));
+        g.drawLine(50, altura - 50, largura - 50, 50);
+        g.dispose();
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(imagem, "png", png);
+        return "data:image/png;base64," + Base64.getEncoder().encodeToString(png.toByteArray());
+    }
+
+    private Etapa novaEtapa(Long id) {
+        Usuario usuario = new Usuario();
+        usuario.setId(1L);
+        usuario.setNome("Usuário Teste");
+        usuario.setMatricula("123");
+        usuario.setDepartamento("SECADM");
+
+        Processo processo = new Processo();
+        processo.setId(1L);
+        processo.setTitulo("Processo de teste");
+
+        Etapa etapa = new Etapa();
+        etapa.setId(id);
+        etapa.setProcesso(processo);
+        etapa.setDeUsuario(usuario);
+        etapa.setParaUsuario(usuario);
+        etapa.setDeDepartamento("SECADM");
+        etapa.setParaDepartamento("SECADM");
+        etapa.setStatus("Encaminhado");
+        etapa.setObservacao("Etapa " + id);
+        etapa.setDataEnvio(LocalDateTime.of(2024, 1, 1, 10, 0));
+        return etapa;
+    }
+}
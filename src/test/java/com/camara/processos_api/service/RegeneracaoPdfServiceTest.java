@@ -0,0 +1,128 @@
+package com.camara.processos_api.service;
+
+import com.camara.processos_api.model.Arquivo;
+import com.camara.processos_api.model.Etapa;
+import com.camara.processos_api.model.Processo;
+import com.camara.processos_api.model.Usuario;
+import com.camara.processos_api.repository.ArquivoRepository;
+import com.camara.processos_api.repository.EtapaRepository;
+import com.camara.processos_api.repository.ProcessoRepository;
+import com.camara.processos_api.repository.UsuarioRepository;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Regeneração em lote com etapas anteriores ao armazenamento das assinaturas: os PDFs assinados
+ * existentes não podem ser trocados por páginas sem assinatura.
+ */
+@SpringBootTest(properties = "despacho.pdf.intervalo-varredura-ms=3600000")
+@ActiveProfiles("test")
+class RegeneracaoPdfServiceTest {
+
+    private static final byte[] CONSOLIDADO_ASSINADO = "consolidado assinado original".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PAGINA_ASSINADA = "pagina assinada original".getBytes(StandardCharsets.UTF_8);
+
+    @Autowired private RegeneracaoPdfService regeneracaoPdfService;
+    @Autowired private FileStorageService fileStorageService;
+    @Autowired private UsuarioRepository usuarioRepository;
+    @Autowired private ProcessoRepository processoRepository;
+    @Autowired private EtapaRepository etapaRepository;
+    @Autowired private ArquivoRepository arquivoRepository;
+
+    @Test
+    void etapasSemAssinaturaRegistradaMantemOsPdfsExistentes() throws Exception {
+        Usuario remetente = usuario("regen-remetente");
+        Usuario destino = usuario("regen-destino");
+
+        // Processo legado: a primeira etapa é anterior ao registro da assinatura (usar_assinatura_texto nulo)
+        Processo legado = processo("Processo legado", remetente);
+        Etapa historica = etapa(legado, remetente, destino, null);
+        etapa(legado, destino, remetente, false);
+        Path paginaHistorica = despacho(legado, historica, "despacho_etapa_" + historica.getId() + ".pdf", PAGINA_ASSINADA);
+        Path consolidadoLegado = despacho(legado, historica, "despacho_processo_" + legado.getId() + ".pdf", CONSOLIDADO_ASSINADO);
+
+        // Processo atual: todas as etapas têm a assinatura no banco, o consolidado é refeito
+        Processo atual = processo("Processo atual", remetente);
+        Etapa etapaAtual = etapa(atual, remetente, destino, false);
+        Path consolidadoAtual = despacho(atual, etapaAtual, "despacho_processo_" + atual.getId() + ".pdf", CONSOLIDADO_ASSINADO);
+
+        regeneracaoPdfService.iniciar();
+        aguardarFim();
+
+        assertArrayEquals(PAGINA_ASSINADA, Files.readAllBytes(paginaHistorica));
+        assertArrayEquals(CONSOLIDADO_ASSINADO, Files.readAllBytes(consolidadoLegado));
+        try (PdfDocument regenerado = new PdfDocument(new PdfReader(consolidadoAtual.toFile()))) {
+            assertEquals(1, regenerado.getNumberOfPages());
+        }
+    }
+
+    private void aguardarFim() throws InterruptedException {
+        long limite = System.currentTimeMillis() + 60_000;
+        while (regeneracaoPdfService.status().isEmExecucao()) {
+            assertTrue(System.currentTimeMillis() < limite, "regeneração não terminou");
+            Thread.sleep(100);
+        }
+    }
+
+    private Usuario usuario(String matricula) {
+        Usuario usuario = new Usuario();
+        usuario.setMatricula(matricula);
+        usuario.setNome("Usuário " + matricula);
+        usuario.setPerfil("secjur");
+        usuario.setDepartamento("secjur");
+        return usuarioRepository.save(usuario);
+    }
+
+    private Processo processo(String titulo, Usuario criador) {
+        Processo processo = new Processo();
+        processo.setTitulo(titulo);
+        processo.setDescricao("Descrição de " + titulo);
+        processo.setStatus("EM_ANDAMENTO");
+        processo.setDepartamentoOrigem(criador.getDepartamento());
+        processo.setDataCriacao(LocalDateTime.now());
+        processo.setCriadoPor(criador);
+        return processoRepository.save(processo);
+    }
+
+    private Etapa etapa(Processo processo, Usuario de, Usuario para, Boolean usarAssinaturaTexto) {
+        Etapa etapa = new Etapa();
+        etapa.setProcesso(processo);
+        etapa.setDeUsuario(de);
+        etapa.setDeDepartamento(de.getDepartamento());
+        etapa.setParaUsuario(para);
+        etapa.setParaDepartamento(para.getDepartamento());
+        etapa.setStatus("EM_ANDAMENTO");
+        etapa.setObservacao("Encaminhamento de " + de.getMatricula());
+        etapa.setUsarAssinaturaTexto(usarAssinaturaTexto);
+        etapa.setDataEnvio(LocalDateTime.now());
+        return etapaRepository.save(etapa);
+    }
+
+    private Path despacho(Processo processo, Etapa etapa, String nome, byte[] conteudo) {
+        Path caminho = Path.of(fileStorageService.storeFile(conteudo, nome, processo.getId()));
+        Arquivo arquivo = new Arquivo();
+        arquivo.setProcesso(processo);
+        arquivo.setEtapa(etapa);
+        arquivo.setNomeArquivo(nome);
+        arquivo.setCaminhoArquivo(caminho.toString());
+        arquivo.setTipo("application/pdf");
+        arquivo.setEnviadoPor(etapa.getDeUsuario());
+        arquivo.setDataEnvio(LocalDateTime.now());
+        arquivo.setStatusRenderizacao(Arquivo.RENDER_PRONTO);
+        arquivoRepository.save(arquivo);
+        return caminho;
+    }
+}
@@ -0,0 +1,3 @@
+-- GET /api/download/{id}
+-- statements=1 entidades=1 colecoes=0
+select a1_0.id,a1_0.caminho_arquivo,a1_0.data_envio,a1_0.enviado_por,a1_0.id_etapa,a1_0.hash_conteudo,a1_0.nome_arquivo,a1_0.id_processo,a1_0.status_renderizacao,a1_0.tipo from arquivos_processo a1_0 where a1_0.id=?
@@ -0,0 +1,4 @@
+-- GET /api/arquivos/{id}
+-- statements=2 entidades=2 colecoes=0
+select a1_0.id,a1_0.caminho_arquivo,a1_0.data_envio,a1_0.enviado_por,a1_0.id_etapa,a1_0.hash_conteudo,a1_0.nome_arquivo,a1_0.id_processo,a1_0.status_renderizacao,a1_0.tipo from arquivos_processo a1_0 where a1_0.id=?
+select u1_0.id,u1_0.departamento,u1_0.email,u1_0.matricula,u1_0.nome,u1_0.perfil,u1_0.senha from usuario u1_0 where u1_0.id=?
@@ -0,0 +1,7 @@
+-- POST /api/etapas/{id}/arquivos
+-- statements=5 entidades=3 colecoes=0
+select e1_0.id,e1_0.assinatura,e1_0.id_assinatura_imagem,e1_0.data_envio,e1_0.de_departamento,e1_0.de_usuario,e1_0.observacao,e1_0.para_departamento,e1_0.para_usuario,e1_0.id_processo,e1_0.status,e1_0.usar_assinatura_texto from etapas_processo e1_0 where e1_0.id=?
+select u1_0.id,u1_0.departamento,u1_0.email,u1_0.matricula,u1_0.nome,u1_0.perfil,u1_0.senha from usuario u1_0 where u1_0.id in (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)
+INSERT INTO conteudos_arquivo (hash, tamanho, referencias, atualizado_em) VALUES (?, ?, 0, ?) ON DUPLICATE KEY UPDATE atualizado_em = ?
+INSERT INTO conteudos_arquivo (hash, tamanho, referencias, atualizado_em) VALUES (?, ?, 1, ?) ON DUPLICATE KEY UPDATE referencias = referencias + 1, atualizado_em = ?
+insert into arquivos_processo (caminho_arquivo,data_envio,enviado_por,id_etapa,hash_conteudo,nome_arquivo,id_processo,status_renderizacao,tipo,id) values (?,?,?,?,?,?,?,?,?,default)
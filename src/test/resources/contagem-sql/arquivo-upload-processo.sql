@@ -0,0 +1,7 @@
+-- POST /api/processos/{id}/arquivos
+-- statements=5 entidades=2 colecoes=0
+select p1_0.id,p1_0.criado_por,p1_0.data_criacao,p1_0.departamento_origem,p1_0.descricao,p1_0.protocolo,p1_0.responsavel_atual_id,p1_0.status,p1_0.titulo,p1_0.ultima_etapa_id from processos_tramitacao p1_0 where p1_0.id=?
+select u1_0.id,u1_0.departamento,u1_0.email,u1_0.matricula,u1_0.nome,u1_0.perfil,u1_0.senha from usuario u1_0 where u1_0.id=?
+INSERT INTO conteudos_arquivo (hash, tamanho, referencias, atualizado_em) VALUES (?, ?, 0, ?) ON DUPLICATE KEY UPDATE atualizado_em = ?
+INSERT INTO conteudos_arquivo (hash, tamanho, referencias, atualizado_em) VALUES (?, ?, 1, ?) ON DUPLICATE KEY UPDATE referencias = referencias + 1, atualizado_em = ?
+insert into arquivos_processo (caminho_arquivo,data_envio,enviado_por,id_etapa,hash_conteudo,nome_arquivo,id_processo,status_renderizacao,tipo,id) values (?,?,?,?,?,?,?,?,?,default)
@@ -0,0 +1,17 @@
+-- POST /api/processos/{id}/etapas (1 anexo)
+-- statements=15 entidades=5 colecoes=0
+select p1_0.id,p1_0.criado_por,p1_0.data_criacao,p1_0.departamento_origem,p1_0.descricao,p1_0.protocolo,p1_0.responsavel_atual_id,p1_0.status,p1_0.titulo,p1_0.ultima_etapa_id from processos_tramitacao p1_0 where p1_0.id=? for update
+select u1_0.id,u1_0.departamento,u1_0.email,u1_0.matricula,u1_0.nome,u1_0.perfil,u1_0.senha from usuario u1_0 where u1_0.id in (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)
+insert into etapas_processo (assinatura,id_assinatura_imagem,data_envio,de_departamento,de_usuario,observacao,para_departamento,para_usuario,id_processo,status,usar_assinatura_texto,id) values (?,?,?,?,?,?,?,?,?,?,?,default)
+insert into busca_termos (id_etapa,peso,id_processo,termo,id) values (?,?,?,?,default)
+insert into busca_termos (id_etapa,peso,id_processo,termo,id) values (?,?,?,?,default)
+select pp1_0.id,pp1_0.data_criacao_processo,pp1_0.papel,pp1_0.id_processo,pp1_0.ultima_acao,pp1_0.id_usuario from participacoes_processo pp1_0 where pp1_0.id_processo=? and pp1_0.id_usuario in (?,?)
+insert into notificacoes (data,demanda,excluir,lida,link,perfil,solicitante,id_usuario_destino,id) values (?,?,?,?,?,?,?,?,default)
+select a1_0.id,a1_0.caminho_arquivo,a1_0.data_envio,a1_0.enviado_por,a1_0.id_etapa,a1_0.hash_conteudo,a1_0.nome_arquivo,a1_0.id_processo,a1_0.status_renderizacao,a1_0.tipo from arquivos_processo a1_0 where a1_0.id_processo=? and a1_0.tipo=? and a1_0.nome_arquivo like ? escape '\' order by a1_0.id desc fetch first ? rows only
+insert into arquivos_processo (caminho_arquivo,data_envio,enviado_por,id_etapa,hash_conteudo,nome_arquivo,id_processo,status_renderizacao,tipo,id) values (?,?,?,?,?,?,?,?,?,default)
+insert into pdf_render_jobs (data_atualizacao,data_criacao,erro,id_etapa,gerar_pdf_etapa,id_processo,status,tentativas,tipo,usar_assinatura_texto,id) values (?,?,?,?,?,?,?,?,?,?,default)
+INSERT INTO conteudos_arquivo (hash, tamanho, referencias, atualizado_em) VALUES (?, ?, 0, ?) ON DUPLICATE KEY UPDATE atualizado_em = ?
+INSERT INTO conteudos_arquivo (hash, tamanho, referencias, atualizado_em) VALUES (?, ?, 1, ?) ON DUPLICATE KEY UPDATE referencias = referencias + 1, atualizado_em = ?
+insert into arquivos_processo (caminho_arquivo,data_envio,enviado_por,id_etapa,hash_conteudo,nome_arquivo,id_processo,status_renderizacao,tipo,id) values (?,?,?,?,?,?,?,?,?,default)
+update participacoes_processo set data_criacao_processo=?,papel=?,id_processo=?,ultima_acao=?,id_usuario=? where id=?
+update processos_tramitacao set criado_por=?,data_criacao=?,departamento_origem=?,descricao=?,protocolo=?,responsavel_atual_id=?,status=?,titulo=?,ultima_etapa_id=? where id=?
@@ -0,0 +1,5 @@
+-- GET /api/processos/cursor?filtro=meus_enviados&tamanho=10
+-- statements=3 entidades=64 colecoes=0
+select p1_0.id,cp1_0.id,cp1_0.departamento,cp1_0.email,cp1_0.matricula,cp1_0.nome,cp1_0.perfil,cp1_0.senha,p1_0.data_criacao,p1_0.departamento_origem,p1_0.descricao,p1_0.protocolo,p1_0.responsavel_atual_id,p1_0.status,p1_0.titulo,p1_0.ultima_etapa_id from participacoes_processo pp1_0 join processos_tramitacao p1_0 on p1_0.id=pp1_0.id_processo left join usuario cp1_0 on cp1_0.id=p1_0.criado_por where pp1_0.id_usuario=? and pp1_0.papel='REMETENTE' and (? is null or pp1_0.data_criacao_processo<? or (pp1_0.data_criacao_processo=? and pp1_0.id_processo<?)) order by pp1_0.data_criacao_processo desc,pp1_0.id_processo desc fetch first ? rows only
+select p1_0.id,p1_0.criado_por,p1_0.data_criacao,p1_0.departamento_origem,p1_0.descricao,e1_0.id_processo,e1_0.id,e1_0.assinatura,e1_0.id_assinatura_imagem,e1_0.data_envio,e1_0.de_departamento,du1_0.id,du1_0.departamento,du1_0.email,du1_0.matricula,du1_0.nome,du1_0.perfil,du1_0.senha,e1_0.observacao,e1_0.para_departamento,pu1_0.id,pu1_0.departamento,pu1_0.email,pu1_0.matricula,pu1_0.nome,pu1_0.perfil,pu1_0.senha,e1_0.status,e1_0.usar_assinatura_texto,p1_0.protocolo,p1_0.responsavel_atual_id,p1_0.status,p1_0.titulo,p1_0.ultima_etapa_id from processos_tramitacao p1_0 left join etapas_processo e1_0 on p1_0.id=e1_0.id_processo left join usuario du1_0 on du1_0.id=e1_0.de_usuario left join usuario pu1_0 on pu1_0.id=e1_0.para_usuario where p1_0.id in (?,?,?,?,?,?,?,?,?,?) order by e1_0.id desc
+select p1_0.id,a1_0.id_processo,a1_0.id,a1_0.caminho_arquivo,a1_0.data_envio,ep1_0.id,ep1_0.departamento,ep1_0.email,ep1_0.matricula,ep1_0.nome,ep1_0.perfil,ep1_0.senha,a1_0.id_etapa,a1_0.hash_conteudo,a1_0.nome_arquivo,a1_0.status_renderizacao,a1_0.tipo,p1_0.criado_por,p1_0.data_criacao,p1_0.departamento_origem,p1_0.descricao,p1_0.protocolo,p1_0.responsavel_atual_id,p1_0.status,p1_0.titulo,p1_0.ultima_etapa_id from processos_tramitacao p1_0 left join arquivos_processo a1_0 on p1_0.id=a1_0.id_processo left join usuario ep1_0 on ep1_0.id=a1_0.enviado_por where p1_0.id in (?,?,?,?,?,?,?,?,?,?)
@@ -0,0 +1,12 @@
+-- DELETE /api/processos/{id}
+-- statements=10 entidades=5 colecoes=2
+select count(*) from processos_tramitacao p1_0 where p1_0.id=?
+delete from busca_termos bt1_0 where bt1_0.id_processo in (?)
+delete from participacoes_processo pp1_0 where pp1_0.id_processo=?
+select a1_0.hash_conteudo from arquivos_processo a1_0 where a1_0.id_processo=? and a1_0.hash_conteudo is not null
+select p1_0.id,p1_0.criado_por,p1_0.data_criacao,p1_0.departamento_origem,p1_0.descricao,p1_0.protocolo,p1_0.responsavel_atual_id,p1_0.status,p1_0.titulo,p1_0.ultima_etapa_id from processos_tramitacao p1_0 where p1_0.id=?
+select a1_0.id_processo,a1_0.id,a1_0.caminho_arquivo,a1_0.data_envio,a1_0.enviado_por,a1_0.id_etapa,a1_0.hash_conteudo,a1_0.nome_arquivo,a1_0.status_renderizacao,a1_0.tipo from arquivos_processo a1_0 where a1_0.id_processo=?
+select e1_0.id_processo,e1_0.id,e1_0.assinatura,e1_0.id_assinatura_imagem,e1_0.data_envio,e1_0.de_departamento,e1_0.de_usuario,e1_0.observacao,e1_0.para_departamento,e1_0.para_usuario,e1_0.status,e1_0.usar_assinatura_texto from etapas_processo e1_0 where e1_0.id_processo=? order by e1_0.id desc
+delete from arquivos_processo where id=?
+delete from etapas_processo where id=?
+delete from processos_tramitacao where id=?
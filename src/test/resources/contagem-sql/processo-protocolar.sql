@@ -0,0 +1,21 @@
+-- PATCH /api/processos/{id}/protocolar
+-- statements=19 entidades=10 colecoes=0
+select p1_0.responsavel_atual_id from processos_tramitacao p1_0 where p1_0.id=?
+select p1_0.id,p1_0.criado_por,p1_0.data_criacao,p1_0.departamento_origem,p1_0.descricao,p1_0.protocolo,p1_0.responsavel_atual_id,p1_0.status,p1_0.titulo,p1_0.ultima_etapa_id from processos_tramitacao p1_0 where p1_0.id=?
+select e1_0.id,e1_0.assinatura,e1_0.id_assinatura_imagem,e1_0.data_envio,e1_0.de_departamento,e1_0.de_usuario,e1_0.observacao,e1_0.para_departamento,e1_0.para_usuario,e1_0.id_processo,e1_0.status,e1_0.usar_assinatura_texto from etapas_processo e1_0 where e1_0.id_processo=? order by e1_0.id desc fetch first ? rows only
+select a1_0.id,a1_0.caminho_arquivo,a1_0.data_envio,a1_0.enviado_por,a1_0.id_etapa,a1_0.hash_conteudo,a1_0.nome_arquivo,a1_0.id_processo,a1_0.status_renderizacao,a1_0.tipo from arquivos_processo a1_0 where a1_0.id_processo=? and a1_0.tipo=? and a1_0.nome_arquivo like ? escape '\' order by a1_0.id desc fetch first ? rows only
+insert into pdf_render_jobs (data_atualizacao,data_criacao,erro,id_etapa,gerar_pdf_etapa,id_processo,status,tentativas,tipo,usar_assinatura_texto,id) values (?,?,?,?,?,?,?,?,?,?,default)
+select u1_0.id,u1_0.departamento,u1_0.email,u1_0.matricula,u1_0.nome,u1_0.perfil,u1_0.senha from usuario u1_0 where u1_0.id in (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)
+update processos_tramitacao set criado_por=?,data_criacao=?,departamento_origem=?,descricao=?,protocolo=?,responsavel_atual_id=?,status=?,titulo=?,ultima_etapa_id=? where id=?
+select p1_0.id,p1_0.criado_por,p1_0.data_criacao,p1_0.departamento_origem,p1_0.descricao,p1_0.protocolo,p1_0.responsavel_atual_id,p1_0.status,p1_0.titulo,p1_0.ultima_etapa_id from processos_tramitacao p1_0 where p1_0.id=? for update
+insert into etapas_processo (assinatura,id_assinatura_imagem,data_envio,de_departamento,de_usuario,observacao,para_departamento,para_usuario,id_processo,status,usar_assinatura_texto,id) values (?,?,?,?,?,?,?,?,?,?,?,default)
+select pp1_0.id,pp1_0.data_criacao_processo,pp1_0.papel,pp1_0.id_processo,pp1_0.ultima_acao,pp1_0.id_usuario from participacoes_processo pp1_0 where pp1_0.id_processo=? and pp1_0.id_usuario in (?,?)
+insert into notificacoes (data,demanda,excluir,lida,link,perfil,solicitante,id_usuario_destino,id) values (?,?,?,?,?,?,?,?,default)
+insert into arquivos_processo (caminho_arquivo,data_envio,enviado_por,id_etapa,hash_conteudo,nome_arquivo,id_processo,status_renderizacao,tipo,id) values (?,?,?,?,?,?,?,?,?,default)
+select a1_0.id,a1_0.caminho_arquivo,a1_0.data_envio,a1_0.enviado_por,a1_0.id_etapa,a1_0.hash_conteudo,a1_0.nome_arquivo,a1_0.id_processo,a1_0.status_renderizacao,a1_0.tipo from arquivos_processo a1_0 where a1_0.id_processo=? and a1_0.tipo=? and a1_0.nome_arquivo like ? escape '\' order by a1_0.id desc fetch first ? rows only
+insert into arquivos_processo (caminho_arquivo,data_envio,enviado_por,id_etapa,hash_conteudo,nome_arquivo,id_processo,status_renderizacao,tipo,id) values (?,?,?,?,?,?,?,?,?,default)
+insert into pdf_render_jobs (data_atualizacao,data_criacao,erro,id_etapa,gerar_pdf_etapa,id_processo,status,tentativas,tipo,usar_assinatura_texto,id) values (?,?,?,?,?,?,?,?,?,?,default)
+update participacoes_processo set data_criacao_processo=?,papel=?,id_processo=?,ultima_acao=?,id_usuario=? where id=?
+update processos_tramitacao set criado_por=?,data_criacao=?,departamento_origem=?,descricao=?,protocolo=?,responsavel_atual_id=?,status=?,titulo=?,ultima_etapa_id=? where id=?
+select p1_0.id,cp1_0.id,cp1_0.departamento,cp1_0.email,cp1_0.matricula,cp1_0.nome,cp1_0.perfil,cp1_0.senha,p1_0.data_criacao,p1_0.departamento_origem,p1_0.descricao,e1_0.id_processo,e1_0.id,e1_0.assinatura,e1_0.id_assinatura_imagem,e1_0.data_envio,e1_0.de_departamento,du1_0.id,du1_0.departamento,du1_0.email,du1_0.matricula,du1_0.nome,du1_0.perfil,du1_0.senha,e1_0.observacao,e1_0.para_departamento,pu1_0.id,pu1_0.departamento,pu1_0.email,pu1_0.matricula,pu1_0.nome,pu1_0.perfil,pu1_0.senha,e1_0.status,e1_0.usar_assinatura_texto,p1_0.protocolo,p1_0.responsavel_atual_id,p1_0.status,p1_0.titulo,p1_0.ultima_etapa_id from processos_tramitacao p1_0 left join usuario cp1_0 on cp1_0.id=p1_0.criado_por left join etapas_processo e1_0 on p1_0.id=e1_0.id_processo left join usuario du1_0 on du1_0.id=e1_0.de_usuario left join usuario pu1_0 on pu1_0.id=e1_0.para_usuario where p1_0.id=? order by e1_0.id desc
+select p1_0.id,a1_0.id_processo,a1_0.id,a1_0.caminho_arquivo,a1_0.data_envio,ep1_0.id,ep1_0.departamento,ep1_0.email,ep1_0.matricula,ep1_0.nome,ep1_0.perfil,ep1_0.senha,a1_0.id_etapa,a1_0.hash_conteudo,a1_0.nome_arquivo,a1_0.status_renderizacao,a1_0.tipo,p1_0.criado_por,p1_0.data_criacao,p1_0.departamento_origem,p1_0.descricao,p1_0.protocolo,p1_0.responsavel_atual_id,p1_0.status,p1_0.titulo,p1_0.ultima_etapa_id from processos_tramitacao p1_0 left join arquivos_processo a1_0 on p1_0.id=a1_0.id_processo left join usuario ep1_0 on ep1_0.id=a1_0.enviado_por where p1_0.id in (?)
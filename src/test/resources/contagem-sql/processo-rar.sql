@@ -0,0 +1,2 @@
+-- GET /api/processos/{id}/arquivos/download-rar
+-- statements=0 entidades=0 colecoes=0
@@ -0,0 +1,4 @@
+-- GET /api/processos/resumo?filtro=para_mim&size=10
+-- statements=2 entidades=0 colecoes=0
+select p1_0.id,p1_0.titulo,p1_0.status,p1_0.protocolo,p1_0.departamento_origem,p1_0.data_criacao,cp1_0.nome,u1_0.id,u1_0.nome,(select count(a1_0.id) from arquivos_processo a1_0 where a1_0.id_processo=p1_0.id) from processos_tramitacao p1_0 left join usuario cp1_0 on cp1_0.id=p1_0.criado_por left join usuario u1_0 on u1_0.id=p1_0.responsavel_atual_id where p1_0.responsavel_atual_id=? order by p1_0.data_criacao desc fetch first ? rows only
+select count(p1_0.id) from processos_tramitacao p1_0 where p1_0.responsavel_atual_id=?
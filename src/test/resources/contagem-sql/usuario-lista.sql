@@ -0,0 +1,3 @@
+-- GET /api/usuarios
+-- statements=1 entidades=4 colecoes=0
+select u1_0.id,u1_0.departamento,u1_0.email,u1_0.matricula,u1_0.nome,u1_0.perfil,u1_0.senha from usuario u1_0